@@ -0,0 +1,105 @@
+package com.grass.picturebackend.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.entity.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 基准测试数据（固定生成，保证每次运行一致）
+ * @date 2025年05月29日 09:30
+ */
+public class BenchmarkData {
+
+    /**
+     * 一页图片数（与用户分页上限一致）
+     */
+    public static final int PAGE_SIZE = 20;
+
+    public static final int USER_COUNT = 200;
+
+    public static final int PICTURE_COUNT = 2000;
+
+    private static final List<List<String>> TAG_GROUPS = Arrays.asList(
+            Arrays.asList("热门", "高清"),
+            Arrays.asList("搞笑", "生活"),
+            Arrays.asList("艺术", "创意", "背景"),
+            Arrays.asList("校园"),
+            Arrays.asList("简历", "模板"));
+
+    private static final List<String> CATEGORIES = Arrays.asList("模板", "电商", "表情包", "素材", "海报");
+
+    private BenchmarkData() {
+    }
+
+    public static List<User> users() {
+        List<User> userList = new ArrayList<>(USER_COUNT);
+        for (int i = 1; i <= USER_COUNT; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setUserAccount("user" + i);
+            user.setUserPassword("b0dd3697a192885d7c055db46155b26a");
+            user.setUserName("用户" + i);
+            user.setUserAvatar("https://example.com/avatar/" + i + ".png");
+            user.setUserProfile("这是用户 " + i + " 的简介");
+            user.setUserRole(i == 1 ? "admin" : "user");
+            user.setCreateTime(new Date(1735660800000L + i * 1000L));
+            user.setEditTime(user.getCreateTime());
+            user.setUpdateTime(user.getCreateTime());
+            user.setIsDelete(0);
+            userList.add(user);
+        }
+        return userList;
+    }
+
+    public static List<Picture> pictures() {
+        List<Picture> pictureList = new ArrayList<>(PICTURE_COUNT);
+        for (int i = 1; i <= PICTURE_COUNT; i++) {
+            Picture picture = new Picture();
+            picture.setId((long) i);
+            picture.setUrl("https://example.com/public/" + i + ".webp");
+            picture.setThumbnailUrl("https://example.com/public/" + i + "_thumbnail.webp");
+            picture.setVariants(JSONUtil.toJsonStr(variants(i)));
+            picture.setName("风景图片 " + i);
+            picture.setIntroduction("一张用于基准测试的图片，编号 " + i);
+            picture.setCategory(CATEGORIES.get(i % CATEGORIES.size()));
+            picture.setTags(JSONUtil.toJsonStr(TAG_GROUPS.get(i % TAG_GROUPS.size())));
+            picture.setPicSize(100_000L + i);
+            picture.setPicWidth(1920);
+            picture.setPicHeight(1080);
+            picture.setPicScale(1.78);
+            picture.setPicFormat("webp");
+            picture.setPicColor("0x5a7d9a");
+            // 一页中的图片来自少量用户，与实际首页接近
+            picture.setUserId((long) (i % 7 + 1) * (i % 3 + 1));
+            picture.setUploadStatus(1);
+            picture.setReviewStatus(1);
+            picture.setCreateTime(new Date(1735660800000L + i * 60_000L));
+            picture.setEditTime(picture.getCreateTime());
+            picture.setUpdateTime(picture.getCreateTime());
+            picture.setIsDelete(0);
+            pictureList.add(picture);
+        }
+        return pictureList;
+    }
+
+    private static List<PictureVariant> variants(int index) {
+        List<PictureVariant> variantList = new ArrayList<>();
+        for (int width : new int[]{320, 640, 1280}) {
+            PictureVariant variant = new PictureVariant();
+            variant.setWidth(width);
+            variant.setHeight(width * 9 / 16);
+            variant.setFormat("webp");
+            variant.setSize((long) width * 40);
+            variant.setUrl("https://example.com/public/" + index + "_" + width + ".webp");
+            variantList.add(variant);
+        }
+        return variantList;
+    }
+}
@@ -0,0 +1,41 @@
+package com.grass.picturebackend.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 基准测试入口
+ * 不带参数时运行全部基准测试，结果以 JSON 写入 results/{release}-{时间}.json（-Drelease 指定版本号），便于版本间对比；
+ * 带参数时与 JMH 自带的命令行相同
+ * @date 2025年05月29日 10:40
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            Main.main(args);
+            return;
+        }
+        File resultDir = new File(System.getProperty("resultDir", "results"));
+        if (!resultDir.exists() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("cannot create result directory: " + resultDir.getAbsolutePath());
+        }
+        String release = System.getProperty("release", "snapshot");
+        String time = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+        File resultFile = new File(resultDir, release + "-" + time + ".json");
+        Options options = new OptionsBuilder()
+                .include(BenchmarkMain.class.getPackage().getName() + ".*Benchmark")
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.getPath())
+                .build();
+        new Runner(options).run();
+    }
+}
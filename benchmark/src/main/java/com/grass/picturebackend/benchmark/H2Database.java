@@ -0,0 +1,56 @@
+package com.grass.picturebackend.benchmark;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.toolkit.GlobalConfigUtils;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.mapper.UserMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.RunScript;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 基准测试用的 H2 内存数据库（不启动 Spring，直接构建 MyBatis-Plus）
+ * 配置与 application.yml 一致：不开启驼峰转换，isDelete 为逻辑删除字段
+ * @date 2025年05月29日 09:40
+ */
+public class H2Database {
+
+    private final SqlSessionManager sqlSessionManager;
+
+    public H2Database(String name) throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection();
+             Reader reader = new InputStreamReader(H2Database.class.getResourceAsStream("/benchmark-schema.sql"), StandardCharsets.UTF_8)) {
+            RunScript.execute(connection, reader);
+        }
+        MybatisConfiguration configuration = new MybatisConfiguration(new Environment(name, new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(false);
+        GlobalConfig globalConfig = GlobalConfigUtils.getGlobalConfig(configuration);
+        globalConfig.getDbConfig().setLogicDeleteField("isDelete");
+        globalConfig.getDbConfig().setLogicDeleteValue("1");
+        globalConfig.getDbConfig().setLogicNotDeleteValue("0");
+        configuration.addMapper(UserMapper.class);
+        configuration.addMapper(PictureMapper.class);
+        // 每次调用单独开关会话并自动提交，与 Spring 管理的非事务调用一致
+        sqlSessionManager = SqlSessionManager.newInstance(new MybatisSqlSessionFactoryBuilder().build(configuration));
+    }
+
+    public UserMapper userMapper() {
+        return sqlSessionManager.getMapper(UserMapper.class);
+    }
+
+    public PictureMapper pictureMapper() {
+        return sqlSessionManager.getMapper(PictureMapper.class);
+    }
+}
@@ -0,0 +1,65 @@
+package com.grass.picturebackend.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.vo.PictureVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 一页（20 条）图片转封装类
+ * reflective 为改用编译期生成转换之前的实现（反射复制属性，每条记录重新解析标签），作为对比基线
+ * @date 2025年05月29日 10:10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PictureVoMappingBenchmark {
+
+    private List<Picture> page;
+
+    @Setup
+    public void setup() {
+        page = new ArrayList<>(BenchmarkData.pictures().subList(0, BenchmarkData.PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<PictureVO> generated() {
+        List<PictureVO> pictureVOList = new ArrayList<>(page.size());
+        for (Picture picture : page) {
+            pictureVOList.add(PictureVO.objToVo(picture));
+        }
+        return pictureVOList;
+    }
+
+    @Benchmark
+    public List<PictureVO> reflective() {
+        List<PictureVO> pictureVOList = new ArrayList<>(page.size());
+        for (Picture picture : page) {
+            PictureVO pictureVO = new PictureVO();
+            BeanUtils.copyProperties(picture, pictureVO);
+            pictureVO.setTags(JSONUtil.toList(picture.getTags(), String.class));
+            pictureVO.setVariants(JSONUtil.toList(picture.getVariants(), PictureVariant.class));
+            pictureVOList.add(pictureVO);
+        }
+        return pictureVOList;
+    }
+}
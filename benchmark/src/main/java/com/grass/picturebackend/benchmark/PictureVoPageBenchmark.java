@@ -0,0 +1,71 @@
+package com.grass.picturebackend.benchmark;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.grass.picturebackend.manager.cache.UserCache;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.mapper.UserMapper;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.vo.PictureVO;
+import com.grass.picturebackend.service.impl.PictureServiceImpl;
+import com.grass.picturebackend.service.impl.UserServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 分页结果填充用户信息（getPictureVOPage），用户从 H2 内存库批量查询
+ * @date 2025年05月29日 10:20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PictureVoPageBenchmark {
+
+    private PictureServiceImpl pictureService;
+
+    private Page<Picture> picturePage;
+
+    @Setup
+    public void setup() throws Exception {
+        H2Database database = new H2Database("picture_vo_page");
+        UserMapper userMapper = database.userMapper();
+        PictureMapper pictureMapper = database.pictureMapper();
+        BenchmarkData.users().forEach(userMapper::insert);
+        BenchmarkData.pictures().forEach(pictureMapper::insert);
+
+        UserServiceImpl userService = new UserServiceImpl();
+        ReflectUtil.setFieldValue(userService, "baseMapper", userMapper);
+        ReflectUtil.setFieldValue(userService, "userCache", new UserCache());
+        pictureService = new PictureServiceImpl();
+        ReflectUtil.setFieldValue(pictureService, "baseMapper", pictureMapper);
+        ReflectUtil.setFieldValue(pictureService, "userService", userService);
+
+        // 首页第一页
+        List<Picture> records = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .orderByDesc(Picture::getCreateTime)
+                .last("limit " + BenchmarkData.PAGE_SIZE));
+        picturePage = new Page<>(1, BenchmarkData.PAGE_SIZE, BenchmarkData.PICTURE_COUNT);
+        picturePage.setRecords(records);
+    }
+
+    @Benchmark
+    public Page<PictureVO> getPictureVOPage() {
+        return pictureService.getPictureVOPage(picturePage);
+    }
+}
@@ -0,0 +1,82 @@
+package com.grass.picturebackend.benchmark;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.grass.picturebackend.manager.index.PictureTagIndex;
+import com.grass.picturebackend.manager.index.PictureTextIndex;
+import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.service.impl.PictureServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 查询条件构建与 SQL 片段渲染
+ * 全文索引、标签索引未加载，走的是退回数据库过滤（LIKE）的路径
+ * @date 2025年05月29日 10:00
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryWrapperBenchmark {
+
+    private PictureServiceImpl pictureService;
+
+    private PictureQueryRequest simpleRequest;
+
+    private PictureQueryRequest fullRequest;
+
+    @Setup
+    public void setup() {
+        pictureService = new PictureServiceImpl();
+        ReflectUtil.setFieldValue(pictureService, "pictureTextIndex", new PictureTextIndex());
+        ReflectUtil.setFieldValue(pictureService, "pictureTagIndex", new PictureTagIndex());
+
+        simpleRequest = new PictureQueryRequest();
+        simpleRequest.setUploadStatus(1);
+        simpleRequest.setSortField("createTime");
+
+        fullRequest = new PictureQueryRequest();
+        fullRequest.setSearchText("风景");
+        fullRequest.setCategory("素材");
+        fullRequest.setTags(Arrays.asList("热门", "高清", "背景"));
+        fullRequest.setPicFormat("webp");
+        fullRequest.setPicWidth(1920);
+        fullRequest.setUserId(3L);
+        fullRequest.setUploadStatus(1);
+        fullRequest.setSortField("createTime");
+        fullRequest.setSortOrder("ascend");
+    }
+
+    @Benchmark
+    public void simpleFilter(Blackhole blackhole) {
+        render(simpleRequest, blackhole);
+    }
+
+    @Benchmark
+    public void fullFilter(Blackhole blackhole) {
+        render(fullRequest, blackhole);
+    }
+
+    private void render(PictureQueryRequest pictureQueryRequest, Blackhole blackhole) {
+        QueryWrapper<Picture> queryWrapper = pictureService.getQueryWrapper(pictureQueryRequest);
+        blackhole.consume(queryWrapper.getCustomSqlSegment());
+        blackhole.consume(queryWrapper.getParamNameValuePairs());
+    }
+}
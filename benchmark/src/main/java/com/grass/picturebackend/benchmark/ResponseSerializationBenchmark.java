@@ -0,0 +1,80 @@
+package com.grass.picturebackend.benchmark;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grass.picturebackend.common.BaseResponse;
+import com.grass.picturebackend.common.ResultUtils;
+import com.grass.picturebackend.config.JsonConfig;
+import com.grass.picturebackend.manager.cache.PictureJsonFragmentCache;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.entity.User;
+import com.grass.picturebackend.model.vo.PictureVO;
+import com.grass.picturebackend.model.vo.UserVO;
+import com.grass.picturebackend.service.impl.UserServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 列表接口响应（BaseResponse<Page<PictureVO>>）的 JSON 序列化，使用 JsonConfig 中 Long 转字符串的 ObjectMapper
+ * fragmentCached 为注册了 JSON 片段缓存模块、片段全部命中时的耗时
+ * @date 2025年05月29日 10:30
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private BaseResponse<Page<PictureVO>> response;
+
+    private ObjectMapper fragmentCachedObjectMapper;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new JsonConfig().jacksonObjectMapper(new Jackson2ObjectMapperBuilder());
+        List<User> userList = BenchmarkData.users();
+        UserServiceImpl userService = new UserServiceImpl();
+        List<PictureVO> pictureVOList = new ArrayList<>(BenchmarkData.PAGE_SIZE);
+        for (Picture picture : BenchmarkData.pictures().subList(0, BenchmarkData.PAGE_SIZE)) {
+            PictureVO pictureVO = PictureVO.objToVo(picture);
+            UserVO userVO = userService.getUserVO(userList.get((int) (picture.getUserId() - 1)));
+            pictureVO.setUser(userVO);
+            pictureVOList.add(pictureVO);
+        }
+        Page<PictureVO> pictureVOPage = new Page<>(1, BenchmarkData.PAGE_SIZE, BenchmarkData.PICTURE_COUNT);
+        pictureVOPage.setRecords(pictureVOList);
+        response = ResultUtils.success(pictureVOPage);
+        fragmentCachedObjectMapper = new JsonConfig().jacksonObjectMapper(
+                new Jackson2ObjectMapperBuilder().modulesToInstall(new PictureJsonFragmentCache().module()));
+        // 预热片段缓存
+        fragmentCachedObjectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] fragmentCached() throws Exception {
+        return fragmentCachedObjectMapper.writeValueAsBytes(response);
+    }
+}
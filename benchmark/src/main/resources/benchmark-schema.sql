@@ -0,0 +1,52 @@
+-- 基准测试用的 H2 表结构（字段与实体一致，MySQL 兼容模式）
+create table if not exists user
+(
+    id            bigint primary key,
+    userAccount   varchar(256)  not null,
+    userPassword  varchar(512)  not null,
+    userName      varchar(256),
+    userAvatar    varchar(1024),
+    userProfile   varchar(512),
+    userRole      varchar(256)  default 'user' not null,
+    vipExpireTime timestamp,
+    vipCode       varchar(128),
+    vipNumber     bigint,
+    editTime      timestamp     default current_timestamp not null,
+    createTime    timestamp     default current_timestamp not null,
+    updateTime    timestamp     default current_timestamp not null,
+    isDelete      tinyint       default 0 not null
+);
+
+create table if not exists picture
+(
+    id            bigint primary key,
+    url           varchar(512)  not null,
+    thumbnailUrl  varchar(512),
+    variants      varchar(4096),
+    name          varchar(128)  not null,
+    introduction  varchar(512),
+    category      varchar(64),
+    tags          varchar(512),
+    picSize       bigint,
+    picWidth      int,
+    picHeight     int,
+    picScale      double,
+    picFormat     varchar(32),
+    picColor      varchar(16),
+    picColorLab   int,
+    picHash       bigint,
+    contentHash   varchar(64),
+    userId        bigint        not null,
+    spaceId       bigint,
+    uploadStatus  int           default 1 not null,
+    reviewStatus  int           default 0 not null,
+    reviewMessage varchar(512),
+    reviewerId    bigint,
+    reviewTime    timestamp,
+    createTime    timestamp     default current_timestamp not null,
+    editTime      timestamp     default current_timestamp not null,
+    updateTime    timestamp     default current_timestamp not null,
+    isDelete      tinyint       default 0 not null
+);
+
+create index if not exists idx_picture_userId on picture (userId);
@@ -0,0 +1,66 @@
+-- 增量表结构变更（按功能追加，执行前请确认已在目标库执行过的部分）
+use grass_picture;
+
+-- 图片内容去重索引
+create table if not exists picture_content
+(
+    id           bigint                             not null comment 'id' primary key,
+    contentHash  char(64)                           not null comment '内容哈希（SHA-256）',
+    url          varchar(512)                       not null comment '图片 url',
+    thumbnailUrl varchar(512)                       null comment '缩略图 url',
+    picSize      bigint                             null comment '图片体积',
+    picWidth     int                                null comment '图片宽度',
+    picHeight    int                                null comment '图片高度',
+    picScale     double                             null comment '图片宽高比例',
+    picFormat    varchar(32)                        null comment '图片格式',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    unique key uk_contentHash (contentHash)
+) comment '图片内容索引' collate = utf8mb4_unicode_ci;
+
+alter table picture
+    add column contentHash char(64) null comment '内容哈希（SHA-256）',
+    add index idx_contentHash (contentHash);
+
+-- 异步上传状态
+alter table picture
+    add column uploadStatus tinyint default 1 not null comment '上传状态：0-处理中; 1-成功; 2-失败';
+
+-- 本地生成的多尺寸衍生图
+alter table picture
+    add column variants json null comment '衍生图列表' after thumbnailUrl;
+alter table picture_content
+    add column variants json null comment '衍生图列表' after thumbnailUrl;
+
+-- 待清理的存储对象（删除图片后异步批量删除原图与衍生图）
+create table if not exists picture_purge_task
+(
+    id            bigint                             not null comment 'id' primary key,
+    objectKey     varchar(512)                       not null comment '对象键',
+    contentHash   char(64)                           null comment '图片内容哈希',
+    status        tinyint  default 0                 not null comment '状态：0-待清理；1-多次重试仍失败；2-内容索引已删除，待清理',
+    retryCount    int      default 0                 not null comment '已重试次数',
+    nextRetryTime datetime default CURRENT_TIMESTAMP not null comment '下次执行时间',
+    lastError     varchar(512)                       null comment '最近一次失败原因',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime    datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    index idx_status_nextRetryTime (status, nextRetryTime)
+) comment '待清理的存储对象' collate = utf8mb4_unicode_ci;
+
+-- 主色调（上传时提取）与按颜色搜索使用的 Lab 值
+alter table picture
+    add column picColorLab int null comment '主色调 Lab（压缩为 0xLLAABB）' after picColor;
+alter table picture_content
+    add column picColor varchar(16) null comment '图片主色调' after picFormat,
+    add column picColorLab int null comment '主色调 Lab（压缩为 0xLLAABB）' after picColor;
+
+-- 感知哈希（以图搜图）
+alter table picture
+    add column picHash bigint null comment '感知哈希（64 位 dHash）' after picColorLab;
+alter table picture_content
+    add column picHash bigint null comment '感知哈希（64 位 dHash）' after picColorLab;
+
+-- 游标分页（按 createTime、updateTime 排序时与 id 组合定位）
+alter table picture
+    add index idx_createTime_id (createTime, id),
+    add index idx_updateTime_id (updateTime, id);
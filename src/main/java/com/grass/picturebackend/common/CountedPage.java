@@ -0,0 +1,27 @@
+package com.grass.picturebackend.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 带总数来源的分页结果类（总数可能来自缓存或估算）
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class CountedPage<T> extends Page<T> {
+
+    /**
+     * 总数是否精确（为 false 时是估算值；未查询总数时 total 为 -1）
+     */
+    private boolean totalExact = true;
+
+    public CountedPage() {
+    }
+
+    public CountedPage(long current, long size) {
+        super(current, size, false);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,31 @@
+package com.grass.picturebackend.common;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通用的游标分页结果类（不统计总数）
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records = new ArrayList<>();
+
+    /**
+     * 下一页游标，没有更多数据时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -27,4 +27,9 @@ public class PageRequest {
      * 排序顺序（默认升序）
      */
     private String sortOrder = "descend";
+
+    /**
+     * 是否查询总数（为 false 时不查询，total 返回 -1）
+     */
+    private boolean searchCount = true;
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.grass.picturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 批量导入配置（搜索地址可指向本地的 HTTP 服务，便于用固定页面联调）
+ * @date 2025年05月11日 09:20
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.batch-import")
+@Data
+public class BatchImportConfig {
+
+    /**
+     * 搜索页地址，%s 为编码后的搜索词
+     */
+    private String searchUrl = "https://cn.bing.com/images/async?q=%s&mmasync=1";
+
+    /**
+     * 搜索结果页中图片元素的选择器
+     */
+    private String imageSelector = "div.dgControl img.mimg";
+
+    /**
+     * 单次最多导入数量
+     */
+    private int maxCount = 30;
+
+    /**
+     * 抓取线程数
+     */
+    private int fetchThreads = 8;
+
+    /**
+     * 同一域名的最大并发连接数
+     */
+    private int perHostConnections = 2;
+
+    /**
+     * 连接超时（毫秒）
+     */
+    private int connectTimeout = 5000;
+
+    /**
+     * 读取超时（毫秒）
+     */
+    private int readTimeout = 10000;
+}
@@ -6,6 +6,7 @@ import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
 import com.qcloud.cos.region.Region;
 import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -45,12 +46,88 @@ public class CosClientConfig {
      */
     private String bucket;
 
+    /**
+     * 连接池最大连接数
+     */
+    private int maxConnections = 256;
+
+    /**
+     * 建立连接超时时间（毫秒）
+     */
+    private int connectionTimeout = 3000;
+
+    /**
+     * 读取响应超时时间（毫秒）
+     */
+    private int socketTimeout = 10000;
+
+    /**
+     * 从连接池获取连接的超时时间（毫秒）
+     */
+    private int connectionRequestTimeout = 1000;
+
+    /**
+     * 每类操作的最大并发数（舱壁隔离，超出后快速失败，不占满请求线程）
+     */
+    private int maxConcurrentCalls = 64;
+
+    /**
+     * 并发已满时最多等待的时间（毫秒）
+     */
+    private long bulkheadWaitMillis = 100;
+
+    /**
+     * 熔断统计窗口（最近 N 次调用）
+     */
+    private int breakerWindowSize = 50;
+
+    /**
+     * 窗口内至少多少次调用后才计算失败率
+     */
+    private int breakerMinCalls = 20;
+
+    /**
+     * 失败率（百分比）达到该值时熔断
+     */
+    private int breakerFailureRateThreshold = 50;
+
+    /**
+     * 超过该耗时（毫秒）的调用按失败计入熔断统计
+     */
+    private long breakerSlowCallMillis = 5000;
+
+    /**
+     * 熔断后多久进入半开状态（秒）
+     */
+    private int breakerOpenSeconds = 30;
+
+    /**
+     * 半开状态允许的试探调用数
+     */
+    private int breakerHalfOpenCalls = 5;
+
+    /**
+     * 是否对读操作发起对冲请求（主请求超过 p95 耗时仍未返回时再发一次，取先返回的）
+     */
+    private boolean hedgeEnabled = true;
+
+    /**
+     * 对冲请求的最小等待时间（毫秒）
+     */
+    private long hedgeMinDelayMillis = 50;
+
     @Bean
+    @ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "cos", matchIfMissing = true)
     public COSClient cosClient() {
         // 初始化用户身份信息(secretId, secretKey)
         COSCredentials cred = new BasicCOSCredentials(secretId, secretKey);
         // 设置bucket的区域, COS地域的简称请参照 https://cloud.tencent.com/document/product/436/6224
         ClientConfig clientConfig = new ClientConfig(new Region(region));
+        // 连接池与超时，避免存储抖动时请求无限期挂起
+        clientConfig.setMaxConnectionsCount(maxConnections);
+        clientConfig.setConnectionTimeout(connectionTimeout);
+        clientConfig.setSocketTimeout(socketTimeout);
+        clientConfig.setConnectionRequestTimeout(connectionRequestTimeout);
         // 生成cos客户端
         return new COSClient(cred, clientConfig);
     }
@@ -1,8 +1,10 @@
 package com.grass.picturebackend.config;
 
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.grass.picturebackend.manager.cache.PictureJsonFragmentCache;
 import org.springframework.boot.jackson.JsonComponent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
@@ -27,4 +29,12 @@ public class JsonConfig {
         objectMapper.registerModule(module);
         return objectMapper;
     }
+
+    /**
+     * PictureVO 的 JSON 片段缓存（Module 类型的 Bean 由 Spring Boot 注册到上面的 builder 中）
+     */
+    @Bean
+    public Module pictureJsonFragmentModule(PictureJsonFragmentCache pictureJsonFragmentCache) {
+        return pictureJsonFragmentCache.module();
+    }
 }
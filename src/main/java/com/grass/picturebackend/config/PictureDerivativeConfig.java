@@ -0,0 +1,44 @@
+package com.grass.picturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 衍生图配置
+ * @date 2025年05月15日 09:20
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.derivative")
+@Data
+public class PictureDerivativeConfig {
+
+    /**
+     * 生成的宽度列表（只生成比原图窄的）
+     */
+    private List<Integer> widths = Arrays.asList(256, 640, 1280);
+
+    /**
+     * 生成的格式列表（需要 ImageIO 有对应的编码器）
+     */
+    private List<String> formats = Arrays.asList("jpg");
+
+    /**
+     * JPEG 压缩质量
+     */
+    private float quality = 0.8f;
+
+    /**
+     * 原图超过该大小才使用衍生图作为缩略图（字节）
+     */
+    private long thumbnailMinSize = 20 * 1024L;
+
+    /**
+     * 单张图片生成衍生图的最长等待时间（秒），超时不影响上传
+     */
+    private long timeoutSeconds = 30;
+}
@@ -0,0 +1,46 @@
+package com.grass.picturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片列表缓存配置
+ * @date 2025年05月21日 09:20
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.feed-cache")
+@Data
+public class PictureFeedCacheConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最多条数
+     */
+    private long localMaxSize = 1000;
+
+    /**
+     * 本地缓存有效期（秒）
+     */
+    private long localExpireSeconds = 30;
+
+    /**
+     * 是否使用 Redis 二级缓存（关闭时只使用本地缓存，没有 Redis 的环境也能运行）
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis 缓存有效期（秒），实际有效期会加上随机抖动，避免同时过期
+     */
+    private long redisExpireSeconds = 300;
+
+    /**
+     * 本地缓存的空间版本号的刷新间隔（毫秒），即其他实例的变更在本实例生效的最长延迟
+     */
+    private long generationRefreshMillis = 1000;
+}
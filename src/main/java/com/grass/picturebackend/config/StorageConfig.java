@@ -0,0 +1,51 @@
+package com.grass.picturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 对象存储配置
+ * @date 2025年05月12日 09:40
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+@Data
+public class StorageConfig {
+
+    /**
+     * 存储类型：cos - 腾讯云对象存储；local - 本地文件系统（边缘节点、压测使用）
+     */
+    private String type = "cos";
+
+    /**
+     * 本地存储根目录
+     */
+    private String localRoot = "data/storage";
+
+    /**
+     * 本地存储对外访问地址（由 /file/object 接口提供下载）
+     */
+    private String localHost = "http://localhost:8123/api/file/object";
+
+    /**
+     * 是否开启本地磁盘缓存（存储类型为 local 时不生效）
+     */
+    private boolean diskCacheEnabled = true;
+
+    /**
+     * 磁盘缓存目录（启动时清空，索引只保存在内存中）
+     */
+    private String diskCacheDir = "data/cache";
+
+    /**
+     * 磁盘缓存最大占用（字节）
+     */
+    private long diskCacheMaxBytes = 1024 * 1024 * 1024L;
+
+    /**
+     * 单个对象超过该大小时不缓存（字节）
+     */
+    private long diskCacheMaxObjectBytes = 20 * 1024 * 1024L;
+}
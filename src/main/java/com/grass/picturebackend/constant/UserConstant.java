@@ -10,6 +10,11 @@ public interface UserConstant {
      */
     String USER_LOGIN_STATE = "user_login";
 
+    /**
+     * 请求内缓存的当前登录用户（同一请求中拦截器和接口只查询一次）
+     */
+    String LOGIN_USER_ATTRIBUTE = "login_user";
+
     //  region 权限
 
     /**
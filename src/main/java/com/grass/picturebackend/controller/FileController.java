@@ -1,22 +1,34 @@
 package com.grass.picturebackend.controller;
 
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
 import com.grass.picturebackend.annotation.AuthCheck;
 import com.grass.picturebackend.common.BaseResponse;
 import com.grass.picturebackend.common.ResultUtils;
 import com.grass.picturebackend.constant.UserConstant;
 import com.grass.picturebackend.exception.BusinessException;
 import com.grass.picturebackend.exception.ErrorCode;
-import com.grass.picturebackend.manager.CosManager;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.COSObjectInputStream;
-import com.qcloud.cos.utils.IOUtils;
+import com.grass.picturebackend.manager.ObjectServeManager;
+import com.grass.picturebackend.manager.storage.DiskObjectCache;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.ResilientObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObject;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import com.grass.picturebackend.model.vo.DiskCacheStatsVO;
+import com.grass.picturebackend.model.vo.StorageOperationStatsVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author Mr.Liuxq
@@ -29,8 +41,19 @@ import java.io.File;
 @RequestMapping("/file")
 public class FileController {
 
+    /**
+     * 对象访问地址前缀（不含 context-path）
+     */
+    private static final String OBJECT_PATH_PREFIX = "/file/object/";
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private ObjectServeManager objectServeManager;
+
     @Resource
-    private CosManager cosManager;
+    private DiskObjectCache diskObjectCache;
 
     /**
      * 测试文件上传
@@ -44,24 +67,17 @@ public class FileController {
         // 文件目录
         String filename = multipartFile.getOriginalFilename();
         String filePath = String.format("/test/%s", filename);
-        File file = null;
-        try {
-            file = File.createTempFile(filePath,null);
-            multipartFile.transferTo(file);
-            cosManager.putObject(filePath,file);
+        // 直接把请求中的文件流写入对象存储，避免临时文件
+        StorageObjectMetadata objectMetadata = new StorageObjectMetadata();
+        objectMetadata.setContentLength(multipartFile.getSize());
+        objectMetadata.setContentType(multipartFile.getContentType());
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            objectStorage.putObject(filePath, inputStream, objectMetadata);
             // 返回可访问地址
             return ResultUtils.success(filePath);
         } catch (Exception e) {
             log.error("file upload error, filePath = {}",filePath,e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
-        } finally {
-            if (file != null) {
-                // 删除临时文件
-                boolean delete = file.delete();
-                if (!delete) {
-                    log.error("file delete error, filePath = {}",filePath);
-                }
-            }
         }
     }
 
@@ -74,26 +90,61 @@ public class FileController {
     @GetMapping("/test/download")
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
     public void testDownloadFile(String filePath, HttpServletResponse response) {
-        COSObjectInputStream cosObjectInputStream = null;
-        try {
-            COSObject cosObject = cosManager.getObject(filePath);
-            cosObjectInputStream = cosObject.getObjectContent();
-            // 处理下载到的流
-            byte[] bytes = IOUtils.toByteArray(cosObjectInputStream);
+        try (StorageObject storageObject = objectStorage.getObject(filePath)) {
             // 设置响应头
             response.setContentType("application/octet-stream;charset=UTF-8");
             response.setHeader("Content-Disposition", "attachment;filename=" + filePath);
-            // 写入响应
-            response.getOutputStream().write(bytes);
+            response.setContentLengthLong(storageObject.getMetadata().getContentLength());
+            // 边读边写，不把整个文件读入内存
+            IoUtil.copy(storageObject.getContent(), response.getOutputStream());
             response.getOutputStream().flush();
         } catch (Exception e) {
             log.error("file download error, filePath = {}",filePath,e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载失败");
-        } finally {
-            if (cosObjectInputStream != null) {
-                // 关闭流
-                IOUtils.release(cosObjectInputStream, log);
-            }
         }
     }
+
+    /**
+     * 访问对象（流式输出，支持 Range 与缓存协商），只开放公共图库的对象
+     * 地址形如 /file/object/public/1/xxx.png
+     * @param request 请求
+     * @param response 响应
+     * @author Mr.Liuxq
+     */
+    @GetMapping("/object/**")
+    public void serveObject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String prefix = request.getContextPath() + OBJECT_PATH_PREFIX;
+        // 按路径规则解码，+ 保持原样（URLUtil.decode 会把 + 当作空格）
+        String key = UriUtils.decode(StrUtil.removePrefix(request.getRequestURI(), prefix), StandardCharsets.UTF_8);
+        if (StrUtil.isBlank(key)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        objectServeManager.serve(key, request, response);
+    }
+
+    /**
+     * 磁盘缓存统计
+     * @return 缓存统计
+     * @author Mr.Liuxq
+     */
+    @GetMapping("/cache/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<DiskCacheStatsVO> getDiskCacheStats() {
+        return ResultUtils.success(diskObjectCache.getStats());
+    }
+
+    /**
+     * 对象存储各操作的调用统计（成功 / 失败 / 拒绝次数、耗时分位数、熔断状态）
+     * @return 调用统计，本地存储时为空
+     * @author Mr.Liuxq
+     */
+    @GetMapping("/storage/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<StorageOperationStatsVO>> getStorageStats() {
+        if (!(objectStorage instanceof ResilientObjectStorage)) {
+            return ResultUtils.success(Collections.emptyList());
+        }
+        return ResultUtils.success(((ResilientObjectStorage) objectStorage).getStats());
+    }
 }
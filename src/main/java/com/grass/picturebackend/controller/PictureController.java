@@ -1,10 +1,9 @@
 package com.grass.picturebackend.controller;
 
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.grass.picturebackend.annotation.AuthCheck;
 import com.grass.picturebackend.common.BaseResponse;
+import com.grass.picturebackend.common.CursorPage;
 import com.grass.picturebackend.common.DeleteRequest;
 import com.grass.picturebackend.common.ResultUtils;
 import com.grass.picturebackend.constant.PictureTagCategoryConstant;
@@ -12,13 +11,27 @@ import com.grass.picturebackend.constant.UserConstant;
 import com.grass.picturebackend.exception.BusinessException;
 import com.grass.picturebackend.exception.ErrorCode;
 import com.grass.picturebackend.exception.ThrowUtils;
+import com.grass.picturebackend.manager.cache.PictureFeedCache;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadInitRequest;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadPartRequest;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadRequest;
 import com.grass.picturebackend.model.dto.picture.PictureEditRequest;
 import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
 import com.grass.picturebackend.model.dto.picture.PictureUpdateRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadFinalizeRequest;
 import com.grass.picturebackend.model.dto.picture.PictureUploadRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadTicketRequest;
+import com.grass.picturebackend.model.dto.picture.SearchPictureByColorRequest;
+import com.grass.picturebackend.model.dto.picture.SearchPictureByPictureRequest;
 import com.grass.picturebackend.model.entity.Picture;
 import com.grass.picturebackend.model.entity.User;
+import com.grass.picturebackend.model.enums.PictureUploadStatusEnum;
+import com.grass.picturebackend.model.vo.PictureBatchImportVO;
+import com.grass.picturebackend.model.vo.PictureChunkUploadVO;
+import com.grass.picturebackend.model.vo.PictureFeedCacheStatsVO;
 import com.grass.picturebackend.model.vo.PictureTagCategory;
+import com.grass.picturebackend.model.vo.PictureUploadTicketVO;
 import com.grass.picturebackend.model.vo.PictureVO;
 import com.grass.picturebackend.service.PictureService;
 import com.grass.picturebackend.service.UserService;
@@ -28,7 +41,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.util.Date;
+import java.util.List;
 
 /**
  * @author Mr.Liuxq
@@ -46,6 +59,9 @@ public class PictureController {
     @Resource
     private PictureService pictureService;
 
+    @Resource
+    private PictureFeedCache pictureFeedCache;
+
 
     /**
      * @description:  图片上传
@@ -67,6 +83,180 @@ public class PictureController {
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * @description: 异步图片上传，立即返回图片 id，通过 /upload/status 查询结果
+     * @author: Mr.Liuxq
+     * @date 2025/5/10 10:40
+     * @param multipartFile 文件
+     * @param request http
+     * @return 图片 id
+     */
+    @PostMapping("/upload/async")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Long> uploadPictureAsync(@RequestPart("file") MultipartFile multipartFile, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.uploadPictureAsync(multipartFile, loginUser));
+    }
+
+    /**
+     * @description: 查询异步上传结果
+     * @author: Mr.Liuxq
+     * @date 2025/5/10 10:41
+     * @param id 图片 id
+     * @param request http
+     * @return 图片信息（uploadStatus：0-处理中 1-成功 2-失败）
+     */
+    @GetMapping("/upload/status")
+    public BaseResponse<PictureVO> getUploadStatus(Long id, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getUploadStatus(id, loginUser));
+    }
+
+    /**
+     * @description: 批量导入图片，后台抓取，通过 /upload/batch/progress 查询每一项的进度
+     * @author: Mr.Liuxq
+     * @date 2025/5/11 10:20
+     * @param pictureUploadByBatchRequest 批量导入请求
+     * @param request http
+     * @return 导入进度
+     */
+    @PostMapping("/upload/batch")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureBatchImportVO> uploadPictureByBatch(@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest,
+                                                                   HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.uploadPictureByBatch(pictureUploadByBatchRequest, loginUser));
+    }
+
+    /**
+     * @description: 查询批量导入进度
+     * @author: Mr.Liuxq
+     * @date 2025/5/11 10:21
+     * @param taskId 导入任务 id
+     * @param request http
+     * @return 导入进度
+     */
+    @GetMapping("/upload/batch/progress")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureBatchImportVO> getBatchImportProgress(String taskId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getBatchImportProgress(taskId, loginUser));
+    }
+
+    /**
+     * @description: 分块上传 - 初始化
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 11:02
+     * @param pictureChunkUploadInitRequest 分块上传初始化请求
+     * @param request http
+     * @return 上传进度
+     */
+    @PostMapping("/upload/chunk/init")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureChunkUploadVO> initChunkUpload(@RequestBody PictureChunkUploadInitRequest pictureChunkUploadInitRequest,
+                                                              HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.initChunkUpload(pictureChunkUploadInitRequest, loginUser));
+    }
+
+    /**
+     * @description: 分块上传 - 上传第 N 块（立即返回，分块在后台上传到对象存储）
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 11:02
+     * @param multipartFile 分块内容
+     * @param pictureChunkUploadPartRequest 分块上传请求
+     * @param request http
+     * @return 上传进度
+     */
+    @PostMapping("/upload/chunk")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureChunkUploadVO> uploadChunk(@RequestPart("file") MultipartFile multipartFile,
+                                                          PictureChunkUploadPartRequest pictureChunkUploadPartRequest,
+                                                          HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.uploadChunk(multipartFile, pictureChunkUploadPartRequest, loginUser));
+    }
+
+    /**
+     * @description: 分块上传 - 查询进度（断线重连后只需重传缺失的分块）
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 11:02
+     * @param uploadId 分块上传 id
+     * @param request http
+     * @return 上传进度
+     */
+    @GetMapping("/upload/chunk/progress")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureChunkUploadVO> getChunkUploadProgress(String uploadId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getChunkUploadProgress(uploadId, loginUser));
+    }
+
+    /**
+     * @description: 分块上传 - 完成
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 11:02
+     * @param pictureChunkUploadRequest 分块上传请求
+     * @param request http
+     * @return 图片信息
+     */
+    @PostMapping("/upload/chunk/complete")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureVO> completeChunkUpload(@RequestBody PictureChunkUploadRequest pictureChunkUploadRequest,
+                                                       HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.completeChunkUpload(pictureChunkUploadRequest, loginUser));
+    }
+
+    /**
+     * @description: 分块上传 - 取消
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 11:02
+     * @param pictureChunkUploadRequest 分块上传请求
+     * @param request http
+     * @return 是否成功
+     */
+    @PostMapping("/upload/chunk/abort")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> abortChunkUpload(@RequestBody PictureChunkUploadRequest pictureChunkUploadRequest,
+                                                  HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        pictureService.abortChunkUpload(pictureChunkUploadRequest, loginUser);
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * @description: 直传 - 申请上传凭证（客户端拿到预签名地址后直接把文件上传到对象存储）
+     * @author: Mr.Liuxq
+     * @date 2025/5/17 10:40
+     * @param pictureUploadTicketRequest 凭证申请请求
+     * @param request http
+     * @return 上传凭证
+     */
+    @PostMapping("/upload/ticket")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureUploadTicketVO> createUploadTicket(@RequestBody PictureUploadTicketRequest pictureUploadTicketRequest,
+                                                                  HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.createUploadTicket(pictureUploadTicketRequest, loginUser));
+    }
+
+    /**
+     * @description: 直传 - 完成（校验对象后保存图片）
+     * @author: Mr.Liuxq
+     * @date 2025/5/17 10:40
+     * @param pictureUploadFinalizeRequest 直传完成请求
+     * @param request http
+     * @return 图片信息
+     */
+    @PostMapping("/upload/finalize")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureVO> finalizeUpload(@RequestBody PictureUploadFinalizeRequest pictureUploadFinalizeRequest,
+                                                  HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.finalizeUpload(pictureUploadFinalizeRequest, loginUser));
+    }
+
     /**
      * @description: 删除图片
      * @author: Mr.Liuxq
@@ -81,16 +271,7 @@ public class PictureController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         User loginUser = userService.getLoginUser(request);
-        Long id = deleteRequest.getId();
-        Picture oldPicture = pictureService.getById(id);
-        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-        // 仅限本人或者管理员可删除
-        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
-            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
-        }
-        // 删除图片
-        boolean result = pictureService.removeById(id);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureService.deletePicture(deleteRequest.getId(), loginUser);
         return ResultUtils.success(true);
     }
 
@@ -107,17 +288,7 @@ public class PictureController {
         if (pictureUpdateRequest == null || pictureUpdateRequest.getId() <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        Picture picture = new Picture();
-        BeanUtil.copyProperties(pictureUpdateRequest, picture);
-        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
-        // 数据校验
-        pictureService.validPicture(picture);
-        // 判断图片是否存在
-        Picture oldPicture = pictureService.getById(pictureUpdateRequest.getId());
-        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-        // 更新
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureService.updatePicture(pictureUpdateRequest);
         return ResultUtils.success(true);
     }
 
@@ -165,9 +336,7 @@ public class PictureController {
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
     public BaseResponse<Page<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
         // 分页查询
-        Page<Picture> picturePage = pictureService.page(new Page<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize()),
-                pictureService.getQueryWrapper(pictureQueryRequest));
-        return ResultUtils.success(picturePage);
+        return ResultUtils.success(pictureService.listPictureByPage(pictureQueryRequest));
     }
 
     /**
@@ -178,13 +347,54 @@ public class PictureController {
      * @return com.grass.picturebackend.common.BaseResponse<com.baomidou.mybatisplus.extension.plugins.pagination.Page < com.grass.picturebackend.model.vo.PictureVO>>
      */
     @PostMapping("/list/vo/page")
-    public BaseResponse<Page<PictureVO>>  listPictureVOByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
+    public BaseResponse<Page<PictureVO>> listPictureVOByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
         // 限制爬虫
         ThrowUtils.throwIf(pictureQueryRequest.getPageSize() >20, ErrorCode.PARAMS_ERROR);
-        // 分页查询
-        Page<Picture> picturePage = pictureService.page(new Page<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize()),
-                pictureService.getQueryWrapper(pictureQueryRequest));
-        return ResultUtils.success(pictureService.getPictureVOPage(picturePage));
+        // 只展示上传成功的图片
+        pictureQueryRequest.setUploadStatus(PictureUploadStatusEnum.SUCCESS.getValue());
+        // 分页查询（走列表缓存，序列化时复用每张图片的 JSON 片段）
+        return ResultUtils.success(pictureService.listPictureVOByPage(pictureQueryRequest));
+    }
+
+    /**
+     * @description: 游标分页获取图片列表 (管理员)
+     * @author: Mr.Liuxq
+     * @date 2025/5/22 10:00
+     * @param pictureQueryRequest 图片查询请求
+     * @return com.grass.picturebackend.common.BaseResponse<com.grass.picturebackend.common.CursorPage<com.grass.picturebackend.model.entity.Picture>>
+     */
+    @PostMapping("/list/cursor")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<CursorPage<Picture>> listPictureByCursor(@RequestBody PictureQueryRequest pictureQueryRequest) {
+        return ResultUtils.success(pictureService.listPictureByCursor(pictureQueryRequest));
+    }
+
+    /**
+     * @description: 游标分页获取图片列表 (用户)
+     * @author: Mr.Liuxq
+     * @date 2025/5/22 10:00
+     * @param pictureQueryRequest 图片查询请求
+     * @return com.grass.picturebackend.common.BaseResponse<com.grass.picturebackend.common.CursorPage<com.grass.picturebackend.model.vo.PictureVO>>
+     */
+    @PostMapping("/list/vo/cursor")
+    public BaseResponse<CursorPage<PictureVO>> listPictureVOByCursor(@RequestBody PictureQueryRequest pictureQueryRequest) {
+        // 限制爬虫
+        ThrowUtils.throwIf(pictureQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 只展示上传成功的图片
+        pictureQueryRequest.setUploadStatus(PictureUploadStatusEnum.SUCCESS.getValue());
+        return ResultUtils.success(pictureService.listPictureVOByCursor(pictureQueryRequest));
+    }
+
+    /**
+     * @description: 图片列表缓存统计 (仅限管理员可用)
+     * @author: Mr.Liuxq
+     * @date 2025/5/21 10:30
+     * @return com.grass.picturebackend.common.BaseResponse<com.grass.picturebackend.model.vo.PictureFeedCacheStatsVO>
+     */
+    @GetMapping("/feed/cache/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureFeedCacheStatsVO> getFeedCacheStats() {
+        return ResultUtils.success(pictureFeedCache.getStats());
     }
 
     /**
@@ -200,27 +410,44 @@ public class PictureController {
         if (pictureEditRequest == null || pictureEditRequest.getId() <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        Picture picture = new Picture();
-        BeanUtil.copyProperties(pictureEditRequest, picture);
-        picture.setEditTime(new Date());
-        picture.setTags(JSONUtil.toJsonStr(pictureEditRequest.getTags()));
-        // 校验
-        pictureService.validPicture(picture);
         // 查询登录用户
         User loginUser = userService.getLoginUser(request);
-        // 查询图片是否存在
-        Picture oldPicture = pictureService.getById(pictureEditRequest.getId());
-        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-        // 仅限本人与管理员可以编辑
-        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
-            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
-        }
-        // 更新图片
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureService.editPicture(pictureEditRequest, loginUser);
         return ResultUtils.success(true);
     }
 
+    /**
+     * @description: 按颜色搜索图片 (用户)
+     * @author: Mr.Liuxq
+     * @date 2025/5/19 11:00
+     * @param searchPictureByColorRequest 按颜色搜索请求
+     * @param request 请求
+     * @return com.grass.picturebackend.common.BaseResponse<java.util.List<com.grass.picturebackend.model.vo.PictureVO>>
+     */
+    @PostMapping("/search/color")
+    public BaseResponse<List<PictureVO>> searchPictureByColor(@RequestBody SearchPictureByColorRequest searchPictureByColorRequest,
+                                                              HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureByColorRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.searchPictureByColor(searchPictureByColorRequest, loginUser));
+    }
+
+    /**
+     * @description: 以图搜图 (用户)
+     * @author: Mr.Liuxq
+     * @date 2025/5/20 11:00
+     * @param searchPictureByPictureRequest 以图搜图请求
+     * @param request 请求
+     * @return com.grass.picturebackend.common.BaseResponse<java.util.List<com.grass.picturebackend.model.vo.PictureVO>>
+     */
+    @PostMapping("/search/picture")
+    public BaseResponse<List<PictureVO>> searchPictureByPicture(@RequestBody SearchPictureByPictureRequest searchPictureByPictureRequest,
+                                                                HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.searchPictureByPicture(searchPictureByPictureRequest, loginUser));
+    }
+
     /**
      * @description: 获取图片标签和分类 (用户)
      * @author: Mr.Liuxq
@@ -0,0 +1,339 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import com.grass.picturebackend.config.BatchImportConfig;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.exception.ThrowUtils;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.enums.PictureBatchImportStatusEnum;
+import com.grass.picturebackend.model.vo.PictureBatchImportItemVO;
+import com.grass.picturebackend.model.vo.PictureBatchImportVO;
+import com.grass.picturebackend.utils.SizeLimitedInputStream;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 批量导入管理器
+ * 用 jsoup 解析搜索结果页，图片由有界线程池并行抓取，同一域名限制并发连接数；
+ * Content-Length 超限时不读取响应体直接中断，响应体边读边写入对象存储；内容重复的图片由内容索引识别后跳过，
+ * 每一项的进度都可查询
+ * @date 2025年05月11日 09:35
+ */
+@Component
+@Slf4j
+public class BatchImportManager {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36";
+
+    /**
+     * 任务进度保留时长
+     */
+    private static final long TASK_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Resource
+    private BatchImportConfig batchImportConfig;
+
+    @Resource
+    private FileManager fileManager;
+
+    /**
+     * 导入任务，key 为任务 id
+     */
+    private final TimedCache<String, BatchImportTask> taskCache = CacheUtil.newTimedCache(TASK_TIMEOUT_MILLIS);
+
+    /**
+     * 每个域名的连接许可
+     */
+    private final Map<String, Semaphore> hostPermitMap = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor fetchExecutor;
+
+    @PostConstruct
+    public void init() {
+        int threads = batchImportConfig.getFetchThreads();
+        fetchExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchImportConfig.getMaxCount() * 8),
+                ThreadFactoryBuilder.create().setNamePrefix("batch-import-").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        taskCache.schedulePrune(TimeUnit.MINUTES.toMillis(10));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        taskCache.cancelPruneSchedule();
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交批量导入：同步解析搜索结果页，图片在后台抓取
+     *
+     * @param searchText       搜索词
+     * @param count            导入数量
+     * @param namePrefix       图片名称前缀
+     * @param uploadPathPrefix 上传路径前缀
+     * @param userId           导入用户 id
+     * @param pictureSaver     保存图片，返回图片 id
+     * @return 导入进度
+     */
+    public PictureBatchImportVO submit(String searchText, Integer count, String namePrefix, String uploadPathPrefix,
+                                       Long userId, Function<UploadPictureResult, Long> pictureSaver) {
+        ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "搜索词不能为空");
+        ThrowUtils.throwIf(count == null || count <= 0 || count > batchImportConfig.getMaxCount(),
+                ErrorCode.PARAMS_ERROR, "最多导入 " + batchImportConfig.getMaxCount() + " 条");
+        if (StrUtil.isBlank(namePrefix)) {
+            namePrefix = searchText;
+        }
+        List<String> urlList = searchImageUrls(searchText, count);
+        ThrowUtils.throwIf(urlList.isEmpty(), ErrorCode.OPERATION_ERROR, "未找到图片");
+        BatchImportTask task = new BatchImportTask();
+        task.setTaskId(IdUtil.fastSimpleUUID());
+        task.setUserId(userId);
+        for (int i = 0; i < urlList.size(); i++) {
+            PictureBatchImportItemVO item = new PictureBatchImportItemVO();
+            item.setIndex(i + 1);
+            item.setUrl(urlList.get(i));
+            item.setStatus(PictureBatchImportStatusEnum.PENDING.getValue());
+            task.getItemList().add(item);
+        }
+        task.getRemaining().set(urlList.size());
+        taskCache.put(task.getTaskId(), task);
+        for (PictureBatchImportItemVO item : task.getItemList()) {
+            String picName = namePrefix + item.getIndex();
+            try {
+                fetchExecutor.execute(() -> importItem(task, item, picName, uploadPathPrefix, pictureSaver));
+            } catch (RejectedExecutionException e) {
+                finishItem(task, item, PictureBatchImportStatusEnum.FAILED, null, "系统繁忙");
+            }
+        }
+        return toVO(task);
+    }
+
+    /**
+     * 查询导入进度
+     *
+     * @param taskId 任务 id
+     * @param userId 导入用户 id
+     * @return 导入进度
+     */
+    public PictureBatchImportVO getProgress(String taskId, Long userId) {
+        ThrowUtils.throwIf(StrUtil.isBlank(taskId), ErrorCode.PARAMS_ERROR);
+        BatchImportTask task = taskCache.get(taskId);
+        ThrowUtils.throwIf(task == null, ErrorCode.NOT_FOUND_ERROR, "导入任务不存在或已过期");
+        ThrowUtils.throwIf(!task.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+        return toVO(task);
+    }
+
+    /**
+     * 解析搜索结果页，返回去重后的图片地址
+     */
+    private List<String> searchImageUrls(String searchText, int count) {
+        String searchUrl = String.format(batchImportConfig.getSearchUrl(), URLUtil.encodeAll(searchText));
+        Document document;
+        try {
+            document = Jsoup.connect(searchUrl)
+                    .userAgent(USER_AGENT)
+                    .timeout(batchImportConfig.getReadTimeout())
+                    .get();
+        } catch (IOException e) {
+            log.error("获取搜索页面失败, url = {}", searchUrl, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
+        }
+        Set<String> urlSet = new LinkedHashSet<>();
+        for (Element element : document.select(batchImportConfig.getImageSelector())) {
+            // absUrl 会按页面地址补全相对路径
+            String url = element.absUrl("src");
+            if (StrUtil.isBlank(url)) {
+                url = element.absUrl("data-src");
+            }
+            if (StrUtil.startWithAny(url, "http://", "https://")) {
+                urlSet.add(url);
+            }
+            if (urlSet.size() >= count) {
+                break;
+            }
+        }
+        return new ArrayList<>(urlSet);
+    }
+
+    /**
+     * 抓取并导入单张图片
+     */
+    private void importItem(BatchImportTask task, PictureBatchImportItemVO item, String picName, String uploadPathPrefix,
+                            Function<UploadPictureResult, Long> pictureSaver) {
+        item.setStatus(PictureBatchImportStatusEnum.FETCHING.getValue());
+        try {
+            UploadPictureResult uploadPictureResult = fetchAndUpload(item.getUrl(), picName, uploadPathPrefix);
+            // 本批内重复或图库中已存在相同内容的图片，由内容索引去重，复用已有对象时跳过
+            if (uploadPictureResult.isReused()) {
+                finishItem(task, item, PictureBatchImportStatusEnum.DUPLICATE, null, null);
+                return;
+            }
+            Long pictureId = pictureSaver.apply(uploadPictureResult);
+            finishItem(task, item, PictureBatchImportStatusEnum.SUCCESS, pictureId, null);
+        } catch (BusinessException e) {
+            finishItem(task, item, PictureBatchImportStatusEnum.FAILED, null, e.getMessage());
+        } catch (Exception e) {
+            log.error("batch import item error, url = {}", item.getUrl(), e);
+            finishItem(task, item, PictureBatchImportStatusEnum.FAILED, null, "导入失败");
+        }
+    }
+
+    /**
+     * 下载图片并上传：同一域名限制并发，Content-Length 超限时不读取响应体；
+     * 声明了长度时响应体直接流向对象存储，未声明长度时先写入临时文件，读到上限即中断
+     */
+    private UploadPictureResult fetchAndUpload(String url, String picName, String uploadPathPrefix)
+            throws IOException, InterruptedException {
+        URL target = new URL(url);
+        Semaphore semaphore = hostPermitMap.computeIfAbsent(target.getHost(),
+                host -> new Semaphore(batchImportConfig.getPerHostConnections()));
+        if (!semaphore.tryAcquire(batchImportConfig.getReadTimeout(), TimeUnit.MILLISECONDS)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "等待连接超时");
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) target.openConnection();
+            connection.setConnectTimeout(batchImportConfig.getConnectTimeout());
+            connection.setReadTimeout(batchImportConfig.getReadTimeout());
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            int responseCode = connection.getResponseCode();
+            ThrowUtils.throwIf(responseCode != HttpURLConnection.HTTP_OK, ErrorCode.OPERATION_ERROR, "下载失败：HTTP " + responseCode);
+            long contentLength = connection.getContentLengthLong();
+            ThrowUtils.throwIf(contentLength > FileManager.MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+            String contentType = connection.getContentType();
+            contentType = StrUtil.startWith(contentType, "image/") ? contentType : null;
+            try (InputStream inputStream = connection.getInputStream()) {
+                if (contentLength >= 0) {
+                    return fileManager.uploadPictureStream(inputStream, contentLength, contentType, picName, uploadPathPrefix);
+                }
+                return uploadWithoutLength(inputStream, contentType, picName, uploadPathPrefix);
+            }
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            semaphore.release();
+        }
+    }
+
+    /**
+     * 未声明长度的响应：对象存储需要提前知道长度，先限长写入临时文件再上传
+     */
+    private UploadPictureResult uploadWithoutLength(InputStream inputStream, String contentType, String picName,
+                                                    String uploadPathPrefix) throws IOException {
+        Path tempFile = Files.createTempFile("batch-import-", ".tmp");
+        try {
+            SizeLimitedInputStream limitedInputStream = new SizeLimitedInputStream(inputStream, FileManager.MAX_PICTURE_SIZE);
+            try {
+                Files.copy(limitedInputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                if (limitedInputStream.isExceeded()) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+                }
+                throw e;
+            }
+            try (InputStream fileInputStream = Files.newInputStream(tempFile)) {
+                return fileManager.uploadPictureStream(fileInputStream, Files.size(tempFile), contentType, picName, uploadPathPrefix);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void finishItem(BatchImportTask task, PictureBatchImportItemVO item, PictureBatchImportStatusEnum status,
+                            Long pictureId, String message) {
+        // 状态最后写入，读到终态时图片 id 与原因一定可见
+        item.setPictureId(pictureId);
+        item.setMessage(message);
+        item.setStatus(status.getValue());
+        task.getRemaining().decrementAndGet();
+    }
+
+    private PictureBatchImportVO toVO(BatchImportTask task) {
+        PictureBatchImportVO pictureBatchImportVO = new PictureBatchImportVO();
+        pictureBatchImportVO.setTaskId(task.getTaskId());
+        pictureBatchImportVO.setTotal(task.getItemList().size());
+        // 先读剩余数量再复制各项：返回“已完成”时各项一定都已是终态
+        boolean finished = task.getRemaining().get() <= 0;
+        int successCount = 0;
+        int duplicateCount = 0;
+        int failedCount = 0;
+        List<PictureBatchImportItemVO> itemList = new ArrayList<>();
+        for (PictureBatchImportItemVO item : task.getItemList()) {
+            PictureBatchImportItemVO copy = new PictureBatchImportItemVO();
+            copy.setIndex(item.getIndex());
+            copy.setUrl(item.getUrl());
+            copy.setPictureId(item.getPictureId());
+            copy.setMessage(item.getMessage());
+            copy.setStatus(item.getStatus());
+            PictureBatchImportStatusEnum status = PictureBatchImportStatusEnum.getEnumByValue(copy.getStatus());
+            if (status == PictureBatchImportStatusEnum.SUCCESS) {
+                successCount++;
+            } else if (status == PictureBatchImportStatusEnum.DUPLICATE) {
+                duplicateCount++;
+            } else if (status == PictureBatchImportStatusEnum.FAILED) {
+                failedCount++;
+            }
+            itemList.add(copy);
+        }
+        pictureBatchImportVO.setSuccessCount(successCount);
+        pictureBatchImportVO.setDuplicateCount(duplicateCount);
+        pictureBatchImportVO.setFailedCount(failedCount);
+        pictureBatchImportVO.setFinished(finished);
+        pictureBatchImportVO.setItemList(itemList);
+        return pictureBatchImportVO;
+    }
+
+    /**
+     * 导入任务
+     */
+    @Data
+    private static class BatchImportTask {
+
+        private String taskId;
+
+        private Long userId;
+
+        private final List<PictureBatchImportItemVO> itemList = new ArrayList<>();
+
+        /**
+         * 未处理完的数量
+         */
+        private final AtomicInteger remaining = new AtomicInteger();
+    }
+}
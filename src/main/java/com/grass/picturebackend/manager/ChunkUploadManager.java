@@ -0,0 +1,383 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.exception.ThrowUtils;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.vo.PictureChunkUploadVO;
+import com.grass.picturebackend.utils.ImageHeaderParser;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 分块上传（断点续传）管理器
+ * 客户端按块上传到本服务，本服务把分块提交到有界线程池并行上传到对象存储，请求线程不等待上传返回；
+ * 会话状态保存在内存中，连接中断后客户端查询进度，只需重传缺失的分块
+ * @date 2025年05月07日 10:35
+ */
+@Component
+@Slf4j
+public class ChunkUploadManager {
+
+    /**
+     * 分块大小（COS 要求除最后一块外每块不小于 1 MB）
+     */
+    private static final long CHUNK_SIZE = 5 * 1024 * 1024L;
+
+    /**
+     * 分块上传允许的最大文件大小
+     */
+    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024L;
+
+    /**
+     * 会话空闲多久后过期（过期时会取消对象存储中的分块上传，避免残留分块）
+     */
+    private static final long SESSION_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * 首块中用于解析图片头信息的字节数
+     */
+    private static final int HEADER_SIZE = 256 * 1024;
+
+    /**
+     * 完成上传时等待单个分块的最长时间
+     */
+    private static final long PART_WAIT_SECONDS = 60;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private FileManager fileManager;
+
+    @Resource
+    private PictureDerivativeManager pictureDerivativeManager;
+
+    @Resource
+    private PictureFeatureManager pictureFeatureManager;
+
+    /**
+     * 分块上传会话，key 为分块上传 id
+     */
+    private final TimedCache<String, ChunkUploadSession> sessionCache = CacheUtil.newTimedCache(SESSION_TIMEOUT_MILLIS);
+
+    /**
+     * 分块上传线程池：有界队列，满了直接拒绝，客户端稍后重传该分块（请求线程不会替线程池上传）；
+     * 内存中最多 (8 + 16) 个分块的内容
+     */
+    private final ThreadPoolExecutor partUploadExecutor = new ThreadPoolExecutor(
+            4, 8, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(16),
+            ThreadFactoryBuilder.create().setNamePrefix("chunk-upload-").build(),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    public ChunkUploadManager() {
+        // 过期的会话需要取消对象存储中的分块上传
+        sessionCache.setListener((uploadId, session) -> {
+            if (!session.isFinished()) {
+                log.info("chunk upload session expired, uploadId = {}", uploadId);
+                abortQuietly(session);
+            }
+        });
+        sessionCache.schedulePrune(TimeUnit.MINUTES.toMillis(10));
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param originalFilename 原始文件名
+     * @param fileSize         文件总大小
+     * @param uploadPathPrefix 上传路径前缀
+     * @param userId           上传用户 id
+     * @return 上传进度
+     */
+    public PictureChunkUploadVO init(String originalFilename, Long fileSize, String uploadPathPrefix, Long userId) {
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件大小错误");
+        ThrowUtils.throwIf(fileSize > MAX_FILE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 100M");
+        fileManager.validPictureSuffix(originalFilename);
+        String uploadPath = fileManager.generateUploadPath(uploadPathPrefix, originalFilename);
+        String uploadId = objectStorage.initiateMultipartUpload(uploadPath);
+        ChunkUploadSession session = new ChunkUploadSession();
+        session.setUploadId(uploadId);
+        session.setKey(uploadPath);
+        session.setUserId(userId);
+        session.setOriginalFilename(originalFilename);
+        session.setFileSize(fileSize);
+        session.setTotalParts((int) ((fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE));
+        sessionCache.put(uploadId, session);
+        return toVO(session);
+    }
+
+    /**
+     * 上传第 N 块：校验后提交到线程池上传到对象存储，不等待上传完成
+     *
+     * @param uploadId      分块上传 id
+     * @param partNumber    分块编号
+     * @param multipartFile 分块内容
+     * @param userId        上传用户 id
+     * @return 上传进度
+     */
+    public PictureChunkUploadVO uploadPart(String uploadId, Integer partNumber, MultipartFile multipartFile, Long userId) {
+        ChunkUploadSession session = getSession(uploadId, userId);
+        ThrowUtils.throwIf(partNumber == null || partNumber < 1 || partNumber > session.getTotalParts(),
+                ErrorCode.PARAMS_ERROR, "分块编号错误");
+        ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "分块内容不能为空");
+        ThrowUtils.throwIf(multipartFile.getSize() != session.expectedPartSize(partNumber), ErrorCode.PARAMS_ERROR, "分块大小错误");
+        // 已上传或正在上传的分块直接返回，客户端重试是幂等的
+        if (session.getPartETagMap().containsKey(partNumber) || session.getUploadingMap().containsKey(partNumber)) {
+            return toVO(session);
+        }
+        byte[] bytes;
+        try {
+            bytes = multipartFile.getBytes();
+        } catch (IOException e) {
+            log.error("read chunk error, uploadId = {}, partNumber = {}", uploadId, partNumber, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取分块失败");
+        }
+        if (partNumber == 1) {
+            // 首块到达时即校验真实格式，避免传完整个文件才发现不是图片
+            byte[] header = Arrays.copyOf(bytes, Math.min(bytes.length, HEADER_SIZE));
+            session.setImageHeader(fileManager.readImageHeader(new ByteArrayResource(header), session.getOriginalFilename()));
+        }
+        // 先登记再提交：任务可能在登记前就执行完，执行完要能正确移除登记
+        FutureTask<Void> task;
+        synchronized (session) {
+            // 正在合并或已取消的会话不再接收分块
+            ThrowUtils.throwIf(session.isFinished(), ErrorCode.OPERATION_ERROR, "上传任务已完成或正在合并");
+            if (session.getPartETagMap().containsKey(partNumber) || session.getUploadingMap().containsKey(partNumber)) {
+                return toVO(session);
+            }
+            task = new FutureTask<>(() -> {
+                try {
+                    String partETag = objectStorage.uploadPart(session.getKey(), uploadId, partNumber, bytes);
+                    session.getPartETagMap().put(partNumber, partETag);
+                } catch (Exception e) {
+                    // 失败的分块回到缺失列表，由客户端重传
+                    log.error("upload chunk error, uploadId = {}, partNumber = {}", uploadId, partNumber, e);
+                } finally {
+                    session.getUploadingMap().remove(partNumber);
+                }
+            }, null);
+            session.getUploadingMap().put(partNumber, task);
+        }
+        try {
+            partUploadExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 分块回到缺失列表，客户端重传即可
+            session.getUploadingMap().remove(partNumber, task);
+            log.warn("chunk upload executor busy, uploadId = {}, partNumber = {}", uploadId, partNumber);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传繁忙，请稍后重试");
+        }
+        return toVO(session);
+    }
+
+    /**
+     * 查询上传进度
+     *
+     * @param uploadId 分块上传 id
+     * @param userId   上传用户 id
+     * @return 上传进度
+     */
+    public PictureChunkUploadVO getProgress(String uploadId, Long userId) {
+        return toVO(getSession(uploadId, userId));
+    }
+
+    /**
+     * 完成分块上传：等待进行中的分块，全部到齐后合并
+     *
+     * @param uploadId 分块上传 id
+     * @param userId   上传用户 id
+     * @return 上传结果
+     */
+    public UploadPictureResult complete(String uploadId, Long userId) {
+        ChunkUploadSession session = getSession(uploadId, userId);
+        List<Future<?>> uploadingList;
+        synchronized (session) {
+            ThrowUtils.throwIf(session.isFinished(), ErrorCode.OPERATION_ERROR, "上传任务已完成或正在合并");
+            // 标记后不再接收新的分块，下面等待的就是全部进行中的分块
+            session.setFinished(true);
+            uploadingList = new ArrayList<>(session.getUploadingMap().values());
+        }
+        boolean completed = false;
+        try {
+            for (Future<?> future : uploadingList) {
+                try {
+                    future.get(PART_WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "分块仍在上传中，请稍后重试");
+                } catch (Exception e) {
+                    // 分块失败会体现在缺失列表中
+                    log.warn("wait chunk upload error, uploadId = {}", uploadId, e);
+                }
+            }
+            ThrowUtils.throwIf(session.getPartETagMap().size() != session.getTotalParts(), ErrorCode.PARAMS_ERROR, "存在未上传的分块");
+            ThrowUtils.throwIf(session.getImageHeader() == null, ErrorCode.PARAMS_ERROR, "无法识别的图片文件");
+            try {
+                objectStorage.completeMultipartUpload(session.getKey(), uploadId, session.getPartETagMap());
+            } catch (Exception e) {
+                log.error("complete multipart upload error, uploadId = {}", uploadId, e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                // 合并失败时恢复，客户端补传缺失的分块后可以再次完成
+                session.setFinished(false);
+            }
+        }
+        sessionCache.remove(uploadId);
+        // 封装返回结果
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setPicName(FileUtil.mainName(session.getOriginalFilename()));
+        uploadPictureResult.setPicSize(session.getFileSize());
+        uploadPictureResult.setUrl(fileManager.getObjectUrl(session.getKey()));
+        fileManager.fillImageInfo(uploadPictureResult, session.getImageHeader());
+        // 合并后的对象从存储读取，解码时降采样，大图不会整张展开到内存
+        pictureDerivativeManager.fillDerivatives(uploadPictureResult,
+                () -> objectStorage.getObject(session.getKey()).getContent(), session.getKey());
+        pictureFeatureManager.fillFeatures(uploadPictureResult, () -> objectStorage.getObject(session.getKey()).getContent());
+        return uploadPictureResult;
+    }
+
+    /**
+     * 取消分块上传
+     *
+     * @param uploadId 分块上传 id
+     * @param userId   上传用户 id
+     */
+    public void abort(String uploadId, Long userId) {
+        ChunkUploadSession session = getSession(uploadId, userId);
+        session.setFinished(true);
+        sessionCache.remove(uploadId);
+        abortQuietly(session);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sessionCache.cancelPruneSchedule();
+        partUploadExecutor.shutdown();
+    }
+
+    /**
+     * 获取会话，并校验是否为本人的上传
+     */
+    private ChunkUploadSession getSession(String uploadId, Long userId) {
+        ThrowUtils.throwIf(uploadId == null, ErrorCode.PARAMS_ERROR);
+        ChunkUploadSession session = sessionCache.get(uploadId);
+        ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "上传任务不存在或已过期");
+        ThrowUtils.throwIf(!session.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+        return session;
+    }
+
+    /**
+     * 取消分块上传，失败只记录日志
+     */
+    private void abortQuietly(ChunkUploadSession session) {
+        session.getUploadingMap().values().forEach(future -> future.cancel(true));
+        try {
+            objectStorage.abortMultipartUpload(session.getKey(), session.getUploadId());
+        } catch (Exception e) {
+            log.error("abort multipart upload error, uploadId = {}", session.getUploadId(), e);
+        }
+    }
+
+    private PictureChunkUploadVO toVO(ChunkUploadSession session) {
+        PictureChunkUploadVO pictureChunkUploadVO = new PictureChunkUploadVO();
+        pictureChunkUploadVO.setUploadId(session.getUploadId());
+        pictureChunkUploadVO.setChunkSize(CHUNK_SIZE);
+        pictureChunkUploadVO.setTotalParts(session.getTotalParts());
+        List<Integer> uploadedPartList = new ArrayList<>();
+        List<Integer> uploadingPartList = new ArrayList<>();
+        List<Integer> missingPartList = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= session.getTotalParts(); partNumber++) {
+            if (session.getPartETagMap().containsKey(partNumber)) {
+                uploadedPartList.add(partNumber);
+            } else if (session.getUploadingMap().containsKey(partNumber)) {
+                uploadingPartList.add(partNumber);
+            } else {
+                missingPartList.add(partNumber);
+            }
+        }
+        pictureChunkUploadVO.setUploadedPartList(uploadedPartList);
+        pictureChunkUploadVO.setUploadingPartList(uploadingPartList);
+        pictureChunkUploadVO.setMissingPartList(missingPartList);
+        return pictureChunkUploadVO;
+    }
+
+    /**
+     * 分块上传会话
+     */
+    @Data
+    private static class ChunkUploadSession {
+
+        private String uploadId;
+
+        /**
+         * 对象存储中的 key
+         */
+        private String key;
+
+        private Long userId;
+
+        private String originalFilename;
+
+        private Long fileSize;
+
+        private Integer totalParts;
+
+        /**
+         * 首块中解析出的图片头信息
+         */
+        private volatile ImageHeaderParser.ImageHeader imageHeader;
+
+        /**
+         * 是否已完成或取消（过期回调据此判断是否需要清理残留分块）
+         */
+        private volatile boolean finished;
+
+        /**
+         * 已上传成功的分块
+         */
+        private final Map<Integer, String> partETagMap = new ConcurrentHashMap<>();
+
+        /**
+         * 正在上传的分块
+         */
+        private final Map<Integer, Future<?>> uploadingMap = new ConcurrentHashMap<>();
+
+        /**
+         * 第 N 块应有的大小
+         */
+        long expectedPartSize(int partNumber) {
+            if (partNumber < totalParts) {
+                return CHUNK_SIZE;
+            }
+            return fileSize - CHUNK_SIZE * (totalParts - 1);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.grass.picturebackend.manager;
+
+import com.grass.picturebackend.mapper.PictureContentMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片内容哈希布隆过滤器
+ * 判断"内容是否已存在"时先查这里，返回不存在则一定是新内容，可以跳过数据库查询
+ * 内容哈希本身就是 SHA-256，直接取其中两段作为双重哈希的种子，无需再次计算哈希
+ * @date 2025年05月09日 10:45
+ */
+@Component
+@Slf4j
+public class ContentHashBloomFilter {
+
+    /**
+     * 位数组大小（2^24 位 = 2 MB，约 170 万条内容时误判率 1%）
+     */
+    private static final long BIT_SIZE = 1L << 24;
+
+    /**
+     * 哈希函数个数
+     */
+    private static final int HASH_COUNT = 7;
+
+    @Resource
+    private PictureContentMapper pictureContentMapper;
+
+    private final AtomicLongArray bits = new AtomicLongArray((int) (BIT_SIZE >>> 6));
+
+    /**
+     * 是否已完成预热，未预热完成前一律认为"可能存在"，交给数据库判断
+     */
+    private volatile boolean ready;
+
+    /**
+     * 启动时流式加载已有内容哈希
+     */
+    @PostConstruct
+    public void init() {
+        AtomicLong count = new AtomicLong();
+        try {
+            pictureContentMapper.streamAllContentHash(context -> {
+                put(context.getResultObject());
+                count.incrementAndGet();
+            });
+            ready = true;
+            log.info("content hash bloom filter loaded, count = {}", count.get());
+        } catch (Exception e) {
+            log.error("content hash bloom filter load error, fallback to database lookup", e);
+        }
+    }
+
+    /**
+     * 记录内容哈希
+     *
+     * @param contentHash 内容哈希（SHA-256 十六进制）
+     */
+    public void put(String contentHash) {
+        long h1 = seed(contentHash, 0);
+        long h2 = seed(contentHash, 16);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bitIndex = Math.floorMod(h1 + i * h2, BIT_SIZE);
+            int wordIndex = (int) (bitIndex >>> 6);
+            long mask = 1L << (bitIndex & 63);
+            long word;
+            do {
+                word = bits.get(wordIndex);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(wordIndex, word, word | mask));
+        }
+    }
+
+    /**
+     * 内容是否可能已存在
+     *
+     * @param contentHash 内容哈希（SHA-256 十六进制）
+     * @return false 表示一定不存在
+     */
+    public boolean mightContain(String contentHash) {
+        if (!ready) {
+            return true;
+        }
+        long h1 = seed(contentHash, 0);
+        long h2 = seed(contentHash, 16);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bitIndex = Math.floorMod(h1 + i * h2, BIT_SIZE);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << (bitIndex & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long seed(String contentHash, int offset) {
+        return Long.parseUnsignedLong(contentHash.substring(offset, offset + 16), 16);
+    }
+}
@@ -1,22 +1,55 @@
 package com.grass.picturebackend.manager;
 
-import cn.hutool.core.io.FileUtil;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObject;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import com.grass.picturebackend.manager.storage.StorageObjectSummary;
 import com.qcloud.cos.COSClient;
+import com.qcloud.cos.Headers;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.http.HttpMethodName;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
 import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.GeneratePresignedUrlRequest;
 import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.PicOperations;
+import com.qcloud.cos.model.UploadPartRequest;
 import com.grass.picturebackend.config.CosClientConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+/**
+ * 腾讯云对象存储实现
+ */
 @Component
-public class CosManager {
+@ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "cos", matchIfMissing = true)
+public class CosManager implements ObjectStorage {
+
+    /**
+     * 单次批量删除的最大数量（COS 限制）
+     */
+    private static final int MAX_DELETE_KEYS = 1000;
 
     @Resource
     private CosClientConfig cosClientConfig;
@@ -36,53 +69,61 @@ public class CosManager {
         return cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 上传对象（流式，不落盘）
+     *
+     * @param key         唯一键
+     * @param inputStream 输入流
+     * @param metadata    元信息（必须包含 contentLength，否则 SDK 会把整个流缓存在内存中）
+     */
+    @Override
+    public void putObject(String key, InputStream inputStream, StorageObjectMetadata metadata) {
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, toObjectMetadata(metadata));
+        cosClient.putObject(putObjectRequest);
+    }
+
     /**
      * 下载对象
      *
      * @param key 唯一键
      */
-    public COSObject getObject(String key) {
+    @Override
+    public StorageObject getObject(String key) {
         GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
-        return cosClient.getObject(getObjectRequest);
+        return toStorageObject(key, cosClient.getObject(getObjectRequest));
     }
 
     /**
-     * 上传对象（附带图片信息）
+     * 下载对象的一部分
      *
-     * @param key  唯一键
-     * @param file 文件
+     * @param key   唯一键
+     * @param start 起始字节（包含）
+     * @param end   结束字节（包含）
      */
-    public PutObjectResult putPictureObject(String key, File file) {
-        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
-                file);
-        // 对图片进行处理（获取基本信息也被视作为一种图片的处理）
-        PicOperations picOperations = new PicOperations();
-        // 1 表示返回原图信息
-        picOperations.setIsPicInfo(1);
-        // 图片处理规则列表
-        List<PicOperations.Rule> rules = new ArrayList<>();
-        // 1. 图片压缩（转成 webp 格式）
-        String webpKey = FileUtil.mainName(key) + ".webp";
-        PicOperations.Rule compressRule = new PicOperations.Rule();
-        compressRule.setFileId(webpKey);
-        compressRule.setBucket(cosClientConfig.getBucket());
-        compressRule.setRule("imageMogr2/format/webp");
-        rules.add(compressRule);
-        // 2. 缩略图处理，仅对 > 20 KB 的图片生成缩略图
-        if (file.length() > 2 * 1024) {
-            PicOperations.Rule thumbnailRule = new PicOperations.Rule();
-            // 拼接缩略图的路径
-            String thumbnailKey = FileUtil.mainName(key) + "_thumbnail." + FileUtil.getSuffix(key);
-            thumbnailRule.setFileId(thumbnailKey);
-            thumbnailRule.setBucket(cosClientConfig.getBucket());
-            // 缩放规则 /thumbnail/<Width>x<Height>>（如果大于原图宽高，则不处理）
-            thumbnailRule.setRule(String.format("imageMogr2/thumbnail/%sx%s>", 256, 256));
-            rules.add(thumbnailRule);
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
+        getObjectRequest.setRange(start, end);
+        return toStorageObject(key, cosClient.getObject(getObjectRequest));
+    }
+
+    /**
+     * 查询对象元信息
+     *
+     * @param key 唯一键
+     * @return 元信息，对象不存在时返回 null
+     */
+    @Override
+    public StorageObjectMetadata headObject(String key) {
+        try {
+            return toStorageObjectMetadata(cosClient.getObjectMetadata(cosClientConfig.getBucket(), key));
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
         }
-        // 构造处理参数
-        picOperations.setRules(rules);
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
     }
 
     /**
@@ -90,7 +131,187 @@ public class CosManager {
      *
      * @param key 唯一键
      */
+    @Override
     public void deleteObject(String key) {
         cosClient.deleteObject(cosClientConfig.getBucket(), key);
     }
+
+    /**
+     * 复制对象（服务端复制，不经过本服务）
+     *
+     * @param sourceKey 源对象键
+     * @param targetKey 目标对象键
+     */
+    @Override
+    public void copyObject(String sourceKey, String targetKey) {
+        cosClient.copyObject(cosClientConfig.getBucket(), sourceKey, cosClientConfig.getBucket(), targetKey);
+    }
+
+    /**
+     * 批量删除对象（每 1000 个一批）
+     *
+     * @param keys 唯一键列表
+     * @return 删除失败的键
+     */
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        List<String> failedKeys = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_DELETE_KEYS) {
+            List<String> batch = keys.subList(from, Math.min(keys.size(), from + MAX_DELETE_KEYS));
+            DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+            deleteObjectsRequest.setKeys(batch.stream()
+                    .map(DeleteObjectsRequest.KeyVersion::new)
+                    .collect(Collectors.toList()));
+            // 只返回删除失败的对象
+            deleteObjectsRequest.setQuiet(true);
+            try {
+                cosClient.deleteObjects(deleteObjectsRequest);
+            } catch (MultiObjectDeleteException e) {
+                e.getErrors().forEach(deleteError -> failedKeys.add(deleteError.getKey()));
+            }
+        }
+        return failedKeys;
+    }
+
+    /**
+     * 列出对象
+     *
+     * @param prefix  键前缀
+     * @param maxKeys 最多返回条数
+     * @return 对象摘要列表
+     */
+    @Override
+    public List<StorageObjectSummary> listObjects(String prefix, int maxKeys) {
+        List<StorageObjectSummary> summaryList = new ArrayList<>();
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(cosClientConfig.getBucket());
+        listObjectsRequest.setPrefix(prefix);
+        ObjectListing objectListing;
+        do {
+            listObjectsRequest.setMaxKeys(Math.min(MAX_DELETE_KEYS, maxKeys - summaryList.size()));
+            objectListing = cosClient.listObjects(listObjectsRequest);
+            for (COSObjectSummary cosObjectSummary : objectListing.getObjectSummaries()) {
+                StorageObjectSummary summary = new StorageObjectSummary();
+                summary.setKey(cosObjectSummary.getKey());
+                summary.setSize(cosObjectSummary.getSize());
+                summary.setLastModified(cosObjectSummary.getLastModified());
+                summaryList.add(summary);
+            }
+            listObjectsRequest.setMarker(objectListing.getNextMarker());
+        } while (objectListing.isTruncated() && summaryList.size() < maxKeys);
+        return summaryList;
+    }
+
+    /**
+     * 获取对象的访问地址
+     *
+     * @param key 唯一键
+     * @return 访问地址
+     */
+    @Override
+    public String getObjectUrl(String key) {
+        return cosClientConfig.getHost() + "/" + key;
+    }
+
+    /**
+     * 生成预签名上传地址
+     *
+     * @param key           唯一键
+     * @param expiration    过期时间
+     * @param contentLength 文件大小
+     * @return 上传地址
+     */
+    @Override
+    public String generatePresignedPutUrl(String key, Date expiration, long contentLength) {
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(cosClientConfig.getBucket(), key, HttpMethodName.PUT);
+        request.setExpiration(expiration);
+        // Content-Length 参与签名，客户端只能上传申请时声明大小的文件
+        request.putCustomRequestHeader(Headers.CONTENT_LENGTH, String.valueOf(contentLength));
+        return cosClient.generatePresignedUrl(request).toString();
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return COS 分块上传 id
+     */
+    @Override
+    public String initiateMultipartUpload(String key) {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key);
+        return cosClient.initiateMultipartUpload(request).getUploadId();
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param key        唯一键
+     * @param uploadId   分块上传 id
+     * @param partNumber 分块编号（从 1 开始）
+     * @param bytes      分块内容
+     * @return 分块 ETag
+     */
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] bytes) {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(cosClientConfig.getBucket());
+        request.setKey(key);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setPartSize(bytes.length);
+        request.setInputStream(new ByteArrayInputStream(bytes));
+        return cosClient.uploadPart(request).getPartETag().getETag();
+    }
+
+    /**
+     * 完成分块上传
+     *
+     * @param key         唯一键
+     * @param uploadId    分块上传 id
+     * @param partETagMap 全部分块的 ETag，key 为分块编号
+     */
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, Map<Integer, String> partETagMap) {
+        List<PartETag> partETags = partETagMap.entrySet().stream()
+                .map(entry -> new PartETag(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingInt(PartETag::getPartNumber))
+                .collect(Collectors.toList());
+        CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(cosClientConfig.getBucket(), key,
+                uploadId, partETags);
+        cosClient.completeMultipartUpload(request);
+    }
+
+    /**
+     * 取消分块上传，清理已上传的分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     */
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key, uploadId));
+    }
+
+    private ObjectMetadata toObjectMetadata(StorageObjectMetadata metadata) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(metadata.getContentLength());
+        if (metadata.getContentType() != null) {
+            objectMetadata.setContentType(metadata.getContentType());
+        }
+        return objectMetadata;
+    }
+
+    private StorageObjectMetadata toStorageObjectMetadata(ObjectMetadata objectMetadata) {
+        StorageObjectMetadata metadata = new StorageObjectMetadata();
+        metadata.setContentLength(objectMetadata.getContentLength());
+        metadata.setInstanceLength(objectMetadata.getInstanceLength());
+        metadata.setContentType(objectMetadata.getContentType());
+        metadata.setETag(objectMetadata.getETag());
+        metadata.setLastModified(objectMetadata.getLastModified());
+        return metadata;
+    }
+
+    private StorageObject toStorageObject(String key, COSObject cosObject) {
+        return new StorageObject(key, toStorageObjectMetadata(cosObject.getObjectMetadata()), cosObject.getObjectContent());
+    }
 }
@@ -0,0 +1,250 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.exception.ThrowUtils;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import com.grass.picturebackend.manager.storage.StorageObjectSummary;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.vo.PictureUploadTicketVO;
+import com.grass.picturebackend.utils.ImageHeaderParser;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 直传管理器
+ * 本服务只签发预签名上传地址（对象键由服务端生成，大小参与签名），文件由客户端直接上传到暂存目录；
+ * 完成时先把暂存对象复制到服务端持有的正式键并删除暂存对象，再对正式对象 HEAD 校验大小、按范围读取文件头校验真实格式，
+ * 校验通过后才落库。预签名地址在完成后仍然有效，客户端再次上传只会写到暂存目录，不会覆盖已校验的对象；
+ * 暂存目录由定时任务按修改时间清理，进程重启丢失的凭证对应的对象同样会被清理
+ * @date 2025年05月17日 10:10
+ */
+@Component
+@Slf4j
+public class DirectUploadManager {
+
+    /**
+     * 预签名上传地址的有效期
+     */
+    private static final int PRESIGN_EXPIRE_SECONDS = 600;
+
+    /**
+     * 凭证有效期，暂存目录中超过该时长的对象会被清理
+     */
+    private static final long TICKET_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * 暂存目录（其后按小时分目录，列举时旧对象排在前面）
+     */
+    private static final String STAGING_PREFIX = "upload-staging/";
+
+    /**
+     * 每次列举暂存对象的数量
+     */
+    private static final int SWEEP_BATCH_SIZE = 1000;
+
+    /**
+     * 校验格式时读取的文件头字节数
+     */
+    private static final int HEADER_SIZE = 256 * 1024;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private FileManager fileManager;
+
+    @Resource
+    private PictureDerivativeManager pictureDerivativeManager;
+
+    @Resource
+    private PictureFeatureManager pictureFeatureManager;
+
+    /**
+     * 上传凭证，key 为凭证 id
+     */
+    private final TimedCache<String, UploadTicket> ticketCache = CacheUtil.newTimedCache(TICKET_TIMEOUT_MILLIS);
+
+    public DirectUploadManager() {
+        ticketCache.schedulePrune(TimeUnit.MINUTES.toMillis(5));
+    }
+
+    /**
+     * 签发上传凭证
+     *
+     * @param originalFilename 原始文件名
+     * @param fileSize         文件大小
+     * @param uploadPathPrefix 上传路径前缀
+     * @param userId           上传用户 id
+     * @return 上传凭证
+     */
+    public PictureUploadTicketVO createTicket(String originalFilename, Long fileSize, String uploadPathPrefix, Long userId) {
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件大小错误");
+        fileManager.validPicture(fileSize, originalFilename);
+        String uploadPath = fileManager.generateUploadPath(uploadPathPrefix, originalFilename);
+        String stagingKey = STAGING_PREFIX + DateUtil.format(new Date(), "yyyyMMddHH") + "/" + uploadPath;
+        Date expireTime = DateUtil.offsetSecond(new Date(), PRESIGN_EXPIRE_SECONDS);
+        String uploadUrl = objectStorage.generatePresignedPutUrl(stagingKey, expireTime, fileSize);
+        UploadTicket ticket = new UploadTicket();
+        ticket.setTicketId(IdUtil.fastSimpleUUID());
+        ticket.setStagingKey(stagingKey);
+        ticket.setKey(uploadPath);
+        ticket.setUserId(userId);
+        ticket.setOriginalFilename(originalFilename);
+        ticket.setFileSize(fileSize);
+        ticketCache.put(ticket.getTicketId(), ticket);
+        PictureUploadTicketVO pictureUploadTicketVO = new PictureUploadTicketVO();
+        pictureUploadTicketVO.setTicketId(ticket.getTicketId());
+        pictureUploadTicketVO.setUploadUrl(uploadUrl);
+        pictureUploadTicketVO.setMethod("PUT");
+        pictureUploadTicketVO.setExpireTime(expireTime);
+        return pictureUploadTicketVO;
+    }
+
+    /**
+     * 完成直传：校验对象大小与真实格式
+     *
+     * @param ticketId 凭证 id
+     * @param userId   上传用户 id
+     * @return 上传结果（不含衍生图）
+     */
+    public UploadPictureResult complete(String ticketId, Long userId) {
+        ThrowUtils.throwIf(ticketId == null, ErrorCode.PARAMS_ERROR);
+        UploadTicket ticket = ticketCache.get(ticketId, false);
+        ThrowUtils.throwIf(ticket == null, ErrorCode.NOT_FOUND_ERROR, "上传凭证不存在或已过期");
+        ThrowUtils.throwIf(!ticket.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+        synchronized (ticket) {
+            ThrowUtils.throwIf(ticket.isFinished(), ErrorCode.OPERATION_ERROR, "请勿重复提交");
+            String stagingKey = ticket.getStagingKey();
+            StorageObjectMetadata stagingMetadata = objectStorage.headObject(stagingKey);
+            ThrowUtils.throwIf(stagingMetadata == null, ErrorCode.PARAMS_ERROR, "文件尚未上传");
+            // 复制失败时凭证仍然有效，可以重试
+            String key = ticket.getKey();
+            objectStorage.copyObject(stagingKey, key);
+            // 凭证作废，之后只校验复制出的正式对象，客户端无法再改动
+            ticket.setFinished(true);
+            ticketCache.remove(ticketId);
+            deleteQuietly(stagingKey);
+            ImageHeaderParser.ImageHeader imageHeader;
+            try {
+                StorageObjectMetadata metadata = objectStorage.headObject(key);
+                ThrowUtils.throwIf(metadata == null, ErrorCode.PARAMS_ERROR, "文件尚未上传");
+                long size = metadata.getInstanceLength();
+                ThrowUtils.throwIf(size != ticket.getFileSize(), ErrorCode.PARAMS_ERROR, "文件大小与申请时不一致");
+                fileManager.validPicture(size, ticket.getOriginalFilename());
+                // 只读取文件头，不下载整个对象
+                long headerEnd = Math.min(size, HEADER_SIZE) - 1;
+                imageHeader = fileManager.readImageHeader(() -> objectStorage.getObject(key, 0, headerEnd).getContent(),
+                        ticket.getOriginalFilename());
+            } catch (BusinessException e) {
+                // 不合法的对象直接删除
+                deleteQuietly(key);
+                throw e;
+            }
+            UploadPictureResult uploadPictureResult = new UploadPictureResult();
+            uploadPictureResult.setPicName(FileUtil.mainName(ticket.getOriginalFilename()));
+            uploadPictureResult.setPicSize(ticket.getFileSize());
+            uploadPictureResult.setUrl(fileManager.getObjectUrl(key));
+            fileManager.fillImageInfo(uploadPictureResult, imageHeader);
+            return uploadPictureResult;
+        }
+    }
+
+    /**
+     * 定时清理暂存目录：未完成的、进程重启后凭证丢失的，以及完成后客户端又上传的对象
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000L, initialDelay = 60 * 1000L)
+    public void sweepStaging() {
+        Date expireTime = new Date(System.currentTimeMillis() - TICKET_TIMEOUT_MILLIS);
+        int deleted = 0;
+        List<StorageObjectSummary> summaryList;
+        List<String> expiredKeyList;
+        do {
+            summaryList = objectStorage.listObjects(STAGING_PREFIX, SWEEP_BATCH_SIZE);
+            expiredKeyList = summaryList.stream()
+                    .filter(summary -> summary.getLastModified().before(expireTime))
+                    .map(StorageObjectSummary::getKey)
+                    .collect(Collectors.toList());
+            if (!expiredKeyList.isEmpty()) {
+                List<String> failedKeyList = objectStorage.deleteObjects(expiredKeyList);
+                deleted += expiredKeyList.size() - failedKeyList.size();
+                if (!failedKeyList.isEmpty()) {
+                    log.warn("sweep upload staging objects failed, size = {}", failedKeyList.size());
+                    break;
+                }
+            }
+            // 按小时分目录，列举结果中出现未过期的对象时，后面的都更新
+        } while (summaryList.size() == SWEEP_BATCH_SIZE && expiredKeyList.size() == summaryList.size());
+        if (deleted > 0) {
+            log.info("sweep upload staging objects, deleted = {}", deleted);
+        }
+    }
+
+    /**
+     * 在后台生成衍生图并提取主色调
+     *
+     * @param uploadPictureResult 完成直传得到的上传结果
+     * @param pictureSaver        保存衍生图信息，图片已被删除或替换时返回 false，此时删除生成的衍生图
+     */
+    public void generateDerivativesAsync(UploadPictureResult uploadPictureResult, Predicate<UploadPictureResult> pictureSaver) {
+        String key = objectStorage.getObjectKey(uploadPictureResult.getUrl());
+        pictureDerivativeManager.fillDerivativesAsync(uploadPictureResult, () -> objectStorage.getObject(key).getContent(), key,
+                result -> {
+                    pictureFeatureManager.fillFeatures(result, () -> objectStorage.getObject(key).getContent());
+                    if (!pictureSaver.test(result)) {
+                        pictureDerivativeManager.deleteDerivatives(key, result.getVariants());
+                    }
+                });
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            objectStorage.deleteObject(key);
+        } catch (Exception e) {
+            log.warn("delete direct upload object error, key = {}", key, e);
+        }
+    }
+
+    /**
+     * 上传凭证
+     */
+    @Data
+    private static class UploadTicket {
+
+        private String ticketId;
+
+        /**
+         * 客户端上传的暂存对象键
+         */
+        private String stagingKey;
+
+        /**
+         * 服务端生成的正式对象键
+         */
+        private String key;
+
+        private Long userId;
+
+        private String originalFilename;
+
+        private Long fileSize;
+
+        private volatile boolean finished;
+    }
+}
@@ -4,19 +4,27 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
-import com.grass.picturebackend.config.CosClientConfig;
+import cn.hutool.json.JSONUtil;
 import com.grass.picturebackend.exception.BusinessException;
 import com.grass.picturebackend.exception.ErrorCode;
 import com.grass.picturebackend.exception.ThrowUtils;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
 import com.grass.picturebackend.model.dto.file.UploadPictureResult;
-import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
+import com.grass.picturebackend.model.entity.PictureContent;
+import com.grass.picturebackend.service.PictureContentService;
+import com.grass.picturebackend.utils.CountingDigestInputStream;
+import com.grass.picturebackend.utils.ImageHeaderParser;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -30,109 +38,338 @@ import java.util.List;
 @Slf4j
 public class FileManager {
 
+    /**
+     * 允许上传的文件后缀
+     */
+    private static final List<String> ALLOW_FORMAT_LIST = Arrays.asList("png", "jpg", "jpeg", "webp");
+
+    /**
+     * 单张图片最大大小
+     */
+    public static final long MAX_PICTURE_SIZE = 2 * 1024 * 1024L;
+
     @Resource
-    private CosClientConfig cosClientConfig;
+    private ObjectStorage objectStorage;
 
     @Resource
-    private CosManager cosManager;
+    private PictureContentService pictureContentService;
 
+    @Resource
+    private PictureDerivativeManager pictureDerivativeManager;
+
+    @Resource
+    private PictureFeatureManager pictureFeatureManager;
+
+    /**
+     * @description: 上传图片（直接把请求中的文件流写入对象存储，不再额外创建临时文件）
+     * @author: Mr.Liuxq
+     * @date 2025/4/27 15:58
+     * @param multipartFile 文件
+     * @param uploadPathPrefix 上传路径前缀
+     * @return 上传结果
+     */
     public UploadPictureResult uploadPicture(MultipartFile multipartFile, String uploadPathPrefix) {
+        ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "上传文件不能为空");
+        String originalFilename = multipartFile.getOriginalFilename();
         // 校验图片
-        validPicture(multipartFile);
+        validPicture(multipartFile.getSize(), originalFilename);
+        UploadPictureResult uploadPictureResult = inspectPicture(multipartFile, originalFilename);
+        return storePicture(multipartFile, originalFilename, multipartFile.getContentType(), uploadPictureResult, uploadPathPrefix);
+    }
+
+    /**
+     * @description: 检查图片：解析文件头并计算内容哈希（读的是已接收的文件，不会额外写盘）
+     * @author: Mr.Liuxq
+     * @date 2025/5/10 09:30
+     * @param source 图片内容（可重复打开的输入流来源）
+     * @param originalFilename 原始文件名
+     * @return 填充了名称、宽高、格式、大小与内容哈希的上传结果
+     */
+    public UploadPictureResult inspectPicture(InputStreamSource source, String originalFilename) {
+        ImageHeaderParser.ImageHeader imageHeader;
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        try (CountingDigestInputStream inputStream = new CountingDigestInputStream(source.getInputStream(), "SHA-256")) {
+            imageHeader = ImageHeaderParser.parse(inputStream);
+            inputStream.skip(Long.MAX_VALUE);
+            uploadPictureResult.setPicSize(inputStream.getByteCount());
+            uploadPictureResult.setContentHash(inputStream.getDigestHex());
+        } catch (IOException e) {
+            log.warn("read picture error, filename = {}", originalFilename, e);
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "无法识别的图片文件");
+        }
+        checkImageHeader(imageHeader, originalFilename);
+        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
+        fillImageInfo(uploadPictureResult, imageHeader);
+        return uploadPictureResult;
+    }
+
+    /**
+     * @description: 存储图片：内容已存在则复用已有对象，否则流式上传到对象存储
+     * @author: Mr.Liuxq
+     * @date 2025/5/10 09:30
+     * @param source 图片内容（可重复打开的输入流来源）
+     * @param originalFilename 原始文件名
+     * @param contentType 文件类型
+     * @param uploadPictureResult 检查图片得到的结果
+     * @param uploadPathPrefix 上传路径前缀
+     * @return 上传结果
+     */
+    public UploadPictureResult storePicture(InputStreamSource source, String originalFilename, String contentType,
+                                            UploadPictureResult uploadPictureResult, String uploadPathPrefix) {
+        // 相同内容已经上传过，直接复用已有的对象，不再上传
+        PictureContent existContent = pictureContentService.getByContentHash(uploadPictureResult.getContentHash());
+        if (existContent != null) {
+            return buildUploadPictureResult(existContent, originalFilename);
+        }
         // 图片上传地址
-        String uuid = RandomUtil.randomString(16);
-        String originalFilename = multipartFile.getOriginalFilename();
-        String uploadFileName = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid, FileUtil.getSuffix(originalFilename));
-        String uploadPath = String.format("%s/%s", uploadPathPrefix, uploadFileName);
-        File file = null;
+        String uploadPath = generateUploadPath(uploadPathPrefix, originalFilename);
+        // 长度必须提前告知 SDK，否则 SDK 会把整个流缓存到内存中
+        long fileSize = uploadPictureResult.getPicSize();
+        StorageObjectMetadata objectMetadata = new StorageObjectMetadata();
+        objectMetadata.setContentLength(fileSize);
+        objectMetadata.setContentType(contentType);
+        try (CountingDigestInputStream inputStream = new CountingDigestInputStream(source.getInputStream(), "MD5")) {
+            // 上传图片，摘要在字节流经时顺带计算
+            objectStorage.putObject(uploadPath, inputStream, objectMetadata);
+            if (inputStream.getByteCount() != fileSize) {
+                objectStorage.deleteObject(uploadPath);
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件内容不完整");
+            }
+            uploadPictureResult.setPicMd5(inputStream.getDigestHex());
+            return saveUploadedPicture(uploadPictureResult, source, uploadPath, originalFilename);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("图片上传到对象存储失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+    }
+
+    /**
+     * @description: 流式上传图片：边读边写入对象存储并计算摘要，不在内存或磁盘中保留整份内容。
+     * 内容哈希要读完才能得到，因此先上传再查重，内容已存在时删除刚上传的对象并复用已有的
+     * @author: Mr.Liuxq
+     * @date 2025/6/5 10:30
+     * @param inputStream 图片输入流（调用方负责关闭）
+     * @param contentLength 内容长度，必须已知
+     * @param contentType 文件类型
+     * @param picName 图片名称（不含后缀，后缀按真实格式确定）
+     * @param uploadPathPrefix 上传路径前缀
+     * @return 上传结果，内容已存在时 reused 为 true
+     */
+    public UploadPictureResult uploadPictureStream(InputStream inputStream, long contentLength, String contentType,
+                                                   String picName, String uploadPathPrefix) {
+        ThrowUtils.throwIf(contentLength > MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+        // 只缓冲文件头，解析后回退，再把整个流交给对象存储
+        BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+        ImageHeaderParser.ImageHeader imageHeader;
+        try {
+            bufferedInputStream.mark((int) MAX_PICTURE_SIZE);
+            imageHeader = ImageHeaderParser.parse(bufferedInputStream);
+            bufferedInputStream.reset();
+        } catch (IOException e) {
+            log.warn("read image header error, picName = {}", picName, e);
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "无法识别的图片文件");
+        }
+        ThrowUtils.throwIf(imageHeader == null, ErrorCode.PARAMS_ERROR, "无法识别的图片文件");
+        String originalFilename = picName + "." + imageHeader.getFormat();
+        validPictureSuffix(originalFilename);
+        checkImageHeader(imageHeader, originalFilename);
+        String uploadPath = generateUploadPath(uploadPathPrefix, originalFilename);
+        StorageObjectMetadata objectMetadata = new StorageObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        objectMetadata.setContentType(contentType);
+        CountingDigestInputStream sha256InputStream = new CountingDigestInputStream(bufferedInputStream, "SHA-256");
+        CountingDigestInputStream md5InputStream = new CountingDigestInputStream(sha256InputStream, "MD5");
+        try {
+            objectStorage.putObject(uploadPath, md5InputStream, objectMetadata);
+        } catch (Exception e) {
+            log.error("图片上传到对象存储失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
         try {
-            // 创建临时文件
-            file = File.createTempFile(uploadPath, null);
-            multipartFile.transferTo(file);
-            // 上传图片
-            PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
-            ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-            // 封装返回结果
+            if (md5InputStream.getByteCount() != contentLength) {
+                objectStorage.deleteObject(uploadPath);
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件内容不完整");
+            }
+            // 相同内容已经上传过，删除本次的对象，复用已有的
+            PictureContent existContent = pictureContentService.getByContentHash(sha256InputStream.getDigestHex());
+            if (existContent != null) {
+                objectStorage.deleteObject(uploadPath);
+                return buildUploadPictureResult(existContent, originalFilename);
+            }
             UploadPictureResult uploadPictureResult = new UploadPictureResult();
-            int picWidth = imageInfo.getWidth();
-            int picHeight = imageInfo.getHeight();
-            double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
-            uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
-            uploadPictureResult.setPicWidth(picWidth);
-            uploadPictureResult.setPicHeight(picHeight);
-            uploadPictureResult.setPicScale(picScale);
-            uploadPictureResult.setPicFormat(imageInfo.getFormat());
-            uploadPictureResult.setPicSize(FileUtil.size(file));
-            uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+            uploadPictureResult.setPicName(picName);
+            uploadPictureResult.setPicSize(contentLength);
+            uploadPictureResult.setContentHash(sha256InputStream.getDigestHex());
+            uploadPictureResult.setPicMd5(md5InputStream.getDigestHex());
+            fillImageInfo(uploadPictureResult, imageHeader);
+            // 原始流已经读完，衍生图与特征从存储读回
+            return saveUploadedPicture(uploadPictureResult, () -> objectStorage.getObject(uploadPath).getContent(),
+                    uploadPath, originalFilename);
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("图片上传到对象存储失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
-        } finally {
-            this.deleteTmpFile(file);
         }
+    }
 
-        return null;
+    /**
+     * @description: 对象已上传：生成衍生图与特征，记录内容索引
+     * @author: Mr.Liuxq
+     * @date 2025/6/5 10:30
+     * @param uploadPictureResult 上传结果
+     * @param source 图片内容（可重复打开的输入流来源）
+     * @param uploadPath 上传路径
+     * @param originalFilename 原始文件名
+     * @return 上传结果，并发上传相同内容时返回先写入的
+     */
+    private UploadPictureResult saveUploadedPicture(UploadPictureResult uploadPictureResult, InputStreamSource source,
+                                                    String uploadPath, String originalFilename) {
+        uploadPictureResult.setUrl(getObjectUrl(uploadPath));
+        // 本地生成多尺寸衍生图，失败时不影响上传
+        pictureDerivativeManager.fillDerivatives(uploadPictureResult, source, uploadPath);
+        pictureFeatureManager.fillFeatures(uploadPictureResult, source);
+        // 记录内容索引，并发上传相同内容时以先写入的为准，删除本次多余的对象
+        PictureContent pictureContent = pictureContentService.saveContent(uploadPictureResult);
+        if (!uploadPictureResult.getUrl().equals(pictureContent.getUrl())) {
+            objectStorage.deleteObject(uploadPath);
+            pictureDerivativeManager.deleteDerivatives(uploadPath, uploadPictureResult.getVariants());
+            return buildUploadPictureResult(pictureContent, originalFilename);
+        }
+        return uploadPictureResult;
     }
 
-    // 上传文件  
-    /*public static String uploadToCOS(MultipartFile multipartFile, String bucketName, String key) throws Exception {
-        // 创建 COS 客户端  
-        COSClient cosClient = createCOSClient();
+    /**
+     * @description: 读取并校验图片文件头，真实格式以魔数为准，必须与文件后缀一致
+     * @author: Mr.Liuxq
+     * @date 2025/5/8 10:15
+     * @param source 图片内容（可重复打开的输入流来源）
+     * @param originalFilename 原始文件名
+     * @return 图片头信息
+     */
+    public ImageHeaderParser.ImageHeader readImageHeader(InputStreamSource source, String originalFilename) {
+        ImageHeaderParser.ImageHeader imageHeader;
+        try (InputStream inputStream = source.getInputStream()) {
+            imageHeader = ImageHeaderParser.parse(inputStream);
+        } catch (IOException e) {
+            log.warn("read image header error, filename = {}", originalFilename, e);
+            imageHeader = null;
+        }
+        checkImageHeader(imageHeader, originalFilename);
+        return imageHeader;
+    }
 
-        try (InputStream inputStream = multipartFile.getInputStream()) {
-            // 元信息配置  
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentLength(multipartFile.getSize());
-            metadata.setContentType(multipartFile.getContentType());
+    /**
+     * @description: 校验图片头信息
+     * @author: Mr.Liuxq
+     * @date 2025/5/8 10:15
+     * @param imageHeader 图片头信息
+     * @param originalFilename 原始文件名
+     */
+    private void checkImageHeader(ImageHeaderParser.ImageHeader imageHeader, String originalFilename) {
+        ThrowUtils.throwIf(imageHeader == null, ErrorCode.PARAMS_ERROR, "无法识别的图片文件");
+        ThrowUtils.throwIf(imageHeader.getWidth() <= 0 || imageHeader.getHeight() <= 0, ErrorCode.PARAMS_ERROR, "图片尺寸错误");
+        String fileSuffix = FileUtil.getSuffix(originalFilename);
+        if ("jpeg".equals(fileSuffix)) {
+            fileSuffix = ImageHeaderParser.FORMAT_JPG;
+        }
+        ThrowUtils.throwIf(!imageHeader.getFormat().equals(fileSuffix), ErrorCode.PARAMS_ERROR, "文件内容与后缀不符");
+    }
 
-            // 创建上传请求  
-            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, key, inputStream, metadata);
+    /**
+     * @description: 根据已存在的图片内容构造上传结果（内容去重命中时使用）
+     * @author: Mr.Liuxq
+     * @date 2025/5/9 11:20
+     * @param pictureContent 图片内容
+     * @param originalFilename 原始文件名
+     * @return 上传结果
+     */
+    private UploadPictureResult buildUploadPictureResult(PictureContent pictureContent, String originalFilename) {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(pictureContent.getUrl());
+        uploadPictureResult.setThumbnailUrl(pictureContent.getThumbnailUrl());
+        uploadPictureResult.setVariants(JSONUtil.toList(pictureContent.getVariants(), PictureVariant.class));
+        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
+        uploadPictureResult.setPicSize(pictureContent.getPicSize());
+        uploadPictureResult.setPicWidth(pictureContent.getPicWidth());
+        uploadPictureResult.setPicHeight(pictureContent.getPicHeight());
+        uploadPictureResult.setPicScale(pictureContent.getPicScale());
+        uploadPictureResult.setPicFormat(pictureContent.getPicFormat());
+        uploadPictureResult.setPicColor(pictureContent.getPicColor());
+        uploadPictureResult.setPicColorLab(pictureContent.getPicColorLab());
+        uploadPictureResult.setPicHash(pictureContent.getPicHash());
+        uploadPictureResult.setContentHash(pictureContent.getContentHash());
+        uploadPictureResult.setReused(true);
+        return uploadPictureResult;
+    }
 
-            // 上传文件  
-            cosClient.putObject(putObjectRequest);
+    /**
+     * @description: 根据图片头信息填充宽高、比例与格式
+     * @author: Mr.Liuxq
+     * @date 2025/5/8 10:15
+     * @param uploadPictureResult 上传结果
+     * @param imageHeader 图片头信息
+     */
+    public void fillImageInfo(UploadPictureResult uploadPictureResult, ImageHeaderParser.ImageHeader imageHeader) {
+        int picWidth = imageHeader.getWidth();
+        int picHeight = imageHeader.getHeight();
+        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(imageHeader.getFormat());
+    }
 
-            // 生成访问链接  
-            return "https://" + bucketName + ".cos." + cosClient.getClientConfig().getRegion().getRegionName()
-                    + ".myqcloud.com/" + key;
-        } finally {
-            cosClient.shutdown();
-        }
-    }*/
+    /**
+     * @description: 生成上传路径（日期 + 随机串，避免重名覆盖）
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 10:20
+     * @param uploadPathPrefix 上传路径前缀
+     * @param originalFilename 原始文件名
+     * @return 上传路径
+     */
+    public String generateUploadPath(String uploadPathPrefix, String originalFilename) {
+        String uuid = RandomUtil.randomString(16);
+        String uploadFileName = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid, FileUtil.getSuffix(originalFilename));
+        return String.format("%s/%s", uploadPathPrefix, uploadFileName);
+    }
 
+    /**
+     * @description: 获取对象的访问地址
+     * @author: Mr.Liuxq
+     * @date 2025/5/7 10:20
+     * @param uploadPath 上传路径
+     * @return 访问地址
+     */
+    public String getObjectUrl(String uploadPath) {
+        return objectStorage.getObjectUrl(uploadPath);
+    }
 
     /**
-     * @description: 校验图片
+     * @description: 校验图片后缀
      * @author: Mr.Liuxq
-     * @date 2025/4/27 15:58
-     * @param multipartFile 文件
+     * @date 2025/5/7 10:20
+     * @param originalFilename 原始文件名
      */
-    private void validPicture(MultipartFile multipartFile) {
-        ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "上传文件不能为空");
-        // 1.校验文件大小
-        long fileSize = multipartFile.getSize();
-        final long ONE_M = 1024 * 1024;
-        ThrowUtils.throwIf(fileSize > 2 * ONE_M, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
-        // 2.校验文件后缀
-        String fileSuffix = FileUtil.getSuffix(multipartFile.getOriginalFilename());
-        // 允许上传的文件后缀
-        final List<String> ALLOW_FORMAT_LIST = Arrays.asList("png", "jpg", "jpeg", "webp");
+    public void validPictureSuffix(String originalFilename) {
+        String fileSuffix = FileUtil.getSuffix(originalFilename);
         ThrowUtils.throwIf(!ALLOW_FORMAT_LIST.contains(fileSuffix), ErrorCode.PARAMS_ERROR, "不支持的文件类型");
     }
 
     /**
-     * @description: 删除临时文件
+     * @description: 校验图片
      * @author: Mr.Liuxq
      * @date 2025/4/27 15:58
-     * @param file 文件
+     * @param fileSize 文件大小
+     * @param originalFilename 原始文件名
      */
-    private void deleteTmpFile(File file) {
-        if (file != null) {
-            // 删除临时文件
-            boolean delete = file.delete();
-            if (!delete) {
-                log.error("file delete error, filePath = {}", file.getAbsolutePath());
-            }
-        }
+    public void validPicture(long fileSize, String originalFilename) {
+        // 1.校验文件大小
+        ThrowUtils.throwIf(fileSize > MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+        // 2.校验文件后缀
+        validPictureSuffix(originalFilename);
     }
 
 }
@@ -0,0 +1,196 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import com.grass.picturebackend.manager.storage.DiskObjectCache;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObject;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 对象下载（流式输出）
+ * 固定大小缓冲区边读边写，不把整个对象读入堆内存；支持 Range 请求（206，只从存储读取请求的范围）；
+ * 支持 If-None-Match / If-Modified-Since，元信息有缓存，命中时直接返回 304，不访问存储；
+ * 内容优先从本地磁盘缓存读取；匿名可访问，因此只开放公共图库的对象
+ * @date 2025年05月13日 09:30
+ */
+@Component
+@Slf4j
+public class ObjectServeManager {
+
+    /**
+     * 输出缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 对象键带随机串且写入后不再修改，浏览器可以长期缓存
+     */
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+
+    /**
+     * 公共图库的对象键前缀（衍生图与原图同目录），暂存区、测试文件等其他对象不对外提供
+     */
+    private static final String PUBLIC_KEY_PREFIX = "public/";
+
+    /**
+     * 元信息缓存，key 为对象键，对象不存在时不缓存
+     */
+    private final LRUCache<String, StorageObjectMetadata> metadataCache = CacheUtil.newLRUCache(10000, TimeUnit.MINUTES.toMillis(10));
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private DiskObjectCache diskObjectCache;
+
+    /**
+     * 输出对象
+     *
+     * @param key      对象键
+     * @param request  请求
+     * @param response 响应
+     */
+    public void serve(String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 不可访问的对象与不存在的一样返回 404，不暴露是否存在
+        if (!isPublicKey(key)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StorageObjectMetadata metadata = getMetadata(key);
+        if (metadata == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String eTag = "\"" + StrUtil.strip(metadata.getETag(), "\"") + "\"";
+        long lastModified = metadata.getLastModified() == null ? -1 : metadata.getLastModified().getTime();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        // 校验缓存，未修改时设置 304 并返回
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+        long length = metadata.getInstanceLength();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(StrUtil.blankToDefault(metadata.getContentType(), "application/octet-stream"));
+        HttpRange range = getRange(request, eTag, lastModified);
+        long start = 0;
+        long end = length - 1;
+        if (range != null) {
+            // 起点超出文件长度的范围无法满足
+            if (length == 0 || rangeStartOf(range, length) < 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+        try (StorageObject storageObject = diskObjectCache.getObject(key, metadata, start, end)) {
+            OutputStream outputStream = response.getOutputStream();
+            IoUtil.copy(storageObject.getContent(), outputStream, BUFFER_SIZE);
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * 对象被删除或覆盖时清理元信息缓存与磁盘缓存
+     *
+     * @param key 对象键
+     */
+    public void evict(String key) {
+        metadataCache.remove(key);
+        diskObjectCache.invalidate(key);
+    }
+
+    /**
+     * 是否为公共图库的对象键；本地存储会规范化路径，含 . 或 .. 段的键可能跳出前缀，一律拒绝
+     */
+    private boolean isPublicKey(String key) {
+        if (!StrUtil.startWith(key, PUBLIC_KEY_PREFIX) || key.indexOf('\\') >= 0) {
+            return false;
+        }
+        for (String segment : StrUtil.split(key, '/')) {
+            if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StorageObjectMetadata getMetadata(String key) {
+        StorageObjectMetadata metadata = metadataCache.get(key);
+        if (metadata == null) {
+            metadata = objectStorage.headObject(key);
+            if (metadata != null) {
+                metadataCache.put(key, metadata);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * 解析 Range 请求头，只支持单个范围；If-Range 不匹配、格式错误或多个范围时返回完整内容
+     */
+    private HttpRange getRange(HttpServletRequest request, String eTag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (StrUtil.isBlank(rangeHeader)) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (StrUtil.isNotBlank(ifRange) && !ifRange.equals(eTag)) {
+            // If-Range 为 ETag 且不匹配，或为日期且与修改时间不一致，说明客户端持有的是旧版本
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                return null;
+            }
+            long ifRangeDate;
+            try {
+                ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (ifRangeDate == -1 || lastModified / 1000 != ifRangeDate / 1000) {
+                return null;
+            }
+        }
+        List<HttpRange> rangeList;
+        try {
+            rangeList = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return rangeList.size() == 1 ? rangeList.get(0) : null;
+    }
+
+    /**
+     * 范围起点，无法满足时返回 -1
+     */
+    private long rangeStartOf(HttpRange range, long length) {
+        try {
+            return range.getRangeStart(length);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.grass.picturebackend.config.PictureDerivativeConfig;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.utils.ImageDecodeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 衍生图生成（本地处理，不依赖云端图片处理服务）
+ * 在与 CPU 核数相同的固定线程池中解码、缩放、编码；解码时按目标宽度降采样，
+ * 大图不会以原始分辨率展开到堆内存；生成失败或超时只记录日志，不影响上传
+ * @date 2025年05月15日 09:40
+ */
+@Component
+@Slf4j
+public class PictureDerivativeManager {
+
+    /**
+     * 解码后允许的最大像素数（极端长宽比的图片进一步降采样）
+     */
+    private static final long MAX_DECODE_PIXELS = 40_000_000L;
+
+    @Resource
+    private PictureDerivativeConfig pictureDerivativeConfig;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    /**
+     * 实际可用的格式（有对应编码器）
+     */
+    private List<String> formatList;
+
+    private ThreadPoolExecutor derivativeExecutor;
+
+    @PostConstruct
+    public void init() {
+        formatList = pictureDerivativeConfig.getFormats().stream()
+                .filter(format -> {
+                    boolean supported = ImageIO.getImageWritersByFormatName(format).hasNext();
+                    if (!supported) {
+                        log.warn("no image writer for derivative format {}, skipped", format);
+                    }
+                    return supported;
+                })
+                .collect(Collectors.toList());
+        int cores = Runtime.getRuntime().availableProcessors();
+        // 队列满时放弃生成，避免解码任务挤占请求线程的 CPU
+        derivativeExecutor = new ThreadPoolExecutor(cores, cores, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cores * 4),
+                ThreadFactoryBuilder.create().setNamePrefix("picture-derivative-").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        derivativeExecutor.shutdownNow();
+    }
+
+    /**
+     * 生成衍生图并填充到上传结果（衍生图列表与缩略图地址）
+     *
+     * @param uploadPictureResult 上传结果（需要已包含宽高、大小）
+     * @param source              原图内容
+     * @param key                 原图在存储中的键
+     */
+    public void fillDerivatives(UploadPictureResult uploadPictureResult, InputStreamSource source, String key) {
+        List<PictureVariant> variantList = generate(source, key, uploadPictureResult.getPicWidth(), uploadPictureResult.getPicHeight());
+        applyDerivatives(uploadPictureResult, variantList);
+    }
+
+    /**
+     * 在后台生成衍生图，完成后回调（调用方不等待，线程池繁忙时放弃生成；不需要衍生图时也会回调）
+     *
+     * @param uploadPictureResult 上传结果（需要已包含宽高、大小）
+     * @param source              原图内容
+     * @param key                 原图在存储中的键
+     * @param callback            生成成功后的回调
+     */
+    public void fillDerivativesAsync(UploadPictureResult uploadPictureResult, InputStreamSource source, String key,
+                                     Consumer<UploadPictureResult> callback) {
+        int srcWidth = uploadPictureResult.getPicWidth();
+        int srcHeight = uploadPictureResult.getPicHeight();
+        List<Integer> widthList = formatList.isEmpty() ? new ArrayList<>() : getWidthList(srcWidth);
+        try {
+            derivativeExecutor.execute(() -> {
+                try {
+                    applyDerivatives(uploadPictureResult, widthList.isEmpty() ? new ArrayList<>()
+                            : doGenerate(source, key, srcWidth, srcHeight, widthList));
+                    callback.accept(uploadPictureResult);
+                } catch (Exception e) {
+                    log.error("generate derivatives error, key = {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("derivative executor busy, skip key = {}", key);
+        }
+    }
+
+    /**
+     * 生成衍生图
+     *
+     * @param source    原图内容
+     * @param key       原图在存储中的键
+     * @param srcWidth  原图宽度
+     * @param srcHeight 原图高度
+     * @return 衍生图列表（按宽度升序），失败时为空
+     */
+    public List<PictureVariant> generate(InputStreamSource source, String key, int srcWidth, int srcHeight) {
+        List<Integer> widthList = getWidthList(srcWidth);
+        if (widthList.isEmpty() || formatList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Future<List<PictureVariant>> future;
+        try {
+            future = derivativeExecutor.submit(() -> doGenerate(source, key, srcWidth, srcHeight, widthList));
+        } catch (RejectedExecutionException e) {
+            log.warn("derivative executor busy, skip key = {}", key);
+            return new ArrayList<>();
+        }
+        try {
+            return future.get(pictureDerivativeConfig.getTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("generate derivatives timeout, key = {}", key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("generate derivatives error, key = {}", key, e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 删除衍生图（原图被删除或并发上传重复内容时使用）
+     *
+     * @param key         原图在存储中的键
+     * @param variantList 衍生图列表
+     */
+    public void deleteDerivatives(String key, List<PictureVariant> variantList) {
+        if (variantList == null) {
+            return;
+        }
+        for (PictureVariant pictureVariant : variantList) {
+            objectStorage.deleteObject(getVariantKey(key, pictureVariant.getWidth(), pictureVariant.getFormat()));
+        }
+    }
+
+    /**
+     * 衍生图键：原图键去掉后缀，加上宽度与格式，如 public/1/2025-05-15_abc_640.jpg
+     */
+    public static String getVariantKey(String key, int width, String format) {
+        return String.format("%s_%d.%s", StrUtil.subBefore(key, ".", true), width, format);
+    }
+
+    /**
+     * 需要生成的宽度（只生成比原图窄的），由大到小
+     */
+    private List<Integer> getWidthList(int srcWidth) {
+        return pictureDerivativeConfig.getWidths().stream()
+                .filter(width -> width < srcWidth)
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+    }
+
+    private void applyDerivatives(UploadPictureResult uploadPictureResult, List<PictureVariant> variantList) {
+        uploadPictureResult.setVariants(variantList);
+        // 原图足够小时直接使用原图，不需要缩略图
+        if (uploadPictureResult.getPicSize() > pictureDerivativeConfig.getThumbnailMinSize() && !variantList.isEmpty()) {
+            uploadPictureResult.setThumbnailUrl(variantList.get(0).getUrl());
+        }
+    }
+
+    /**
+     * 解码一次（按最大目标宽度降采样），再由大到小逐级缩放
+     */
+    private List<PictureVariant> doGenerate(InputStreamSource source, String key, int srcWidth, int srcHeight,
+                                            List<Integer> widthList) throws IOException {
+        BufferedImage current = decode(source, srcWidth, srcHeight, widthList.get(0));
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        List<PictureVariant> variantList = new ArrayList<>();
+        for (Integer width : widthList) {
+            int height = Math.max(1, (int) Math.round((double) srcHeight * width / srcWidth));
+            current = resize(current, width, height);
+            for (String format : formatList) {
+                byte[] bytes = encode(current, format);
+                String variantKey = getVariantKey(key, width, format);
+                StorageObjectMetadata metadata = new StorageObjectMetadata();
+                metadata.setContentLength(bytes.length);
+                metadata.setContentType("jpg".equals(format) ? "image/jpeg" : "image/" + format);
+                objectStorage.putObject(variantKey, new ByteArrayInputStream(bytes), metadata);
+                PictureVariant pictureVariant = new PictureVariant();
+                pictureVariant.setWidth(width);
+                pictureVariant.setHeight(height);
+                pictureVariant.setFormat(format);
+                pictureVariant.setSize((long) bytes.length);
+                pictureVariant.setUrl(objectStorage.getObjectUrl(variantKey));
+                variantList.add(pictureVariant);
+            }
+        }
+        variantList.sort(Comparator.comparingInt(PictureVariant::getWidth));
+        return variantList;
+    }
+
+    /**
+     * 降采样解码：每 N 个像素只解码 1 个，解码结果的宽度不小于最大目标宽度
+     */
+    private BufferedImage decode(InputStreamSource source, int srcWidth, int srcHeight, int maxWidth) throws IOException {
+        int subsampling = Math.max(1, srcWidth / maxWidth);
+        while ((long) (srcWidth / subsampling) * (srcHeight / subsampling) > MAX_DECODE_PIXELS) {
+            subsampling++;
+        }
+        return ImageDecodeUtils.decode(source, subsampling);
+    }
+
+    /**
+     * 缩放：先逐次减半再缩放到目标尺寸，双线性插值下也能保持细节
+     */
+    private BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage scaled = new BufferedImage(currentWidth, currentHeight,
+                    image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        BufferedImage output = image;
+        boolean jpg = "jpg".equals(format) || "jpeg".equals(format);
+        if (jpg && image.getColorModel().hasAlpha()) {
+            // JPEG 不支持透明通道，铺白底
+            output = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = output.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+                graphics.drawImage(image, 0, 0, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (jpg && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(pictureDerivativeConfig.getQuality());
+            }
+            writer.write(null, new IIOImage(output, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,51 @@
+package com.grass.picturebackend.manager;
+
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.utils.ColorUtils;
+import com.grass.picturebackend.utils.ImageDecodeUtils;
+import com.grass.picturebackend.utils.ImageHashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片特征提取（主色调、感知哈希），按很高的倍数降采样解码，只展开几十像素见方的小图
+ * 提取失败只记录日志，不影响上传
+ * @date 2025年05月19日 10:10
+ */
+@Component
+@Slf4j
+public class PictureFeatureManager {
+
+    /**
+     * 降采样后长边的目标像素数
+     */
+    private static final int FEATURE_DECODE_SIZE = 64;
+
+    /**
+     * 提取特征并填充到上传结果
+     *
+     * @param uploadPictureResult 上传结果（需要已包含宽高）
+     * @param source              原图内容
+     */
+    public void fillFeatures(UploadPictureResult uploadPictureResult, InputStreamSource source) {
+        int longSide = Math.max(uploadPictureResult.getPicWidth(), uploadPictureResult.getPicHeight());
+        try {
+            BufferedImage image = ImageDecodeUtils.decode(source, Math.max(1, longSide / FEATURE_DECODE_SIZE));
+            if (image == null) {
+                return;
+            }
+            int rgb = ColorUtils.dominantColor(image);
+            if (rgb >= 0) {
+                uploadPictureResult.setPicColor(ColorUtils.toHex(rgb));
+                uploadPictureResult.setPicColorLab(ColorUtils.packLab(ColorUtils.rgbToLab(rgb)));
+            }
+            uploadPictureResult.setPicHash(ImageHashUtils.dHash(image));
+        } catch (Exception e) {
+            log.warn("extract picture features error, url = {}", uploadPictureResult.getUrl(), e);
+        }
+    }
+}
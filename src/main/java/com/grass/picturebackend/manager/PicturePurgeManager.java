@@ -0,0 +1,264 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.mapper.PictureContentMapper;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.mapper.PicturePurgeTaskMapper;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.entity.PicturePurgeTask;
+import com.grass.picturebackend.model.enums.PicturePurgeStatusEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 存储对象清理
+ * 删除图片时把原图、衍生图等对象键写入清理表（与删除图片在同一事务中），由定时任务按批调用批量删除接口；
+ * 失败的键按指数退避重试，多次失败后保留记录等待人工处理。
+ * 有内容哈希的对象分两步清理：先删除内容索引（仍被引用时不删），之后的上传不会再复用这些对象；
+ * 等待一段时间、让删除索引前已经查到索引的上传完成落库后，再复查引用并删除对象
+ * @date 2025年05月16日 09:30
+ */
+@Component
+@Slf4j
+public class PicturePurgeManager {
+
+    /**
+     * 每批处理的对象数（与 COS 批量删除上限一致）
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 入队后延迟执行的时间，以及删除内容索引后到删除对象之间的等待时间，
+     * 处理中的上传（内容去重命中同一对象）有时间落库
+     */
+    private static final int DELAY_SECONDS = 300;
+
+    /**
+     * 最大重试次数，超过后标记为失败
+     */
+    private static final int MAX_RETRY_COUNT = 10;
+
+    /**
+     * 重试的最大间隔
+     */
+    private static final int MAX_BACKOFF_SECONDS = 3600;
+
+    @Resource
+    private PicturePurgeTaskMapper picturePurgeTaskMapper;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureContentMapper pictureContentMapper;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private ObjectServeManager objectServeManager;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 登记图片关联的全部对象（原图、缩略图、衍生图），由定时任务异步删除
+     *
+     * @param picture 已删除或已替换的图片
+     */
+    public void enqueue(Picture picture) {
+        Set<String> keySet = getObjectKeys(picture);
+        if (keySet.isEmpty()) {
+            return;
+        }
+        Date nextRetryTime = DateUtil.offsetSecond(new Date(), DELAY_SECONDS);
+        List<PicturePurgeTask> taskList = keySet.stream().map(key -> {
+            PicturePurgeTask picturePurgeTask = new PicturePurgeTask();
+            picturePurgeTask.setObjectKey(key);
+            picturePurgeTask.setContentHash(picture.getContentHash());
+            picturePurgeTask.setStatus(PicturePurgeStatusEnum.PENDING.getValue());
+            picturePurgeTask.setRetryCount(0);
+            picturePurgeTask.setNextRetryTime(nextRetryTime);
+            return picturePurgeTask;
+        }).collect(Collectors.toList());
+        Db.saveBatch(taskList);
+    }
+
+    /**
+     * 定时清理到期的对象，一次循环处理到没有到期记录为止
+     */
+    @Scheduled(fixedDelay = 60 * 1000L, initialDelay = 60 * 1000L)
+    public void drain() {
+        int batchSize;
+        do {
+            List<PicturePurgeTask> taskList = picturePurgeTaskMapper.selectList(new LambdaQueryWrapper<PicturePurgeTask>()
+                    .in(PicturePurgeTask::getStatus, PicturePurgeStatusEnum.PENDING.getValue(),
+                            PicturePurgeStatusEnum.RELEASED.getValue())
+                    .le(PicturePurgeTask::getNextRetryTime, new Date())
+                    .orderByAsc(PicturePurgeTask::getNextRetryTime)
+                    .last("limit " + BATCH_SIZE));
+            batchSize = taskList.size();
+            if (batchSize > 0) {
+                purge(taskList);
+            }
+        } while (batchSize == BATCH_SIZE);
+    }
+
+    private void purge(List<PicturePurgeTask> taskList) {
+        // 内容仍被其他图片引用时保留对象，直接移除记录
+        Set<String> referencedHashSet = getReferencedContentHashes(taskList);
+        List<Long> doneIdList = new ArrayList<>();
+        List<PicturePurgeTask> releaseList = new ArrayList<>();
+        List<PicturePurgeTask> purgeList = new ArrayList<>();
+        for (PicturePurgeTask picturePurgeTask : taskList) {
+            if (referencedHashSet.contains(picturePurgeTask.getContentHash())) {
+                doneIdList.add(picturePurgeTask.getId());
+            } else if (picturePurgeTask.getContentHash() != null
+                    && picturePurgeTask.getStatus() == PicturePurgeStatusEnum.PENDING.getValue()) {
+                releaseList.add(picturePurgeTask);
+            } else {
+                purgeList.add(picturePurgeTask);
+            }
+        }
+        release(releaseList);
+        List<String> keyList = purgeList.stream().map(PicturePurgeTask::getObjectKey).distinct().collect(Collectors.toList());
+        Set<String> failedKeySet;
+        String error = null;
+        try {
+            failedKeySet = keyList.isEmpty() ? Collections.emptySet() : new HashSet<>(objectStorage.deleteObjects(keyList));
+        } catch (Exception e) {
+            log.warn("purge objects error, size = {}", keyList.size(), e);
+            failedKeySet = new HashSet<>(keyList);
+            error = StrUtil.maxLength(e.getMessage(), 500);
+        }
+        List<PicturePurgeTask> retryList = new ArrayList<>();
+        for (PicturePurgeTask picturePurgeTask : purgeList) {
+            if (failedKeySet.contains(picturePurgeTask.getObjectKey())) {
+                retryList.add(buildRetry(picturePurgeTask, error));
+            } else {
+                objectServeManager.evict(picturePurgeTask.getObjectKey());
+                doneIdList.add(picturePurgeTask.getId());
+            }
+        }
+        if (!doneIdList.isEmpty()) {
+            picturePurgeTaskMapper.deleteBatchIds(doneIdList);
+        }
+        if (!retryList.isEmpty()) {
+            Db.updateBatchById(retryList);
+        }
+        log.info("purge objects, total = {}, released = {}, deleted = {}, retry = {}", taskList.size(),
+                releaseList.size(), purgeList.size() - retryList.size(), retryList.size());
+    }
+
+    /**
+     * 第一步：删除没有引用的内容索引，记录延后到等待时间之后再处理。
+     * 引用判断与删除在同一条语句中完成；之后查到索引的上传不会落到这些对象上，
+     * 删除前已经查到索引、尚未落库的上传在等待时间内落库，第二步复查引用时能看到
+     */
+    private void release(List<PicturePurgeTask> releaseList) {
+        if (releaseList.isEmpty()) {
+            return;
+        }
+        Set<String> releaseHashSet = releaseList.stream()
+                .map(PicturePurgeTask::getContentHash)
+                .collect(Collectors.toSet());
+        Date nextRetryTime = DateUtil.offsetSecond(new Date(), DELAY_SECONDS);
+        List<PicturePurgeTask> updateList = releaseList.stream().map(picturePurgeTask -> {
+            PicturePurgeTask released = new PicturePurgeTask();
+            released.setId(picturePurgeTask.getId());
+            released.setStatus(PicturePurgeStatusEnum.RELEASED.getValue());
+            released.setNextRetryTime(nextRetryTime);
+            return released;
+        }).collect(Collectors.toList());
+        // 索引删除与记录状态一起提交，不会出现索引已删但记录仍待第一步处理的情况
+        transactionTemplate.executeWithoutResult(status -> {
+            pictureContentMapper.deleteUnreferenced(releaseHashSet);
+            Db.updateBatchById(updateList);
+        });
+    }
+
+    /**
+     * 仍有未删除图片引用的内容哈希
+     */
+    private Set<String> getReferencedContentHashes(List<PicturePurgeTask> taskList) {
+        Set<String> contentHashSet = taskList.stream()
+                .map(PicturePurgeTask::getContentHash)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (contentHashSet.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return pictureMapper.selectObjs(new LambdaQueryWrapper<Picture>()
+                        .select(Picture::getContentHash)
+                        .in(Picture::getContentHash, contentHashSet)
+                        .groupBy(Picture::getContentHash))
+                .stream()
+                .map(String::valueOf)
+                .collect(Collectors.toSet());
+    }
+
+    private PicturePurgeTask buildRetry(PicturePurgeTask picturePurgeTask, String error) {
+        int retryCount = picturePurgeTask.getRetryCount() + 1;
+        PicturePurgeTask retry = new PicturePurgeTask();
+        retry.setId(picturePurgeTask.getId());
+        retry.setRetryCount(retryCount);
+        // 1 分钟起指数退避
+        int backoffSeconds = (int) Math.min(MAX_BACKOFF_SECONDS, 60L << Math.min(retryCount - 1, 16));
+        retry.setNextRetryTime(DateUtil.offsetSecond(new Date(), backoffSeconds));
+        retry.setLastError(StrUtil.blankToDefault(error, "delete object failed"));
+        if (retryCount >= MAX_RETRY_COUNT) {
+            log.error("purge object failed after {} retries, key = {}", retryCount, picturePurgeTask.getObjectKey());
+            retry.setStatus(PicturePurgeStatusEnum.FAILED.getValue());
+        }
+        return retry;
+    }
+
+    /**
+     * 图片关联的对象键：原图、缩略图、衍生图；早期上传没有衍生图记录的，按原处理规则推算压缩图位置
+     */
+    private Set<String> getObjectKeys(Picture picture) {
+        Set<String> keySet = new LinkedHashSet<>();
+        String key = objectStorage.getObjectKey(picture.getUrl());
+        if (key == null) {
+            return keySet;
+        }
+        keySet.add(key);
+        String thumbnailKey = objectStorage.getObjectKey(picture.getThumbnailUrl());
+        if (thumbnailKey != null) {
+            keySet.add(thumbnailKey);
+        }
+        List<PictureVariant> variantList = JSONUtil.toList(picture.getVariants(), PictureVariant.class);
+        if (CollUtil.isEmpty(variantList)) {
+            // 原处理规则的相对路径：与原图同目录、同名，后缀为 webp
+            keySet.add(StrUtil.subBefore(key, ".", true) + ".webp");
+        }
+        for (PictureVariant pictureVariant : variantList) {
+            String variantKey = objectStorage.getObjectKey(pictureVariant.getUrl());
+            if (variantKey != null) {
+                keySet.add(variantKey);
+            }
+        }
+        return keySet;
+    }
+}
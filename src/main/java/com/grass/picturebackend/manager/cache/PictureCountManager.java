@@ -0,0 +1,122 @@
+package com.grass.picturebackend.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grass.picturebackend.manager.index.PictureChangeEvent;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.enums.PictureUploadStatusEnum;
+import com.grass.picturebackend.utils.QueryDigestUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片列表总数
+ * 带条件的查询按规范化后的条件缓存精确总数（短时间过期，图片变更时清空）；
+ * 不带条件的查询直接使用 information_schema 中的表行数估算值，不执行 COUNT(*)
+ * @date 2025年05月23日 10:00
+ */
+@Component
+@Slf4j
+public class PictureCountManager {
+
+    private static final String ESTIMATE_KEY = "estimate";
+
+    /**
+     * 不属于过滤条件的字段
+     */
+    private static final String[] IGNORE_FIELDS = {"current", "pageSize", "sortField", "sortOrder", "searchCount", "cursor"};
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 条件摘要 -> 精确总数
+     */
+    private final Cache<String, Long> exactCountCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 表行数估算值
+     */
+    private final Cache<String, Long> estimateCountCache = Caffeine.newBuilder()
+            .maximumSize(1)
+            .expireAfterWrite(60, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 查询总数
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param exactCounter        执行 COUNT(*)
+     * @return 总数
+     */
+    public PictureCount count(PictureQueryRequest pictureQueryRequest, Supplier<Long> exactCounter) {
+        Map<String, Object> normalizedMap = QueryDigestUtils.normalize(pictureQueryRequest, IGNORE_FIELDS);
+        // 绝大部分图片都是上传成功的，只按上传状态过滤的列表也视为不带条件
+        Object uploadStatus = normalizedMap.get("uploadStatus");
+        if (uploadStatus != null && uploadStatus.equals(PictureUploadStatusEnum.SUCCESS.getValue())) {
+            normalizedMap.remove("uploadStatus");
+        }
+        if (normalizedMap.isEmpty()) {
+            Long estimate = estimateCount();
+            if (estimate != null) {
+                return new PictureCount(estimate, false);
+            }
+        }
+        Long total = exactCountCache.get(QueryDigestUtils.digest(normalizedMap), key -> exactCounter.get());
+        return new PictureCount(total == null ? 0L : total, true);
+    }
+
+    /**
+     * 图片变更后清空精确总数（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPictureChange(PictureChangeEvent event) {
+        exactCountCache.invalidateAll();
+    }
+
+    /**
+     * 表行数估算值（InnoDB 的估算值可能有较大误差；取不到时返回 null，由调用方查询精确总数）
+     */
+    private Long estimateCount() {
+        try {
+            return estimateCountCache.get(ESTIMATE_KEY, key -> pictureMapper.estimateRowCount());
+        } catch (Exception e) {
+            log.warn("estimate picture row count error", e);
+            return null;
+        }
+    }
+
+    /**
+     * 总数及是否精确
+     */
+    public static class PictureCount {
+
+        private final long total;
+
+        private final boolean exact;
+
+        PictureCount(long total, boolean exact) {
+            this.total = total;
+            this.exact = exact;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.grass.picturebackend.manager.cache;
+
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.grass.picturebackend.common.CountedPage;
+import com.grass.picturebackend.config.PictureFeedCacheConfig;
+import com.grass.picturebackend.manager.index.PictureChangeEvent;
+import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.vo.PictureFeedCacheStatsVO;
+import com.grass.picturebackend.model.vo.PictureVO;
+import com.grass.picturebackend.utils.QueryDigestUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片列表两级缓存：本地 Caffeine + Redis
+ * 缓存键 = 空间 + 空间版本号 + 查询条件摘要；图片新增、修改、删除后递增所在空间的版本号，旧版本的缓存不再被访问，自然过期。
+ * 版本号存放在 Redis 中由各实例共享，本地只缓存很短时间；Redis 不可用时直接查库，不影响接口
+ * @date 2025年05月21日 09:40
+ */
+@Component
+@Slf4j
+public class PictureFeedCache {
+
+    private static final String KEY_PREFIX = "picture:feed:";
+
+    private static final String GENERATION_KEY_PREFIX = "picture:feed:gen:";
+
+    /**
+     * 公共图库（spaceId 为空）使用的空间键
+     */
+    private static final long PUBLIC_SPACE = 0L;
+
+    @Resource
+    private PictureFeedCacheConfig pictureFeedCacheConfig;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 一级缓存：缓存键 -> 分页结果
+     */
+    private Cache<String, Page<PictureVO>> localCache;
+
+    /**
+     * 空间键 -> 版本号（短时间缓存 Redis 中的值）
+     */
+    private LoadingCache<Long, Long> generationCache;
+
+    /**
+     * 未使用 Redis 时的本地版本号
+     */
+    private final Map<Long, AtomicLong> localGenerationMap = new ConcurrentHashMap<>();
+
+    private final LongAdder redisHitCount = new LongAdder();
+
+    private final LongAdder redisMissCount = new LongAdder();
+
+    private final LongAdder redisErrorCount = new LongAdder();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(pictureFeedCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(pictureFeedCacheConfig.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        generationCache = Caffeine.newBuilder()
+                .expireAfterWrite(pictureFeedCacheConfig.getGenerationRefreshMillis(), TimeUnit.MILLISECONDS)
+                .build(this::loadGeneration);
+    }
+
+    /**
+     * 查询分页结果，依次读取本地缓存、Redis、数据库
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param loader              从数据库查询
+     * @return 分页结果（多个请求共享，不要修改）
+     */
+    public Page<PictureVO> get(PictureQueryRequest pictureQueryRequest, Supplier<Page<PictureVO>> loader) {
+        if (!pictureFeedCacheConfig.isEnabled()) {
+            return loader.get();
+        }
+        long spaceKey = spaceKey(pictureQueryRequest.getSpaceId());
+        Long generation;
+        try {
+            generation = generationCache.get(spaceKey);
+        } catch (Exception e) {
+            // 拿不到版本号时无法判断缓存是否有效，直接查库
+            redisErrorCount.increment();
+            log.warn("load picture feed generation error, spaceKey = {}", spaceKey, e);
+            return loader.get();
+        }
+        String key = spaceKey + ":" + generation + ":" + QueryDigestUtils.digest(QueryDigestUtils.normalize(pictureQueryRequest));
+        // 同一个键并发未命中时只有一个请求回源
+        return localCache.get(key, cacheKey -> loadRemote(cacheKey, pictureQueryRequest, loader));
+    }
+
+    /**
+     * 图片变更后递增所在空间的版本号（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPictureChange(PictureChangeEvent event) {
+        for (Long spaceId : event.getSpaceIds()) {
+            bumpGeneration(spaceKey(spaceId));
+        }
+    }
+
+    /**
+     * 统计信息
+     */
+    public PictureFeedCacheStatsVO getStats() {
+        CacheStats stats = localCache.stats();
+        PictureFeedCacheStatsVO pictureFeedCacheStatsVO = new PictureFeedCacheStatsVO();
+        pictureFeedCacheStatsVO.setEnabled(pictureFeedCacheConfig.isEnabled());
+        pictureFeedCacheStatsVO.setRedisEnabled(pictureFeedCacheConfig.isRedisEnabled());
+        pictureFeedCacheStatsVO.setLocalSize(localCache.estimatedSize());
+        pictureFeedCacheStatsVO.setLocalHitCount(stats.hitCount());
+        pictureFeedCacheStatsVO.setLocalMissCount(stats.missCount());
+        pictureFeedCacheStatsVO.setLocalHitRate(stats.hitRate());
+        long redisHits = redisHitCount.sum();
+        long redisMisses = redisMissCount.sum();
+        pictureFeedCacheStatsVO.setRedisHitCount(redisHits);
+        pictureFeedCacheStatsVO.setRedisMissCount(redisMisses);
+        pictureFeedCacheStatsVO.setRedisHitRate(redisHits + redisMisses == 0 ? 1.0 : (double) redisHits / (redisHits + redisMisses));
+        pictureFeedCacheStatsVO.setRedisErrorCount(redisErrorCount.sum());
+        pictureFeedCacheStatsVO.setLoadCount(loadCount.sum());
+        return pictureFeedCacheStatsVO;
+    }
+
+    /**
+     * 本地缓存未命中：读取 Redis，未命中再查库并回写
+     */
+    private Page<PictureVO> loadRemote(String key, PictureQueryRequest pictureQueryRequest, Supplier<Page<PictureVO>> loader) {
+        if (pictureFeedCacheConfig.isRedisEnabled()) {
+            try {
+                String json = stringRedisTemplate.opsForValue().get(KEY_PREFIX + key);
+                if (json != null) {
+                    redisHitCount.increment();
+                    return fromJson(json, pictureQueryRequest);
+                }
+                redisMissCount.increment();
+            } catch (Exception e) {
+                redisErrorCount.increment();
+                log.warn("read picture feed cache error, key = {}", key, e);
+            }
+        }
+        Page<PictureVO> page = loader.get();
+        loadCount.increment();
+        if (pictureFeedCacheConfig.isRedisEnabled()) {
+            try {
+                long expireSeconds = pictureFeedCacheConfig.getRedisExpireSeconds();
+                expireSeconds += RandomUtil.randomLong(0, Math.max(1, expireSeconds / 5));
+                stringRedisTemplate.opsForValue().set(KEY_PREFIX + key, toJson(page), expireSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                redisErrorCount.increment();
+                log.warn("write picture feed cache error, key = {}", key, e);
+            }
+        }
+        return page;
+    }
+
+    private Long loadGeneration(Long spaceKey) {
+        if (!pictureFeedCacheConfig.isRedisEnabled()) {
+            return localGenerationMap.computeIfAbsent(spaceKey, key -> new AtomicLong()).get();
+        }
+        String value = stringRedisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + spaceKey);
+        return value == null ? 0L : Long.parseLong(value);
+    }
+
+    private void bumpGeneration(long spaceKey) {
+        if (!pictureFeedCacheConfig.isRedisEnabled()) {
+            localGenerationMap.computeIfAbsent(spaceKey, key -> new AtomicLong()).incrementAndGet();
+            generationCache.invalidate(spaceKey);
+            return;
+        }
+        try {
+            Long generation = stringRedisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + spaceKey);
+            if (generation != null) {
+                // 本实例立即可见，其他实例在版本号刷新后可见
+                generationCache.put(spaceKey, generation);
+            } else {
+                generationCache.invalidate(spaceKey);
+            }
+        } catch (Exception e) {
+            redisErrorCount.increment();
+            generationCache.invalidate(spaceKey);
+            log.warn("bump picture feed generation error, spaceKey = {}", spaceKey, e);
+        }
+    }
+
+    private String toJson(Page<PictureVO> page) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.set("total", page.getTotal());
+        jsonObject.set("totalExact", !(page instanceof CountedPage) || ((CountedPage<PictureVO>) page).isTotalExact());
+        jsonObject.set("records", page.getRecords());
+        return jsonObject.toString();
+    }
+
+    private Page<PictureVO> fromJson(String json, PictureQueryRequest pictureQueryRequest) {
+        JSONObject jsonObject = JSONUtil.parseObj(json);
+        CountedPage<PictureVO> page = new CountedPage<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize());
+        page.setTotal(jsonObject.getLong("total"));
+        page.setTotalExact(jsonObject.getBool("totalExact", true));
+        List<PictureVO> records = jsonObject.getJSONArray("records") == null ? new ArrayList<>()
+                : jsonObject.getJSONArray("records").toList(PictureVO.class);
+        page.setRecords(records);
+        return page;
+    }
+
+    private static long spaceKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE : spaceId;
+    }
+}
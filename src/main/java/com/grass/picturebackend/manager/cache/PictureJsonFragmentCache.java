@@ -0,0 +1,160 @@
+package com.grass.picturebackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.ObjectUtil;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grass.picturebackend.model.vo.PictureVO;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片封装类的 JSON 片段缓存
+ * 通过 Jackson 模块接入 PictureVO 的序列化：每张图片按 id 缓存序列化后的 JSON，再次序列化相同内容的 PictureVO 时
+ * 直接写出缓存的片段，不再逐个字段序列化。接口返回类型不变，仍由 Spring MVC 统一序列化。
+ * 复用前比较片段对应的 PictureVO 与当前的是否相等（包括嵌套的用户信息），图片或用户修改后立即重新序列化
+ * @date 2025年05月30日 09:30
+ */
+@Component
+public class PictureJsonFragmentCache {
+
+    /**
+     * 缓存总字符数上限
+     */
+    private static final long MAX_WEIGHT_CHARS = 32L * 1024 * 1024;
+
+    private static final long EXPIRE_MINUTES = 10;
+
+    /**
+     * 图片 id -> JSON 片段
+     */
+    private final Cache<Long, Fragment> fragmentCache = Caffeine.newBuilder()
+            .maximumWeight(MAX_WEIGHT_CHARS)
+            .weigher((Long pictureId, Fragment fragment) -> fragment.json.length() + 32)
+            .expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 注册到 ObjectMapper 的模块，替换 PictureVO 的序列化器
+     */
+    public Module module() {
+        SimpleModule module = new SimpleModule("PictureJsonFragmentModule");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() == PictureVO.class) {
+                    return new FragmentSerializer((JsonSerializer<Object>) serializer);
+                }
+                return serializer;
+            }
+        });
+        return module;
+    }
+
+    /**
+     * 取缓存的片段，没有或内容已变化时用默认序列化器生成
+     */
+    private String getFragment(PictureVO pictureVO, JsonFactory jsonFactory, JsonSerializer<Object> defaultSerializer,
+                               SerializerProvider provider) throws IOException {
+        Fragment fragment = fragmentCache.getIfPresent(pictureVO.getId());
+        if (fragment != null && fragment.pictureVO.equals(pictureVO)) {
+            return fragment.json;
+        }
+        StringWriter writer = new StringWriter(1024);
+        try (JsonGenerator fragmentGenerator = jsonFactory.createGenerator(writer)) {
+            defaultSerializer.serialize(pictureVO, fragmentGenerator, provider);
+        }
+        String json = writer.toString();
+        // 保存副本，调用方之后修改原对象时不会与片段对不上
+        fragmentCache.put(pictureVO.getId(), new Fragment(ObjectUtil.cloneByStream(pictureVO), json));
+        return json;
+    }
+
+    /**
+     * PictureVO 序列化器：能取到片段时写出原始 JSON，否则交给默认的 Bean 序列化器
+     */
+    private class FragmentSerializer extends StdSerializer<PictureVO> implements ResolvableSerializer, ContextualSerializer {
+
+        private final JsonSerializer<Object> defaultSerializer;
+
+        FragmentSerializer(JsonSerializer<Object> defaultSerializer) {
+            super(PictureVO.class);
+            this.defaultSerializer = defaultSerializer;
+        }
+
+        @Override
+        public void serialize(PictureVO pictureVO, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            ObjectCodec codec = gen.getCodec();
+            // TokenBuffer 用于 convertValue 等对象转换，原始 JSON 无法再被读取为字段；
+            // 带权限列表的是按当前用户生成的，各请求不同，缓存起来也命中不了
+            if (pictureVO.getId() == null || codec == null || gen instanceof TokenBuffer
+                    || CollUtil.isNotEmpty(pictureVO.getPermissionList())) {
+                defaultSerializer.serialize(pictureVO, gen, provider);
+                return;
+            }
+            gen.writeRawValue(getFragment(pictureVO, codec.getFactory(), defaultSerializer, provider));
+        }
+
+        @Override
+        public void serializeWithType(PictureVO pictureVO, JsonGenerator gen, SerializerProvider provider,
+                                      TypeSerializer typeSer) throws IOException {
+            defaultSerializer.serializeWithType(pictureVO, gen, provider, typeSer);
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (defaultSerializer instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) defaultSerializer).resolve(provider);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+            if (defaultSerializer instanceof ContextualSerializer) {
+                JsonSerializer<?> contextual = ((ContextualSerializer) defaultSerializer).createContextual(provider, property);
+                if (contextual != defaultSerializer) {
+                    return new FragmentSerializer((JsonSerializer<Object>) contextual);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 一张图片的 JSON 片段及生成片段时的 PictureVO
+     */
+    private static class Fragment {
+
+        private final PictureVO pictureVO;
+
+        private final String json;
+
+        Fragment(PictureVO pictureVO, String json) {
+            this.pictureVO = pictureVO;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.grass.picturebackend.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grass.picturebackend.model.entity.User;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 用户本地缓存（按 id）
+ * 每次加载、失效都从同一个递增的版本号取值：缓存项记录开始加载时的版本号，用户失效时记录失效时的版本号，
+ * 读取时早于失效版本号的缓存项视为过期，避免失效前开始的加载把旧数据写回缓存。
+ * 只在本实例内失效，其他实例依靠较短的过期时间
+ * @date 2025年05月26日 09:30
+ */
+@Component
+public class UserCache {
+
+    private static final int MAX_SIZE = 10000;
+
+    private static final long EXPIRE_SECONDS = 60;
+
+    private final AtomicLong versionClock = new AtomicLong();
+
+    /**
+     * 用户 id -> 缓存的用户
+     */
+    private final Cache<Long, CachedUser> userCache = Caffeine.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .expireAfterWrite(EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 用户 id -> 最近一次失效时的版本号（保留时间不短于缓存项）
+     */
+    private final Cache<Long, Long> invalidatedVersionCache = Caffeine.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .expireAfterWrite(EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 查询用户，未命中时加载
+     *
+     * @param userId 用户 id
+     * @param loader 从数据库查询
+     * @return 用户（多个请求共享，不要修改），不存在时返回 null
+     */
+    public User get(Long userId, Function<Long, User> loader) {
+        CachedUser cachedUser = userCache.getIfPresent(userId);
+        Long invalidatedVersion = invalidatedVersionCache.getIfPresent(userId);
+        if (cachedUser != null && (invalidatedVersion == null || cachedUser.version > invalidatedVersion)) {
+            return cachedUser.user;
+        }
+        long version = versionClock.incrementAndGet();
+        User user = loader.apply(userId);
+        if (user == null) {
+            return null;
+        }
+        // 加载期间被失效时不写回
+        Long latestInvalidatedVersion = invalidatedVersionCache.getIfPresent(userId);
+        if (latestInvalidatedVersion == null || version > latestInvalidatedVersion) {
+            userCache.put(userId, new CachedUser(user, version));
+        }
+        return user;
+    }
+
+    /**
+     * 用户修改、删除后失效
+     *
+     * @param userId 用户 id
+     */
+    public void invalidate(Long userId) {
+        invalidatedVersionCache.put(userId, versionClock.incrementAndGet());
+        userCache.invalidate(userId);
+    }
+
+    /**
+     * 缓存的用户及其开始加载时的版本号
+     */
+    private static class CachedUser {
+
+        private final User user;
+
+        private final long version;
+
+        CachedUser(User user, long version) {
+            this.user = user;
+            this.version = version;
+        }
+    }
+}
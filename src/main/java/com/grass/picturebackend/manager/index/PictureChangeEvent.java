@@ -0,0 +1,35 @@
+package com.grass.picturebackend.manager.index;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片变更事件（新增、修改、删除后发布），内存索引据此从数据库重新加载对应的图片，
+ * 列表缓存据此使涉及空间的缓存失效
+ * 在事务中发布时，事务提交后才会处理
+ * @date 2025年05月19日 10:20
+ */
+@Getter
+public class PictureChangeEvent {
+
+    private final Collection<Long> pictureIds;
+
+    /**
+     * 涉及的空间 id（null 表示公共图库）
+     */
+    private final Set<Long> spaceIds;
+
+    public PictureChangeEvent(Collection<Long> pictureIds, Collection<Long> spaceIds) {
+        this.pictureIds = pictureIds;
+        this.spaceIds = new HashSet<>(spaceIds);
+    }
+
+    public static PictureChangeEvent of(Long pictureId, Long spaceId) {
+        return new PictureChangeEvent(Collections.singletonList(pictureId), Collections.singletonList(spaceId));
+    }
+}
@@ -0,0 +1,315 @@
+package com.grass.picturebackend.manager.index;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.enums.PictureUploadStatusEnum;
+import com.grass.picturebackend.utils.ColorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 按空间划分的主色调最近邻索引
+ * Lab 空间按固定边长划分网格，查询时从目标颜色所在格子开始逐圈向外扩展，
+ * 已找到 K 个结果且下一圈的最小可能色差不小于第 K 个结果时停止，不需要遍历全部图片
+ * @date 2025年05月19日 10:30
+ */
+@Component
+@Slf4j
+public class PictureColorIndex {
+
+    /**
+     * 网格边长（Lab 单位）
+     */
+    private static final int CELL_SIZE = 10;
+
+    /**
+     * 每个维度最多的格子数（a、b 取值范围 -128 ~ 127）
+     */
+    private static final int MAX_CELLS = 256 / CELL_SIZE + 1;
+
+    /**
+     * 公共图库（spaceId 为空）使用的空间键
+     */
+    private static final long PUBLIC_SPACE = 0L;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 空间键 -> 空间索引
+     */
+    private final Map<Long, SpaceIndex> spaceIndexMap = new ConcurrentHashMap<>();
+
+    /**
+     * 图片 id -> 所在空间键（删除或换空间时定位旧位置）
+     */
+    private final Map<Long, Long> pictureSpaceMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicLong count = new AtomicLong();
+        try {
+            pictureMapper.streamColorIndex(context -> {
+                Picture picture = context.getResultObject();
+                add(picture.getId(), picture.getSpaceId(), picture.getPicColorLab());
+                count.incrementAndGet();
+            });
+            log.info("picture color index loaded, count = {}", count.get());
+        } catch (Exception e) {
+            log.error("picture color index load error, loaded = {}", count.get(), e);
+        }
+    }
+
+    /**
+     * 图片变更后重新加载（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPictureChange(PictureChangeEvent event) {
+        if (CollUtil.isEmpty(event.getPictureIds())) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getSpaceId, Picture::getPicColorLab, Picture::getUploadStatus)
+                .in(Picture::getId, event.getPictureIds()));
+        Map<Long, Picture> pictureMap = new HashMap<>();
+        pictureList.forEach(picture -> pictureMap.put(picture.getId(), picture));
+        for (Long pictureId : event.getPictureIds()) {
+            remove(pictureId);
+            Picture picture = pictureMap.get(pictureId);
+            // 已删除、未上传完成或没有主色调的图片不进入索引
+            if (picture != null && picture.getPicColorLab() != null
+                    && picture.getUploadStatus() != null
+                    && picture.getUploadStatus() == PictureUploadStatusEnum.SUCCESS.getValue()) {
+                add(pictureId, picture.getSpaceId(), picture.getPicColorLab());
+            }
+        }
+    }
+
+    /**
+     * 按颜色查询最相近的图片
+     *
+     * @param spaceId 空间 id，为空表示公共图库
+     * @param rgb     目标颜色（0xRRGGBB）
+     * @param topK    返回条数
+     * @return 图片 id，按色差由小到大排列
+     */
+    public List<Long> search(Long spaceId, int rgb, int topK) {
+        SpaceIndex spaceIndex = spaceIndexMap.get(spaceKey(spaceId));
+        if (spaceIndex == null || topK <= 0) {
+            return new ArrayList<>();
+        }
+        return spaceIndex.search(ColorUtils.rgbToLab(rgb), topK);
+    }
+
+    private void add(Long pictureId, Long spaceId, int packedLab) {
+        long spaceKey = spaceKey(spaceId);
+        spaceIndexMap.computeIfAbsent(spaceKey, key -> new SpaceIndex()).add(pictureId, packedLab);
+        pictureSpaceMap.put(pictureId, spaceKey);
+    }
+
+    private void remove(Long pictureId) {
+        Long spaceKey = pictureSpaceMap.remove(pictureId);
+        if (spaceKey == null) {
+            return;
+        }
+        SpaceIndex spaceIndex = spaceIndexMap.get(spaceKey);
+        if (spaceIndex != null) {
+            spaceIndex.remove(pictureId);
+        }
+    }
+
+    private static long spaceKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE : spaceId;
+    }
+
+    /**
+     * 单个空间的网格索引
+     */
+    private static class SpaceIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * 格子编号 -> 格子
+         */
+        private final Map<Integer, Cell> cellMap = new HashMap<>();
+
+        /**
+         * 图片 id -> 所在格子编号
+         */
+        private final Map<Long, Integer> pictureCellMap = new HashMap<>();
+
+        void add(Long pictureId, int packedLab) {
+            int cellKey = cellKey(ColorUtils.unpackLab(packedLab));
+            lock.writeLock().lock();
+            try {
+                Integer oldCellKey = pictureCellMap.put(pictureId, cellKey);
+                if (oldCellKey != null) {
+                    cellMap.get(oldCellKey).remove(pictureId);
+                }
+                cellMap.computeIfAbsent(cellKey, key -> new Cell()).add(pictureId, packedLab);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long pictureId) {
+            lock.writeLock().lock();
+            try {
+                Integer cellKey = pictureCellMap.remove(pictureId);
+                if (cellKey != null) {
+                    Cell cell = cellMap.get(cellKey);
+                    cell.remove(pictureId);
+                    if (cell.size == 0) {
+                        cellMap.remove(cellKey);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Long> search(double[] target, int topK) {
+            int[] center = cellOf(target);
+            // 大顶堆，堆顶为当前第 K 近的结果
+            PriorityQueue<Candidate> heap = new PriorityQueue<>(topK, Comparator.comparingDouble((Candidate candidate) -> candidate.distance).reversed());
+            lock.readLock().lock();
+            try {
+                int total = pictureCellMap.size();
+                int visited = 0;
+                for (int radius = 0; radius < MAX_CELLS && visited < total; radius++) {
+                    // 第 radius 圈内的点与目标的色差至少为 (radius - 1) * CELL_SIZE
+                    if (heap.size() == topK && heap.peek().distance <= (radius - 1) * CELL_SIZE) {
+                        break;
+                    }
+                    visited += scanRing(center, radius, target, topK, heap);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            List<Candidate> resultList = new ArrayList<>(heap);
+            resultList.sort(Comparator.comparingDouble(candidate -> candidate.distance));
+            List<Long> idList = new ArrayList<>(resultList.size());
+            resultList.forEach(candidate -> idList.add(candidate.pictureId));
+            return idList;
+        }
+
+        /**
+         * 扫描与中心格子切比雪夫距离恰好为 radius 的格子
+         *
+         * @return 扫描的图片数
+         */
+        private int scanRing(int[] center, int radius, double[] target, int topK, PriorityQueue<Candidate> heap) {
+            int visited = 0;
+            for (int dl = -radius; dl <= radius; dl++) {
+                for (int da = -radius; da <= radius; da++) {
+                    boolean onFace = Math.abs(dl) == radius || Math.abs(da) == radius;
+                    for (int db = -radius; db <= radius; db += onFace || radius == 0 ? 1 : 2 * radius) {
+                        Cell cell = cellMap.get(cellKey(center[0] + dl, center[1] + da, center[2] + db));
+                        if (cell == null) {
+                            continue;
+                        }
+                        for (int i = 0; i < cell.size; i++) {
+                            double distance = ColorUtils.distance(target, ColorUtils.unpackLab(cell.labs[i]));
+                            if (heap.size() < topK) {
+                                heap.offer(new Candidate(cell.ids[i], distance));
+                            } else if (distance < heap.peek().distance) {
+                                heap.poll();
+                                heap.offer(new Candidate(cell.ids[i], distance));
+                            }
+                        }
+                        visited += cell.size;
+                    }
+                }
+            }
+            return visited;
+        }
+
+        private static int[] cellOf(double[] lab) {
+            return new int[]{
+                    Math.max(0, Math.min(MAX_CELLS - 1, (int) Math.floor(lab[0] / CELL_SIZE))),
+                    Math.max(0, Math.min(MAX_CELLS - 1, (int) Math.floor((lab[1] + 128) / CELL_SIZE))),
+                    Math.max(0, Math.min(MAX_CELLS - 1, (int) Math.floor((lab[2] + 128) / CELL_SIZE)))
+            };
+        }
+
+        private static int cellKey(double[] lab) {
+            int[] cell = cellOf(lab);
+            return cellKey(cell[0], cell[1], cell[2]);
+        }
+
+        private static int cellKey(int l, int a, int b) {
+            if (l < 0 || a < 0 || b < 0 || l >= MAX_CELLS || a >= MAX_CELLS || b >= MAX_CELLS) {
+                return -1;
+            }
+            return (l << 16) | (a << 8) | b;
+        }
+    }
+
+    /**
+     * 网格中的一个格子（并列数组存放，避免每张图片一个对象）
+     */
+    private static class Cell {
+
+        private long[] ids = new long[8];
+
+        private int[] labs = new int[8];
+
+        private int size;
+
+        void add(long pictureId, int packedLab) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                labs = Arrays.copyOf(labs, size * 2);
+            }
+            ids[size] = pictureId;
+            labs[size] = packedLab;
+            size++;
+        }
+
+        void remove(long pictureId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == pictureId) {
+                    // 与最后一个交换后删除
+                    size--;
+                    ids[i] = ids[size];
+                    labs[i] = labs[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询候选结果
+     */
+    private static class Candidate {
+
+        private final long pictureId;
+
+        private final double distance;
+
+        Candidate(long pictureId, double distance) {
+            this.pictureId = pictureId;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.grass.picturebackend.manager.index;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.enums.PictureUploadStatusEnum;
+import com.grass.picturebackend.utils.ImageHashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 按空间划分的感知哈希索引（多索引哈希）
+ * 64 位哈希切成 4 段 16 位，每段建一张哈希表；汉明距离不超过 d 的两个哈希至少有一段相差不超过 d / 4 位，
+ * 查询时只需在每张表里探测这些相近的段值，再对候选计算完整的汉明距离
+ * @date 2025年05月20日 10:00
+ */
+@Component
+@Slf4j
+public class PictureHashIndex {
+
+    private static final int SEGMENT_COUNT = 4;
+
+    private static final int SEGMENT_BITS = 16;
+
+    /**
+     * 支持的最大汉明距离（每段最多翻转 3 位，探测次数可控）
+     */
+    public static final int MAX_DISTANCE = 12;
+
+    /**
+     * 公共图库（spaceId 为空）使用的空间键
+     */
+    private static final long PUBLIC_SPACE = 0L;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 空间键 -> 空间索引
+     */
+    private final Map<Long, SpaceIndex> spaceIndexMap = new ConcurrentHashMap<>();
+
+    /**
+     * 图片 id -> 所在空间键（删除或换空间时定位旧位置）
+     */
+    private final Map<Long, Long> pictureSpaceMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicLong count = new AtomicLong();
+        try {
+            pictureMapper.streamHashIndex(context -> {
+                Picture picture = context.getResultObject();
+                add(picture.getId(), picture.getSpaceId(), picture.getPicHash());
+                count.incrementAndGet();
+            });
+            log.info("picture hash index loaded, count = {}", count.get());
+        } catch (Exception e) {
+            log.error("picture hash index load error, loaded = {}", count.get(), e);
+        }
+    }
+
+    /**
+     * 图片变更后重新加载（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPictureChange(PictureChangeEvent event) {
+        if (CollUtil.isEmpty(event.getPictureIds())) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getSpaceId, Picture::getPicHash, Picture::getUploadStatus)
+                .in(Picture::getId, event.getPictureIds()));
+        Map<Long, Picture> pictureMap = new HashMap<>();
+        pictureList.forEach(picture -> pictureMap.put(picture.getId(), picture));
+        for (Long pictureId : event.getPictureIds()) {
+            remove(pictureId);
+            Picture picture = pictureMap.get(pictureId);
+            // 已删除、未上传完成或没有哈希的图片不进入索引
+            if (picture != null && picture.getPicHash() != null
+                    && picture.getUploadStatus() != null
+                    && picture.getUploadStatus() == PictureUploadStatusEnum.SUCCESS.getValue()) {
+                add(pictureId, picture.getSpaceId(), picture.getPicHash());
+            }
+        }
+    }
+
+    /**
+     * 查询相似图片
+     *
+     * @param spaceId     空间 id，为空表示公共图库
+     * @param hash        目标哈希
+     * @param maxDistance 最大汉明距离
+     * @param topK        返回条数
+     * @return 图片 id，按汉明距离由小到大排列
+     */
+    public List<Long> search(Long spaceId, long hash, int maxDistance, int topK) {
+        SpaceIndex spaceIndex = spaceIndexMap.get(spaceKey(spaceId));
+        if (spaceIndex == null || topK <= 0) {
+            return new ArrayList<>();
+        }
+        return spaceIndex.search(hash, Math.min(maxDistance, MAX_DISTANCE), topK);
+    }
+
+    private void add(Long pictureId, Long spaceId, long hash) {
+        long spaceKey = spaceKey(spaceId);
+        spaceIndexMap.computeIfAbsent(spaceKey, key -> new SpaceIndex()).add(pictureId, hash);
+        pictureSpaceMap.put(pictureId, spaceKey);
+    }
+
+    private void remove(Long pictureId) {
+        Long spaceKey = pictureSpaceMap.remove(pictureId);
+        if (spaceKey == null) {
+            return;
+        }
+        SpaceIndex spaceIndex = spaceIndexMap.get(spaceKey);
+        if (spaceIndex != null) {
+            spaceIndex.remove(pictureId);
+        }
+    }
+
+    private static long spaceKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE : spaceId;
+    }
+
+    private static int segment(long hash, int index) {
+        return (int) (hash >>> (index * SEGMENT_BITS)) & 0xFFFF;
+    }
+
+    /**
+     * 单个空间的多索引哈希表
+     */
+    private static class SpaceIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * 图片 id -> 哈希
+         */
+        private final Map<Long, Long> hashMap = new HashMap<>();
+
+        /**
+         * 每段一张表：段值 -> 图片 id 列表
+         */
+        private final List<Map<Integer, Bucket>> tables = new ArrayList<>(SEGMENT_COUNT);
+
+        SpaceIndex() {
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                tables.add(new HashMap<>());
+            }
+        }
+
+        void add(Long pictureId, long hash) {
+            lock.writeLock().lock();
+            try {
+                Long oldHash = hashMap.put(pictureId, hash);
+                if (oldHash != null) {
+                    removeFromTables(pictureId, oldHash);
+                }
+                for (int i = 0; i < SEGMENT_COUNT; i++) {
+                    tables.get(i).computeIfAbsent(segment(hash, i), key -> new Bucket()).add(pictureId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long pictureId) {
+            lock.writeLock().lock();
+            try {
+                Long hash = hashMap.remove(pictureId);
+                if (hash != null) {
+                    removeFromTables(pictureId, hash);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Long> search(long hash, int maxDistance, int topK) {
+            int segmentRadius = maxDistance / SEGMENT_COUNT;
+            List<long[]> resultList = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                Set<Long> visited = new HashSet<>();
+                for (int i = 0; i < SEGMENT_COUNT; i++) {
+                    Map<Integer, Bucket> table = tables.get(i);
+                    for (int probe : neighbors(segment(hash, i), segmentRadius)) {
+                        Bucket bucket = table.get(probe);
+                        if (bucket == null) {
+                            continue;
+                        }
+                        for (int j = 0; j < bucket.size; j++) {
+                            long pictureId = bucket.ids[j];
+                            if (!visited.add(pictureId)) {
+                                continue;
+                            }
+                            int distance = ImageHashUtils.distance(hash, hashMap.get(pictureId));
+                            if (distance <= maxDistance) {
+                                resultList.add(new long[]{distance, pictureId});
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            resultList.sort((a, b) -> Long.compare(a[0], b[0]));
+            List<Long> idList = new ArrayList<>(Math.min(topK, resultList.size()));
+            for (int i = 0; i < resultList.size() && i < topK; i++) {
+                idList.add(resultList.get(i)[1]);
+            }
+            return idList;
+        }
+
+        private void removeFromTables(Long pictureId, long hash) {
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                Map<Integer, Bucket> table = tables.get(i);
+                int key = segment(hash, i);
+                Bucket bucket = table.get(key);
+                if (bucket != null) {
+                    bucket.remove(pictureId);
+                    if (bucket.size == 0) {
+                        table.remove(key);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 与 value 相差不超过 radius 位的全部 16 位值
+         */
+        private static List<Integer> neighbors(int value, int radius) {
+            List<Integer> result = new ArrayList<>();
+            result.add(value);
+            collectNeighbors(value, radius, 0, result);
+            return result;
+        }
+
+        private static void collectNeighbors(int value, int radius, int fromBit, List<Integer> result) {
+            if (radius == 0) {
+                return;
+            }
+            for (int bit = fromBit; bit < SEGMENT_BITS; bit++) {
+                int flipped = value ^ (1 << bit);
+                result.add(flipped);
+                collectNeighbors(flipped, radius - 1, bit + 1, result);
+            }
+        }
+    }
+
+    /**
+     * 同一段值下的图片 id（数组存放，避免装箱）
+     */
+    private static class Bucket {
+
+        private long[] ids = new long[4];
+
+        private int size;
+
+        void add(long pictureId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = pictureId;
+        }
+
+        void remove(long pictureId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == pictureId) {
+                    // 与最后一个交换后删除
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.grass.picturebackend.manager.index;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.grass.picturebackend.constant.PictureTagCategoryConstant;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 标签、分类位图索引
+ * 每张图片分配一个连续的序号，每个标签、每个分类维护一个压缩位图；多标签的“全部包含 / 包含任一”分别是位图的交集、并集，
+ * 结果足够少时转成图片 id 交给分页查询，不需要对 tags 字段做多次 LIKE 全表扫描
+ * @date 2025年05月25日 10:00
+ */
+@Component
+@Slf4j
+public class PictureTagIndex {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 标签 -> 位图
+     */
+    private final Map<String, RoaringBitmap> tagBitmapMap = new HashMap<>();
+
+    /**
+     * 分类 -> 位图
+     */
+    private final Map<String, RoaringBitmap> categoryBitmapMap = new HashMap<>();
+
+    /**
+     * 图片 id -> 序号
+     */
+    private final Map<Long, Integer> ordinalMap = new HashMap<>();
+
+    /**
+     * 序号 -> 图片 id（序号不回收，删除的图片只从位图中移除）
+     */
+    private long[] pictureIds = new long[1024];
+
+    private int nextOrdinal;
+
+    /**
+     * 图片 id -> 标签、分类（更新、删除时从原来的位图中移除）
+     */
+    private final Map<Long, Entry> entryMap = new HashMap<>();
+
+    /**
+     * 启动时是否加载成功，失败时调用方退回数据库查询
+     */
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        // 预置的标签、分类始终存在
+        PictureTagCategoryConstant.TAR_GROUP_LIST.forEach(tag -> tagBitmapMap.put(tag, new RoaringBitmap()));
+        PictureTagCategoryConstant.CATEGORY_GROUP_LIST.forEach(category -> categoryBitmapMap.put(category, new RoaringBitmap()));
+        AtomicLong count = new AtomicLong();
+        try {
+            pictureMapper.streamTagIndex(context -> {
+                add(context.getResultObject());
+                count.incrementAndGet();
+            });
+            ready = true;
+            log.info("picture tag index loaded, count = {}, tags = {}", count.get(), tagBitmapMap.size());
+        } catch (Exception e) {
+            log.error("picture tag index load error, loaded = {}", count.get(), e);
+        }
+    }
+
+    /**
+     * 图片变更后重新加载（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPictureChange(PictureChangeEvent event) {
+        if (CollUtil.isEmpty(event.getPictureIds())) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getCategory, Picture::getTags)
+                .in(Picture::getId, event.getPictureIds()));
+        Map<Long, Picture> pictureMap = new HashMap<>();
+        pictureList.forEach(picture -> pictureMap.put(picture.getId(), picture));
+        for (Long pictureId : event.getPictureIds()) {
+            remove(pictureId);
+            // 已删除的图片查不到，不再加入
+            Picture picture = pictureMap.get(pictureId);
+            if (picture != null) {
+                add(picture);
+            }
+        }
+    }
+
+    /**
+     * 按标签、分类过滤
+     *
+     * @param tags     标签（为空表示不按标签过滤）
+     * @param matchAny 为 true 时包含任一标签即可，否则需要包含全部标签
+     * @param category 分类（为空表示不按分类过滤）
+     * @param limit    结果最多条数
+     * @return 匹配的图片 id；索引不可用、没有过滤条件或结果超过 limit 时返回 null，由调用方按原条件查询数据库
+     */
+    public List<Long> match(List<String> tags, boolean matchAny, String category, int limit) {
+        Set<String> tagSet = normalizeTags(tags);
+        if (!ready || (tagSet.isEmpty() && StrUtil.isBlank(category))) {
+            return null;
+        }
+        RoaringBitmap result = null;
+        lock.readLock().lock();
+        try {
+            if (!tagSet.isEmpty()) {
+                List<RoaringBitmap> bitmapList = new ArrayList<>(tagSet.size());
+                for (String tag : tagSet) {
+                    RoaringBitmap bitmap = tagBitmapMap.get(tag);
+                    if (bitmap != null) {
+                        bitmapList.add(bitmap);
+                    } else if (!matchAny) {
+                        return new ArrayList<>();
+                    }
+                }
+                if (bitmapList.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                result = matchAny ? RoaringBitmap.or(bitmapList.iterator()) : and(bitmapList);
+            }
+            if (StrUtil.isNotBlank(category)) {
+                RoaringBitmap bitmap = categoryBitmapMap.get(category);
+                if (bitmap == null) {
+                    return new ArrayList<>();
+                }
+                result = result == null ? bitmap : RoaringBitmap.and(result, bitmap);
+            }
+            if (result.getLongCardinality() > limit) {
+                return null;
+            }
+            List<Long> idList = new ArrayList<>(result.getCardinality());
+            result.forEach((int ordinal) -> idList.add(pictureIds[ordinal]));
+            return idList;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Picture picture) {
+        Set<String> tagSet = normalizeTags(parseTags(picture.getTags()));
+        String category = StrUtil.trimToNull(picture.getCategory());
+        if (tagSet.isEmpty() && category == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeEntry(picture.getId());
+            int ordinal = ordinalOf(picture.getId());
+            for (String tag : tagSet) {
+                tagBitmapMap.computeIfAbsent(tag, key -> new RoaringBitmap()).add(ordinal);
+            }
+            if (category != null) {
+                categoryBitmapMap.computeIfAbsent(category, key -> new RoaringBitmap()).add(ordinal);
+            }
+            entryMap.put(picture.getId(), new Entry(tagSet.toArray(new String[0]), category));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long pictureId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(pictureId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeEntry(Long pictureId) {
+        Entry entry = entryMap.remove(pictureId);
+        if (entry == null) {
+            return;
+        }
+        int ordinal = ordinalMap.get(pictureId);
+        for (String tag : entry.tags) {
+            RoaringBitmap bitmap = tagBitmapMap.get(tag);
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+            }
+        }
+        if (entry.category != null) {
+            RoaringBitmap bitmap = categoryBitmapMap.get(entry.category);
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+            }
+        }
+    }
+
+    private int ordinalOf(Long pictureId) {
+        Integer ordinal = ordinalMap.get(pictureId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (nextOrdinal == pictureIds.length) {
+            pictureIds = Arrays.copyOf(pictureIds, nextOrdinal * 2);
+        }
+        pictureIds[nextOrdinal] = pictureId;
+        ordinalMap.put(pictureId, nextOrdinal);
+        return nextOrdinal++;
+    }
+
+    /**
+     * 多个位图求交集，从基数最小的开始
+     */
+    private static RoaringBitmap and(List<RoaringBitmap> bitmapList) {
+        bitmapList.sort((a, b) -> Long.compare(a.getLongCardinality(), b.getLongCardinality()));
+        RoaringBitmap result = bitmapList.get(0).clone();
+        for (int i = 1; i < bitmapList.size() && !result.isEmpty(); i++) {
+            result.and(bitmapList.get(i));
+        }
+        return result;
+    }
+
+    private static Set<String> normalizeTags(List<String> tags) {
+        Set<String> tagSet = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (StrUtil.isNotBlank(tag)) {
+                    tagSet.add(tag.trim());
+                }
+            }
+        }
+        return tagSet;
+    }
+
+    private static List<String> parseTags(String tags) {
+        if (StrUtil.isBlank(tags)) {
+            return new ArrayList<>();
+        }
+        try {
+            return JSONUtil.toList(tags, String.class);
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 一张图片的标签、分类
+     */
+    private static class Entry {
+
+        private final String[] tags;
+
+        private final String category;
+
+        Entry(String[] tags, String category) {
+            this.tags = tags;
+            this.category = category;
+        }
+    }
+}
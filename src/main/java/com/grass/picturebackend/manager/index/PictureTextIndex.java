@@ -0,0 +1,298 @@
+package com.grass.picturebackend.manager.index;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.utils.TextTokenUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片名称、简介、标签的全文倒排索引
+ * 中文按二元分词（索引中另存单字，单字查询也能命中），查询时要求包含全部查询词（与原来的 LIKE 语义接近），按 BM25 打分排序；
+ * 名称、标签、简介的词频按不同权重累加（名称最重要）
+ * @date 2025年05月24日 10:00
+ */
+@Component
+@Slf4j
+public class PictureTextIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+
+    private static final float TAG_WEIGHT = 2f;
+
+    private static final float INTRODUCTION_WEIGHT = 1f;
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 词 -> 倒排列表
+     */
+    private final Map<String, Postings> postingsMap = new HashMap<>();
+
+    /**
+     * 图片 id -> 文档（删除时定位倒排列表）
+     */
+    private final Map<Long, Document> documentMap = new HashMap<>();
+
+    /**
+     * 全部文档的加权长度之和
+     */
+    private double totalLength;
+
+    /**
+     * 启动时是否加载成功，失败时调用方退回数据库查询
+     */
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        AtomicLong count = new AtomicLong();
+        try {
+            pictureMapper.streamTextIndex(context -> {
+                add(context.getResultObject());
+                count.incrementAndGet();
+            });
+            ready = true;
+            log.info("picture text index loaded, count = {}, terms = {}", count.get(), postingsMap.size());
+        } catch (Exception e) {
+            log.error("picture text index load error, loaded = {}", count.get(), e);
+        }
+    }
+
+    /**
+     * 图片变更后重新加载（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPictureChange(PictureChangeEvent event) {
+        if (CollUtil.isEmpty(event.getPictureIds())) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getName, Picture::getIntroduction, Picture::getTags)
+                .in(Picture::getId, event.getPictureIds()));
+        Map<Long, Picture> pictureMap = new HashMap<>();
+        pictureList.forEach(picture -> pictureMap.put(picture.getId(), picture));
+        for (Long pictureId : event.getPictureIds()) {
+            remove(pictureId);
+            // 已删除的图片查不到，不再加入
+            Picture picture = pictureMap.get(pictureId);
+            if (picture != null) {
+                add(picture);
+            }
+        }
+    }
+
+    /**
+     * 全文查询
+     *
+     * @param text  查询文本
+     * @param limit 结果最多条数
+     * @return 图片 id，按相关度由高到低排列；索引不可用、查询文本分不出词或结果超过 limit 时返回 null，
+     * 由调用方按原条件查询数据库（索引里没有空间、用户等过滤条件，截取前 limit 条会丢掉排在后面但满足过滤条件的图片）
+     */
+    public List<Long> search(String text, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextTokenUtils.tokenize(text));
+        if (!ready || terms.isEmpty()) {
+            return null;
+        }
+        List<Postings> postingsList = new ArrayList<>(terms.size());
+        Map<Long, double[]> scoreMap = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Postings postings = postingsMap.get(term);
+                if (postings == null) {
+                    return new ArrayList<>();
+                }
+                postingsList.add(postings);
+            }
+            // 从最短的倒排列表开始，后面的列表只给已有的候选加分
+            postingsList.sort(Comparator.comparingInt(postings -> postings.size));
+            int documentCount = documentMap.size();
+            double averageLength = documentCount == 0 ? 1 : totalLength / documentCount;
+            for (int i = 0; i < postingsList.size(); i++) {
+                Postings postings = postingsList.get(i);
+                double idf = Math.log(1 + (documentCount - postings.size + 0.5) / (postings.size + 0.5));
+                for (int j = 0; j < postings.size; j++) {
+                    long pictureId = postings.ids[j];
+                    double[] score = i == 0 ? scoreMap.computeIfAbsent(pictureId, key -> new double[2]) : scoreMap.get(pictureId);
+                    // 前面的词没有命中，或者已经缺少某个词
+                    if (score == null || score[1] < i) {
+                        continue;
+                    }
+                    double tf = postings.tfs[j];
+                    double length = documentMap.get(pictureId).length;
+                    score[0] += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                    score[1]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Map.Entry<Long, double[]>> resultList = new ArrayList<>();
+        for (Map.Entry<Long, double[]> entry : scoreMap.entrySet()) {
+            if (entry.getValue()[1] == terms.size()) {
+                resultList.add(entry);
+            }
+        }
+        if (resultList.size() > limit) {
+            return null;
+        }
+        resultList.sort((a, b) -> Double.compare(b.getValue()[0], a.getValue()[0]));
+        List<Long> idList = new ArrayList<>(resultList.size());
+        for (Map.Entry<Long, double[]> entry : resultList) {
+            idList.add(entry.getKey());
+        }
+        return idList;
+    }
+
+    private void add(Picture picture) {
+        Map<String, Float> termFrequencyMap = new HashMap<>();
+        float length = addTerms(picture.getName(), NAME_WEIGHT, termFrequencyMap)
+                + addTerms(picture.getIntroduction(), INTRODUCTION_WEIGHT, termFrequencyMap);
+        for (String tag : parseTags(picture.getTags())) {
+            length += addTerms(tag, TAG_WEIGHT, termFrequencyMap);
+        }
+        if (termFrequencyMap.isEmpty()) {
+            return;
+        }
+        Document document = new Document(termFrequencyMap.keySet().toArray(new String[0]), length);
+        lock.writeLock().lock();
+        try {
+            removeDocument(picture.getId());
+            for (Map.Entry<String, Float> entry : termFrequencyMap.entrySet()) {
+                postingsMap.computeIfAbsent(entry.getKey(), key -> new Postings()).add(picture.getId(), entry.getValue());
+            }
+            documentMap.put(picture.getId(), document);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long pictureId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(pictureId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDocument(Long pictureId) {
+        Document document = documentMap.remove(pictureId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Postings postings = postingsMap.get(term);
+            if (postings != null) {
+                postings.remove(pictureId);
+                if (postings.size == 0) {
+                    postingsMap.remove(term);
+                }
+            }
+        }
+        totalLength -= document.length;
+    }
+
+    /**
+     * 累加一个字段的加权词频
+     *
+     * @return 字段的加权长度
+     */
+    private static float addTerms(String text, float weight, Map<String, Float> termFrequencyMap) {
+        List<String> tokens = TextTokenUtils.tokenizeForIndex(text);
+        for (String token : tokens) {
+            termFrequencyMap.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private static List<String> parseTags(String tags) {
+        if (StrUtil.isBlank(tags)) {
+            return new ArrayList<>();
+        }
+        try {
+            return JSONUtil.toList(tags, String.class);
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 索引中的一张图片
+     */
+    private static class Document {
+
+        private final String[] terms;
+
+        private final float length;
+
+        Document(String[] terms, float length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 一个词的倒排列表（并列数组存放，避免装箱）
+     */
+    private static class Postings {
+
+        private long[] ids = new long[4];
+
+        private float[] tfs = new float[4];
+
+        private int size;
+
+        void add(long pictureId, float tf) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            ids[size] = pictureId;
+            tfs[size] = tf;
+            size++;
+        }
+
+        void remove(long pictureId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == pictureId) {
+                    // 与最后一个交换后删除
+                    size--;
+                    ids[i] = ids[size];
+                    tfs[i] = tfs[size];
+                    return;
+                }
+            }
+        }
+    }
+}
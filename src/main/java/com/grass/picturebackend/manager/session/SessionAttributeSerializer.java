@@ -0,0 +1,143 @@
+package com.grass.picturebackend.manager.session;
+
+import com.grass.picturebackend.model.dto.user.LoginUserPrincipal;
+import com.grass.picturebackend.model.enums.UserRoleEnum;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 会话属性序列化（Spring Session 按名称 springSessionDefaultRedisSerializer 使用）
+ * 登录用户按紧凑的二进制格式写入：类型 + 变长编码的 id + 角色 value + 变长编码的版本号，通常不到 16 字节；
+ * 角色存 UserRoleEnum 的 value 而不是序号，枚举调整顺序或插入新值后已有会话的角色不变，读到不认识的角色时拒绝。
+ * 其他属性仍使用 JDK 序列化。未启用 Spring Session Redis 时不生效
+ * @date 2025年05月27日 09:30
+ */
+@Component("springSessionDefaultRedisSerializer")
+public class SessionAttributeSerializer implements RedisSerializer<Object> {
+
+    private static final byte TYPE_JDK = 0;
+
+    /**
+     * 早期按角色序号存储的登录用户，序号不可靠，读到时视为未登录
+     */
+    private static final byte TYPE_PRINCIPAL_ORDINAL = 1;
+
+    private static final byte TYPE_PRINCIPAL = 2;
+
+    /**
+     * JDK 序列化流的首字节（兼容改造前写入的会话）
+     */
+    private static final byte JDK_STREAM_MAGIC = (byte) 0xAC;
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        if (value instanceof LoginUserPrincipal) {
+            LoginUserPrincipal principal = (LoginUserPrincipal) value;
+            out.write(TYPE_PRINCIPAL);
+            writeVarLong(out, principal.getId() == null ? 0L : principal.getId());
+            writeRole(out, principal.getUserRole());
+            writeVarLong(out, principal.getVersion());
+            return out.toByteArray();
+        }
+        byte[] bytes = jdkSerializer.serialize(value);
+        out.write(TYPE_JDK);
+        out.write(bytes, 0, bytes.length);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == TYPE_PRINCIPAL) {
+            int[] offset = {1};
+            long id = readVarLong(bytes, offset);
+            String userRole = readRole(bytes, offset);
+            long version = readVarLong(bytes, offset);
+            return new LoginUserPrincipal(id == 0L ? null : id, userRole, version);
+        }
+        if (bytes[0] == TYPE_PRINCIPAL_ORDINAL) {
+            return null;
+        }
+        if (bytes[0] == JDK_STREAM_MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes[0] == TYPE_JDK) {
+            byte[] jdkBytes = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, jdkBytes, 0, jdkBytes.length);
+            return jdkSerializer.deserialize(jdkBytes);
+        }
+        throw new SerializationException("unknown session attribute type: " + bytes[0]);
+    }
+
+    /**
+     * 角色按 value 字符串写入（长度 + UTF-8），长度 0 表示为空
+     */
+    private static void writeRole(ByteArrayOutputStream out, String userRole) {
+        if (userRole == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        if (UserRoleEnum.getEnumByValue(userRole) == null) {
+            throw new SerializationException("unknown user role: " + userRole);
+        }
+        byte[] bytes = userRole.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readRole(byte[] bytes, int[] offset) {
+        long length = readVarLong(bytes, offset);
+        if (length == 0) {
+            return null;
+        }
+        if (length > bytes.length - offset[0]) {
+            throw new SerializationException("truncated session attribute");
+        }
+        String userRole = new String(bytes, offset[0], (int) length, StandardCharsets.UTF_8);
+        offset[0] += (int) length;
+        if (UserRoleEnum.getEnumByValue(userRole) == null) {
+            throw new SerializationException("unknown user role: " + userRole);
+        }
+        return userRole;
+    }
+
+    /**
+     * 无符号变长编码，每字节 7 位，最高位表示后面还有字节
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] offset) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (offset[0] >= bytes.length) {
+                throw new SerializationException("truncated session attribute");
+            }
+            byte b = bytes[offset[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("malformed varint in session attribute");
+    }
+}
@@ -0,0 +1,368 @@
+package com.grass.picturebackend.manager.storage;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.grass.picturebackend.config.StorageConfig;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.model.vo.DiskCacheStatsVO;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 对象读取的本地磁盘缓存（读穿透）
+ * 索引保存在内存中（Caffeine，按字节数加权的 W-TinyLFU 淘汰），内容按键的哈希分目录存放；
+ * 同一个键并发未命中时只回源一次，其余请求等待同一个加载结果
+ * @date 2025年05月14日 09:40
+ */
+@Component
+@Slf4j
+public class DiskObjectCache {
+
+    /**
+     * 等待回源加载的最长时间
+     */
+    private static final long LOAD_TIMEOUT_SECONDS = 30;
+
+    /**
+     * 分片目录名：键的 sha256 的两位十六进制
+     */
+    private static final Pattern SHARD_DIR_PATTERN = Pattern.compile("[0-9a-f]{2}");
+
+    /**
+     * 缓存文件名：键的 sha256-加载时间（nanoTime 可能为负），写入中的文件带 .tmp 后缀
+     */
+    private static final Pattern CACHE_FILE_PATTERN = Pattern.compile("([0-9a-f]{64})--?\\d+(\\.tmp)?");
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    private boolean enabled;
+
+    private Path cacheDir;
+
+    private ThreadPoolExecutor loadExecutor;
+
+    private AsyncCache<String, CachedFile> cache;
+
+    private final LongAdder servedBytes = new LongAdder();
+
+    private final LongAdder originBytes = new LongAdder();
+
+    @PostConstruct
+    public void init() throws IOException {
+        // 本地存储本身就在磁盘上，不需要再缓存一层
+        enabled = storageConfig.isDiskCacheEnabled() && !"local".equals(storageConfig.getType());
+        if (!enabled) {
+            return;
+        }
+        cacheDir = Paths.get(storageConfig.getDiskCacheDir()).toAbsolutePath().normalize();
+        // 索引不持久化，上次遗留的缓存文件无法再被引用；只删除符合分片布局的文件，配置的目录里的其他内容不动
+        Files.createDirectories(cacheDir);
+        deleteStaleFiles();
+        loadExecutor = new ThreadPoolExecutor(4, 16, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(256),
+                ThreadFactoryBuilder.create().setNamePrefix("disk-cache-load-").build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        cache = Caffeine.newBuilder()
+                .maximumWeight(storageConfig.getDiskCacheMaxBytes())
+                .weigher((String key, CachedFile cachedFile) -> (int) Math.min(Integer.MAX_VALUE, cachedFile.getSize()))
+                .removalListener((String key, CachedFile cachedFile, RemovalCause cause) -> {
+                    if (cachedFile != null) {
+                        deleteQuietly(cachedFile.getPath());
+                    }
+                })
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        log.info("disk object cache dir = {}, maxBytes = {}", cacheDir, storageConfig.getDiskCacheMaxBytes());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (loadExecutor != null) {
+            loadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 读取对象的一部分，优先从磁盘缓存读取
+     *
+     * @param key      对象键
+     * @param metadata 对象元信息（用于判断是否超过可缓存大小）
+     * @param start    起始字节（包含）
+     * @param end      结束字节（包含）
+     * @return 对象（调用方负责关闭）
+     */
+    public StorageObject getObject(String key, StorageObjectMetadata metadata, long start, long end) {
+        long length = end - start + 1;
+        if (!enabled || metadata.getInstanceLength() > storageConfig.getDiskCacheMaxObjectBytes()) {
+            originBytes.add(length);
+            return readOrigin(key, metadata, start, end);
+        }
+        CachedFile cachedFile = load(key);
+        if (cachedFile != null) {
+            try {
+                FileChannel fileChannel = FileChannel.open(cachedFile.getPath(), StandardOpenOption.READ);
+                fileChannel.position(start);
+                servedBytes.add(length);
+                StorageObjectMetadata rangeMetadata = copyMetadata(metadata);
+                rangeMetadata.setContentLength(length);
+                return new StorageObject(key, rangeMetadata, new RangeInputStream(Channels.newInputStream(fileChannel), length));
+            } catch (NoSuchFileException e) {
+                // 刚好被淘汰
+                cache.synchronous().invalidate(key);
+            } catch (IOException e) {
+                log.warn("read disk cache error, key = {}", key, e);
+                cache.synchronous().invalidate(key);
+            }
+        }
+        originBytes.add(length);
+        return readOrigin(key, metadata, start, end);
+    }
+
+    /**
+     * 对象被删除或覆盖时移除缓存
+     *
+     * @param key 对象键
+     */
+    public void invalidate(String key) {
+        if (enabled) {
+            cache.synchronous().invalidate(key);
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public DiskCacheStatsVO getStats() {
+        DiskCacheStatsVO diskCacheStatsVO = new DiskCacheStatsVO();
+        diskCacheStatsVO.setEnabled(enabled);
+        diskCacheStatsVO.setServedBytes(servedBytes.sum());
+        diskCacheStatsVO.setOriginBytes(originBytes.sum());
+        if (!enabled) {
+            return diskCacheStatsVO;
+        }
+        CacheStats stats = cache.synchronous().stats();
+        diskCacheStatsVO.setEntryCount(cache.synchronous().estimatedSize());
+        diskCacheStatsVO.setUsedBytes(cache.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        diskCacheStatsVO.setMaxBytes(storageConfig.getDiskCacheMaxBytes());
+        diskCacheStatsVO.setHitCount(stats.hitCount());
+        diskCacheStatsVO.setMissCount(stats.missCount());
+        diskCacheStatsVO.setHitRate(stats.hitRate());
+        diskCacheStatsVO.setEvictionCount(stats.evictionCount());
+        diskCacheStatsVO.setEvictionBytes(stats.evictionWeight());
+        diskCacheStatsVO.setLoadFailureCount(stats.loadFailureCount());
+        return diskCacheStatsVO;
+    }
+
+    /**
+     * 获取缓存文件，未命中时回源（同一个键共享同一次加载），失败返回 null
+     */
+    private CachedFile load(String key) {
+        try {
+            return cache.get(key, this::fetch).get(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            log.warn("load disk cache error, key = {}", key, e.getCause());
+            return null;
+        } catch (TimeoutException e) {
+            log.warn("load disk cache timeout, key = {}", key);
+            return null;
+        }
+    }
+
+    /**
+     * 回源：下载完整对象写入分片目录
+     */
+    private CachedFile fetch(String key) {
+        String hash = DigestUtil.sha256Hex(key);
+        Path shardDir = cacheDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4));
+        // 文件名带上加载时间，替换时新旧文件互不影响
+        Path path = shardDir.resolve(hash + "-" + System.nanoTime());
+        Path temp = shardDir.resolve(path.getFileName() + ".tmp");
+        try (StorageObject storageObject = objectStorage.getObject(key)) {
+            Files.createDirectories(shardDir);
+            long size = Files.copy(storageObject.getContent(), temp);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            originBytes.add(size);
+            CachedFile cachedFile = new CachedFile();
+            cachedFile.setPath(path);
+            cachedFile.setSize(size);
+            return cachedFile;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("fetch object error, key = " + key, e);
+        }
+    }
+
+    /**
+     * 删除上次运行遗留的缓存文件：只认两级两位十六进制分片目录下、名称为 sha256-加载时间 的文件
+     */
+    private void deleteStaleFiles() throws IOException {
+        for (Path firstDir : listShardDirs(cacheDir)) {
+            for (Path secondDir : listShardDirs(firstDir)) {
+                String prefix = firstDir.getFileName().toString() + secondDir.getFileName();
+                try (DirectoryStream<Path> fileStream = Files.newDirectoryStream(secondDir)) {
+                    for (Path file : fileStream) {
+                        Matcher matcher = CACHE_FILE_PATTERN.matcher(file.getFileName().toString());
+                        if (matcher.matches() && matcher.group(1).startsWith(prefix)
+                                && Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                            deleteQuietly(file);
+                        }
+                    }
+                }
+                deleteIfEmpty(secondDir);
+            }
+            deleteIfEmpty(firstDir);
+        }
+    }
+
+    /**
+     * 列出目录下名称为两位十六进制的子目录（不跟随符号链接）
+     */
+    private List<Path> listShardDirs(Path dir) throws IOException {
+        List<Path> shardDirList = new ArrayList<>();
+        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir)) {
+            for (Path path : dirStream) {
+                if (SHARD_DIR_PATTERN.matcher(path.getFileName().toString()).matches()
+                        && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    shardDirList.add(path);
+                }
+            }
+        }
+        return shardDirList;
+    }
+
+    private void deleteIfEmpty(Path dir) throws IOException {
+        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir)) {
+            if (dirStream.iterator().hasNext()) {
+                return;
+            }
+        }
+        deleteQuietly(dir);
+    }
+
+    private StorageObject readOrigin(String key, StorageObjectMetadata metadata, long start, long end) {
+        if (start == 0 && end == metadata.getInstanceLength() - 1) {
+            return objectStorage.getObject(key);
+        }
+        return objectStorage.getObject(key, start, end);
+    }
+
+    private StorageObjectMetadata copyMetadata(StorageObjectMetadata metadata) {
+        StorageObjectMetadata copy = new StorageObjectMetadata();
+        copy.setContentLength(metadata.getContentLength());
+        copy.setInstanceLength(metadata.getInstanceLength());
+        copy.setContentType(metadata.getContentType());
+        copy.setETag(metadata.getETag());
+        copy.setLastModified(metadata.getLastModified());
+        return copy;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("delete disk cache file error, path = {}", path, e);
+        }
+    }
+
+    /**
+     * 缓存文件
+     */
+    @Data
+    private static class CachedFile {
+
+        private Path path;
+
+        private long size;
+    }
+
+    /**
+     * 只读取指定长度的输入流
+     */
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(bytes, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+    }
+}
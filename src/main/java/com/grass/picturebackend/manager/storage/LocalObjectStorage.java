@@ -0,0 +1,408 @@
+package com.grass.picturebackend.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.grass.picturebackend.config.StorageConfig;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 本地文件系统存储实现（边缘节点、压测使用，也可作为衡量 COS 耗时的基准）
+ * 写入用 FileChannel.transferFrom（来源是普通输入流，仍经由 8K 的堆缓冲区逐块拷贝，好处是不需要自己管理缓冲区），
+ * 分块合并用 FileChannel.transferTo，文件之间由内核直接拷贝；
+ * 读取按区间在文件通道上按位置读取，不做内存映射，关闭对象时释放文件句柄
+ * @date 2025年05月12日 10:05
+ */
+@Component
+@ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "local")
+@Slf4j
+public class LocalObjectStorage implements ObjectStorage {
+
+    /**
+     * 分块上传的临时目录（位于根目录下，列举对象时跳过）
+     */
+    private static final String MULTIPART_DIR = ".multipart";
+
+    /**
+     * 写入时的临时文件后缀，写完后原子重命名，读取方不会看到写了一半的文件
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storageConfig.getLocalRoot()).toAbsolutePath().normalize();
+        Files.createDirectories(root.resolve(MULTIPART_DIR));
+        log.info("local object storage root = {}", root);
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, StorageObjectMetadata metadata) {
+        Path target = resolve(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + "." + IdUtil.fastSimpleUUID() + TEMP_SUFFIX);
+            try (FileChannel fileChannel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(inputStream)) {
+                long contentLength = metadata.getContentLength();
+                long position = 0;
+                while (position < contentLength) {
+                    long transferred = fileChannel.transferFrom(source, position, contentLength - position);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            moveAtomically(temp, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("put object error, key = " + key, e);
+        }
+    }
+
+    @Override
+    public StorageObject getObject(String key) {
+        StorageObjectMetadata metadata = headObject(key);
+        if (metadata == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        }
+        return getObject(key, 0, metadata.getInstanceLength() - 1);
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        Path path = resolve(key);
+        FileChannel fileChannel = null;
+        try {
+            fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+            long size = fileChannel.size();
+            long from = Math.min(start, size);
+            long to = Math.min(end, size - 1);
+            long length = Math.max(0, to - from + 1);
+            StorageObjectMetadata metadata = readMetadata(path);
+            metadata.setContentLength(length);
+            // 通道交给输入流，随对象关闭
+            return new StorageObject(key, metadata, new FileChannelInputStream(fileChannel, from, length));
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        } catch (IOException e) {
+            closeQuietly(fileChannel);
+            throw new UncheckedIOException("get object error, key = " + key, e);
+        }
+    }
+
+    @Override
+    public StorageObjectMetadata headObject(String key) {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return readMetadata(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("head object error, key = " + key, e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("delete object error, key = " + key, e);
+        }
+    }
+
+    @Override
+    public void copyObject(String sourceKey, String targetKey) {
+        Path source = resolve(sourceKey);
+        Path target = resolve(targetKey);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + "." + IdUtil.fastSimpleUUID() + TEMP_SUFFIX);
+            try {
+                Files.copy(source, temp);
+            } catch (NoSuchFileException e) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            moveAtomically(temp, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("copy object error, key = " + sourceKey, e);
+        }
+    }
+
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        List<String> failedKeys = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(resolve(key));
+            } catch (IOException | BusinessException e) {
+                log.warn("delete object error, key = {}", key, e);
+                failedKeys.add(key);
+            }
+        }
+        return failedKeys;
+    }
+
+    @Override
+    public List<StorageObjectSummary> listObjects(String prefix, int maxKeys) {
+        String normalizedPrefix = normalizeKey(StrUtil.nullToEmpty(prefix));
+        // 从前缀所在的目录开始遍历，不扫描整个根目录
+        int slash = normalizedPrefix.lastIndexOf('/');
+        Path start = slash < 0 ? root : resolve(normalizedPrefix.substring(0, slash));
+        List<StorageObjectSummary> summaryList = new ArrayList<>();
+        if (!Files.isDirectory(start)) {
+            return summaryList;
+        }
+        Path multipartDir = root.resolve(MULTIPART_DIR);
+        try (Stream<Path> pathStream = Files.walk(start)) {
+            pathStream.filter(path -> !path.startsWith(multipartDir))
+                    .filter(path -> !path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                    .filter(key -> key.startsWith(normalizedPrefix))
+                    .sorted()
+                    .limit(maxKeys)
+                    .forEach(key -> {
+                        Path path = root.resolve(key);
+                        StorageObjectSummary summary = new StorageObjectSummary();
+                        summary.setKey(key);
+                        summary.setSize(FileUtil.size(path.toFile()));
+                        summary.setLastModified(new Date(path.toFile().lastModified()));
+                        summaryList.add(summary);
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("list objects error, prefix = " + prefix, e);
+        }
+        return summaryList;
+    }
+
+    @Override
+    public String generatePresignedPutUrl(String key, Date expiration, long contentLength) {
+        throw new BusinessException(ErrorCode.OPERATION_ERROR, "当前存储不支持直传");
+    }
+
+    @Override
+    public String getObjectUrl(String key) {
+        return storageConfig.getLocalHost() + "/" + normalizeKey(key);
+    }
+
+    @Override
+    public String initiateMultipartUpload(String key) {
+        String uploadId = IdUtil.fastSimpleUUID();
+        try {
+            Files.createDirectories(root.resolve(MULTIPART_DIR).resolve(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("initiate multipart upload error, key = " + key, e);
+        }
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] bytes) {
+        Path partPath = multipartDir(uploadId).resolve(String.valueOf(partNumber));
+        try (FileChannel fileChannel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("upload part error, uploadId = " + uploadId, e);
+        }
+        return DigestUtil.md5Hex(bytes);
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, Map<Integer, String> partETagMap) {
+        Path uploadDir = multipartDir(uploadId);
+        Path target = resolve(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + "." + uploadId + TEMP_SUFFIX);
+            try (FileChannel targetChannel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                // 按编号顺序拼接，文件之间直接由内核拷贝
+                for (Integer partNumber : new TreeMap<>(partETagMap).keySet()) {
+                    try (FileChannel partChannel = FileChannel.open(uploadDir.resolve(String.valueOf(partNumber)), StandardOpenOption.READ)) {
+                        long size = partChannel.size();
+                        long position = 0;
+                        while (position < size) {
+                            position += partChannel.transferTo(position, size - position, targetChannel);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            moveAtomically(temp, target);
+            FileUtil.del(uploadDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("complete multipart upload error, uploadId = " + uploadId, e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        FileUtil.del(multipartDir(uploadId));
+    }
+
+    /**
+     * 把键解析为根目录下的路径，拒绝跳出根目录的键
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(normalizeKey(key)).normalize();
+        if (!path.startsWith(root) || path.startsWith(root.resolve(MULTIPART_DIR))) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "非法的文件路径");
+        }
+        return path;
+    }
+
+    private Path multipartDir(String uploadId) {
+        if (StrUtil.isBlank(uploadId) || !uploadId.matches("[0-9a-zA-Z]+")) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "非法的上传 id");
+        }
+        return root.resolve(MULTIPART_DIR).resolve(uploadId);
+    }
+
+    /**
+     * 去掉开头的 /，与 COS 的键保持一致
+     */
+    private String normalizeKey(String key) {
+        return StrUtil.removePrefix(StrUtil.nullToEmpty(key).replace('\\', '/'), "/");
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(source);
+            throw e;
+        }
+    }
+
+    private StorageObjectMetadata readMetadata(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        StorageObjectMetadata metadata = new StorageObjectMetadata();
+        metadata.setContentLength(attributes.size());
+        metadata.setInstanceLength(attributes.size());
+        metadata.setContentType(FileUtil.getMimeType(path.toString()));
+        metadata.setLastModified(new Date(lastModified));
+        // 没有保存内容摘要，用修改时间与大小生成 ETag
+        metadata.setETag(Long.toHexString(lastModified) + "-" + Long.toHexString(attributes.size()));
+        return metadata;
+    }
+
+    private static void closeQuietly(FileChannel fileChannel) {
+        if (fileChannel == null) {
+            return;
+        }
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            log.warn("close file channel error", e);
+        }
+    }
+
+    /**
+     * 读取文件通道中一段区间的输入流（按位置读取，多个请求不共享通道位置）
+     */
+    private static class FileChannelInputStream extends InputStream {
+
+        private final FileChannel fileChannel;
+
+        private long position;
+
+        private final long end;
+
+        FileChannelInputStream(FileChannel fileChannel, long position, long length) {
+            this.fileChannel = fileChannel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            return read(bytes, 0, 1) == -1 ? -1 : bytes[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = (int) Math.min(length, end - position);
+            int read = fileChannel.read(ByteBuffer.wrap(bytes, offset, n), position);
+            if (read <= 0) {
+                // 文件在读取期间被截断
+                return -1;
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            fileChannel.close();
+        }
+    }
+}
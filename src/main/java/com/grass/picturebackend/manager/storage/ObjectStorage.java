@@ -0,0 +1,149 @@
+package com.grass.picturebackend.manager.storage;
+
+import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 对象存储接口，业务代码只依赖该接口，具体实现由 storage.type 配置决定（cos / local）
+ * @date 2025年05月12日 09:30
+ */
+public interface ObjectStorage {
+
+    /**
+     * 上传对象
+     *
+     * @param key         唯一键
+     * @param inputStream 输入流（调用方负责关闭）
+     * @param metadata    元信息（必须包含 contentLength）
+     */
+    void putObject(String key, InputStream inputStream, StorageObjectMetadata metadata);
+
+    /**
+     * 下载对象
+     *
+     * @param key 唯一键
+     * @return 对象（调用方负责关闭）
+     */
+    StorageObject getObject(String key);
+
+    /**
+     * 下载对象的一部分
+     *
+     * @param key   唯一键
+     * @param start 起始字节（包含）
+     * @param end   结束字节（包含）
+     * @return 对象（调用方负责关闭）
+     */
+    StorageObject getObject(String key, long start, long end);
+
+    /**
+     * 查询对象元信息
+     *
+     * @param key 唯一键
+     * @return 元信息，对象不存在时返回 null
+     */
+    StorageObjectMetadata headObject(String key);
+
+    /**
+     * 删除对象
+     *
+     * @param key 唯一键
+     */
+    void deleteObject(String key);
+
+    /**
+     * 在同一存储内复制对象
+     *
+     * @param sourceKey 源对象键
+     * @param targetKey 目标对象键（已存在时覆盖）
+     */
+    void copyObject(String sourceKey, String targetKey);
+
+    /**
+     * 批量删除对象
+     *
+     * @param keys 唯一键列表
+     * @return 删除失败的键
+     */
+    List<String> deleteObjects(List<String> keys);
+
+    /**
+     * 列出对象
+     *
+     * @param prefix  键前缀
+     * @param maxKeys 最多返回条数
+     * @return 对象摘要列表
+     */
+    List<StorageObjectSummary> listObjects(String prefix, int maxKeys);
+
+    /**
+     * 获取对象的访问地址
+     *
+     * @param key 唯一键
+     * @return 访问地址
+     */
+    String getObjectUrl(String key);
+
+    /**
+     * 生成预签名上传地址，客户端可在有效期内直接 PUT 对象，不经过本服务
+     *
+     * @param key           唯一键
+     * @param expiration    过期时间
+     * @param contentLength 文件大小（参与签名，上传其他大小的文件会被拒绝）
+     * @return 上传地址
+     */
+    String generatePresignedPutUrl(String key, Date expiration, long contentLength);
+
+    /**
+     * 根据访问地址反解对象键
+     *
+     * @param url 访问地址
+     * @return 唯一键，不是当前存储的地址时返回 null
+     */
+    default String getObjectKey(String url) {
+        String prefix = getObjectUrl("");
+        if (url == null || url.length() <= prefix.length() || !url.startsWith(prefix)) {
+            return null;
+        }
+        return url.substring(prefix.length());
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return 分块上传 id
+     */
+    String initiateMultipartUpload(String key);
+
+    /**
+     * 上传分块
+     *
+     * @param key        唯一键
+     * @param uploadId   分块上传 id
+     * @param partNumber 分块编号（从 1 开始）
+     * @param bytes      分块内容
+     * @return 分块 ETag
+     */
+    String uploadPart(String key, String uploadId, int partNumber, byte[] bytes);
+
+    /**
+     * 完成分块上传
+     *
+     * @param key         唯一键
+     * @param uploadId    分块上传 id
+     * @param partETagMap 全部分块的 ETag，key 为分块编号
+     */
+    void completeMultipartUpload(String key, String uploadId, Map<Integer, String> partETagMap);
+
+    /**
+     * 取消分块上传，清理已上传的分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     */
+    void abortMultipartUpload(String key, String uploadId);
+}
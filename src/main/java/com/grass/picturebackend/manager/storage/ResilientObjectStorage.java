@@ -0,0 +1,355 @@
+package com.grass.picturebackend.manager.storage;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.grass.picturebackend.config.CosClientConfig;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.manager.CosManager;
+import com.grass.picturebackend.model.vo.StorageOperationStatsVO;
+import com.qcloud.cos.exception.CosServiceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 带保护的 COS 存储（业务代码注入的 ObjectStorage 即为该实现）
+ * 每类操作独立的信号量舱壁与熔断器，存储抖动时快速失败，不会占满请求线程拖垮只访问数据库的接口；
+ * 读操作在主请求超过 p95 耗时仍未返回时再发一次对冲请求，取先返回的结果；
+ * 对冲请求单独占用一个并发许可，每个许可在各自的请求结束时才释放，实际并发不会超过舱壁上限
+ * @date 2025年05月18日 10:20
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "cos", matchIfMissing = true)
+@Slf4j
+public class ResilientObjectStorage implements ObjectStorage {
+
+    private static final String OPERATION_PUT = "put";
+
+    private static final String OPERATION_GET = "get";
+
+    private static final String OPERATION_HEAD = "head";
+
+    private static final String OPERATION_DELETE = "delete";
+
+    private static final String OPERATION_LIST = "list";
+
+    private static final String OPERATION_MULTIPART = "multipart";
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    private final Map<String, StorageOperationGuard> guardMap = new LinkedHashMap<>();
+
+    /**
+     * 读操作执行线程池：主请求与对冲请求都在这里执行，调用线程只负责等待；
+     * 满了就由调用线程直接执行（不对冲）
+     */
+    private ThreadPoolExecutor readExecutor;
+
+    @PostConstruct
+    public void init() {
+        for (String operation : new String[]{OPERATION_PUT, OPERATION_GET, OPERATION_HEAD, OPERATION_DELETE,
+                OPERATION_LIST, OPERATION_MULTIPART}) {
+            guardMap.put(operation, new StorageOperationGuard(operation, cosClientConfig));
+        }
+        // 每个线程都持有一个 get 或 head 的并发许可，线程数不超过两者的上限之和
+        readExecutor = new ThreadPoolExecutor(8, cosClientConfig.getMaxConcurrentCalls() * 4, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                ThreadFactoryBuilder.create().setNamePrefix("storage-read-").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        readExecutor.shutdownNow();
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, StorageObjectMetadata metadata) {
+        call(OPERATION_PUT, () -> {
+            cosManager.putObject(key, inputStream, metadata);
+            return null;
+        });
+    }
+
+    @Override
+    public StorageObject getObject(String key) {
+        return hedgedCall(OPERATION_GET, () -> cosManager.getObject(key), this::closeQuietly);
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        return hedgedCall(OPERATION_GET, () -> cosManager.getObject(key, start, end), this::closeQuietly);
+    }
+
+    @Override
+    public StorageObjectMetadata headObject(String key) {
+        return hedgedCall(OPERATION_HEAD, () -> cosManager.headObject(key), metadata -> {
+        });
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        call(OPERATION_DELETE, () -> {
+            cosManager.deleteObject(key);
+            return null;
+        });
+    }
+
+    @Override
+    public void copyObject(String sourceKey, String targetKey) {
+        call(OPERATION_PUT, () -> {
+            cosManager.copyObject(sourceKey, targetKey);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        return call(OPERATION_DELETE, () -> cosManager.deleteObjects(keys));
+    }
+
+    @Override
+    public List<StorageObjectSummary> listObjects(String prefix, int maxKeys) {
+        return call(OPERATION_LIST, () -> cosManager.listObjects(prefix, maxKeys));
+    }
+
+    @Override
+    public String getObjectUrl(String key) {
+        return cosManager.getObjectUrl(key);
+    }
+
+    @Override
+    public String generatePresignedPutUrl(String key, Date expiration, long contentLength) {
+        // 本地签名，不访问存储
+        return cosManager.generatePresignedPutUrl(key, expiration, contentLength);
+    }
+
+    @Override
+    public String initiateMultipartUpload(String key) {
+        return call(OPERATION_MULTIPART, () -> cosManager.initiateMultipartUpload(key));
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] bytes) {
+        return call(OPERATION_MULTIPART, () -> cosManager.uploadPart(key, uploadId, partNumber, bytes));
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, Map<Integer, String> partETagMap) {
+        call(OPERATION_MULTIPART, () -> {
+            cosManager.completeMultipartUpload(key, uploadId, partETagMap);
+            return null;
+        });
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        call(OPERATION_MULTIPART, () -> {
+            cosManager.abortMultipartUpload(key, uploadId);
+            return null;
+        });
+    }
+
+    /**
+     * 各操作的统计信息
+     */
+    public List<StorageOperationStatsVO> getStats() {
+        return guardMap.values().stream().map(StorageOperationGuard::getStats).collect(Collectors.toList());
+    }
+
+    /**
+     * 在舱壁与熔断保护下执行
+     */
+    private <T> T call(String operation, Supplier<T> supplier) {
+        StorageOperationGuard guard = guardMap.get(operation);
+        guard.acquire();
+        return runGuarded(guard, supplier);
+    }
+
+    /**
+     * 在调用线程执行（已持有许可），记录结果并释放许可
+     */
+    private <T> T runGuarded(StorageOperationGuard guard, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            T result = supplier.get();
+            guard.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            onException(guard, e, System.nanoTime() - start);
+            throw e;
+        } finally {
+            guard.release();
+        }
+    }
+
+    /**
+     * 在读线程池执行（已持有许可），请求结束时释放许可
+     *
+     * @param record 是否计入耗时与熔断统计（只统计主请求，对冲请求的耗时会拉低 p95）
+     * @throws RejectedExecutionException 线程池已满，许可仍由调用方持有
+     */
+    private <T> CompletableFuture<T> supplyGuarded(StorageOperationGuard guard, Supplier<T> supplier, boolean record) {
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(supplier, readExecutor).whenComplete((result, throwable) -> {
+            long nanos = System.nanoTime() - start;
+            guard.release();
+            if (!record) {
+                return;
+            }
+            if (throwable == null) {
+                guard.onSuccess(nanos);
+            } else {
+                onException(guard, unwrap(throwable), nanos);
+            }
+        });
+    }
+
+    /**
+     * 在舱壁与熔断保护下执行读操作，超过 p95 耗时未返回时发起对冲请求
+     *
+     * @param discard 落后返回的结果的清理（如关闭输入流）
+     */
+    private <T> T hedgedCall(String operation, Supplier<T> supplier, Consumer<T> discard) {
+        StorageOperationGuard guard = guardMap.get(operation);
+        long hedgeDelayMillis = cosClientConfig.isHedgeEnabled() ? guard.getHedgeDelayMillis() : -1;
+        if (hedgeDelayMillis < 0) {
+            return call(operation, supplier);
+        }
+        guard.acquire();
+        return hedge(guard, supplier, discard, hedgeDelayMillis);
+    }
+
+    private <T> T hedge(StorageOperationGuard guard, Supplier<T> supplier, Consumer<T> discard, long hedgeDelayMillis) {
+        CompletableFuture<T> primary;
+        try {
+            primary = supplyGuarded(guard, supplier, true);
+        } catch (RejectedExecutionException e) {
+            return runGuarded(guard, supplier);
+        }
+        try {
+            return primary.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 主请求较慢，发起对冲请求
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.thenAccept(discard);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取文件被中断");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        // 对冲请求另取一个许可，舱壁已满时不对冲
+        if (!guard.tryAcquireHedge()) {
+            return await(primary, discard);
+        }
+        CompletableFuture<T> secondary;
+        try {
+            secondary = supplyGuarded(guard, supplier, false);
+        } catch (RejectedExecutionException e) {
+            guard.release();
+            return await(primary, discard);
+        }
+        guard.onHedged();
+        // 任一成功即返回，两个都失败才失败；落后的结果直接清理
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                if (!first.complete(result)) {
+                    discard.accept(result);
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(throwable);
+            }
+        });
+        secondary.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                if (first.complete(result)) {
+                    guard.onHedgeWin();
+                } else {
+                    discard.accept(result);
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(throwable);
+            }
+        });
+        return await(first, discard);
+    }
+
+    private <T> T await(CompletableFuture<T> future, Consumer<T> discard) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.thenAccept(discard);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取文件被中断");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private RuntimeException unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        // CompletableFuture 组合时异常可能再包一层
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+    }
+
+    private void closeQuietly(StorageObject storageObject) {
+        try {
+            storageObject.close();
+        } catch (IOException e) {
+            log.warn("close storage object error, key = {}", storageObject.getKey(), e);
+        }
+    }
+
+    /**
+     * 只有网络错误、超时、服务端错误与限流计为失败，对象不存在、参数错误等不影响熔断
+     */
+    private void onException(StorageOperationGuard guard, RuntimeException e, long nanos) {
+        boolean failure = true;
+        if (e instanceof BusinessException) {
+            failure = false;
+        } else if (e instanceof CosServiceException) {
+            int statusCode = ((CosServiceException) e).getStatusCode();
+            failure = statusCode >= 500 || statusCode == 429;
+        }
+        if (failure) {
+            log.warn("storage call failed, cost = {} ms", TimeUnit.NANOSECONDS.toMillis(nanos), e);
+            guard.onFailure(nanos);
+        } else {
+            guard.onSuccess(nanos);
+        }
+    }
+}
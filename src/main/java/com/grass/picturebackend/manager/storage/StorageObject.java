@@ -0,0 +1,31 @@
+package com.grass.picturebackend.manager.storage;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 下载到的对象，使用完必须关闭以释放连接或文件句柄
+ */
+@Getter
+public class StorageObject implements Closeable {
+
+    private final String key;
+
+    private final StorageObjectMetadata metadata;
+
+    private final InputStream content;
+
+    public StorageObject(String key, StorageObjectMetadata metadata, InputStream content) {
+        this.key = key;
+        this.metadata = metadata;
+        this.content = content;
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.grass.picturebackend.manager.storage;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 对象元信息
+ */
+@Data
+public class StorageObjectMetadata {
+
+    /**
+     * 内容长度（范围下载时为本次返回的长度）
+     */
+    private long contentLength;
+
+    /**
+     * 对象总长度
+     */
+    private long instanceLength;
+
+    private String contentType;
+
+    private String eTag;
+
+    private Date lastModified;
+}
@@ -0,0 +1,18 @@
+package com.grass.picturebackend.manager.storage;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 对象摘要（列举对象时返回）
+ */
+@Data
+public class StorageObjectSummary {
+
+    private String key;
+
+    private long size;
+
+    private Date lastModified;
+}
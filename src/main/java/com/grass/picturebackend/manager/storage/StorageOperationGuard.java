@@ -0,0 +1,292 @@
+package com.grass.picturebackend.manager.storage;
+
+import com.grass.picturebackend.config.CosClientConfig;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.model.vo.StorageOperationStatsVO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 单类存储操作的保护：信号量舱壁 + 按最近 N 次调用失败率熔断 + 耗时统计
+ * @date 2025年05月18日 09:50
+ */
+@Slf4j
+public class StorageOperationGuard {
+
+    /**
+     * 耗时采样数（环形缓冲区，只保留最近的样本）
+     */
+    private static final int LATENCY_SAMPLES = 1024;
+
+    /**
+     * 计算对冲等待时间所需的最少样本数
+     */
+    private static final int MIN_HEDGE_SAMPLES = 100;
+
+    /**
+     * 对冲等待时间（p95）的缓存时间
+     */
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String operation;
+
+    private final CosClientConfig config;
+
+    private final Semaphore bulkhead;
+
+    /**
+     * 熔断窗口：最近 N 次调用是否失败（修改时持有 this 锁）
+     */
+    private final boolean[] window;
+
+    private int windowIndex;
+
+    private int windowCount;
+
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+
+    private volatile long openedAt;
+
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+    private int halfOpenSuccesses;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+
+    private final AtomicLong latencyIndex = new AtomicLong();
+
+    private volatile long hedgeDelayMillis = -1;
+
+    private volatile long hedgeDelayComputedAt;
+
+    private final LongAdder successCount = new LongAdder();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder shortCircuitedCount = new LongAdder();
+
+    private final LongAdder hedgedCount = new LongAdder();
+
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    public StorageOperationGuard(String operation, CosClientConfig config) {
+        this.operation = operation;
+        this.config = config;
+        this.bulkhead = new Semaphore(config.getMaxConcurrentCalls());
+        this.window = new boolean[config.getBreakerWindowSize()];
+        // 首次调用时立即计算
+        this.hedgeDelayComputedAt = System.nanoTime() - HEDGE_DELAY_REFRESH_NANOS - 1;
+    }
+
+    /**
+     * 获取调用许可，并发已满或熔断中时快速失败
+     */
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(config.getBulkheadWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedCount.increment();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "存储服务繁忙，请稍后重试");
+        }
+        if (!allowRequest()) {
+            bulkhead.release();
+            shortCircuitedCount.increment();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "存储服务暂不可用，请稍后重试");
+        }
+    }
+
+    /**
+     * 获取对冲请求的许可：不等待，并发已满时返回 false（不对冲）
+     */
+    public boolean tryAcquireHedge() {
+        return bulkhead.tryAcquire();
+    }
+
+    /**
+     * 释放调用许可
+     */
+    public void release() {
+        bulkhead.release();
+    }
+
+    /**
+     * 调用成功（包括对象不存在等业务上的正常结果），慢调用按失败计入熔断统计
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void onSuccess(long nanos) {
+        successCount.increment();
+        recordLatency(nanos);
+        record(TimeUnit.NANOSECONDS.toMillis(nanos) > config.getBreakerSlowCallMillis());
+    }
+
+    /**
+     * 调用失败（网络错误、超时、服务端 5xx）
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void onFailure(long nanos) {
+        failureCount.increment();
+        recordLatency(nanos);
+        record(true);
+    }
+
+    public void onHedged() {
+        hedgedCount.increment();
+    }
+
+    public void onHedgeWin() {
+        hedgeWinCount.increment();
+    }
+
+    /**
+     * 对冲等待时间：最近调用耗时的 p95，样本不足时返回 -1（不对冲）
+     */
+    public long getHedgeDelayMillis() {
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAt > HEDGE_DELAY_REFRESH_NANOS) {
+            long[] samples = snapshot();
+            hedgeDelayMillis = samples.length < MIN_HEDGE_SAMPLES ? -1
+                    : Math.max(config.getHedgeMinDelayMillis(), TimeUnit.NANOSECONDS.toMillis(percentile(samples, 95)));
+            hedgeDelayComputedAt = now;
+        }
+        return hedgeDelayMillis;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 统计信息
+     */
+    public StorageOperationStatsVO getStats() {
+        long[] samples = snapshot();
+        StorageOperationStatsVO storageOperationStatsVO = new StorageOperationStatsVO();
+        storageOperationStatsVO.setOperation(operation);
+        storageOperationStatsVO.setBreakerState(state.name());
+        storageOperationStatsVO.setInFlight(config.getMaxConcurrentCalls() - bulkhead.availablePermits());
+        storageOperationStatsVO.setSuccessCount(successCount.sum());
+        storageOperationStatsVO.setFailureCount(failureCount.sum());
+        storageOperationStatsVO.setRejectedCount(rejectedCount.sum());
+        storageOperationStatsVO.setShortCircuitedCount(shortCircuitedCount.sum());
+        storageOperationStatsVO.setHedgedCount(hedgedCount.sum());
+        storageOperationStatsVO.setHedgeWinCount(hedgeWinCount.sum());
+        storageOperationStatsVO.setP50Millis(TimeUnit.NANOSECONDS.toMillis(percentile(samples, 50)));
+        storageOperationStatsVO.setP95Millis(TimeUnit.NANOSECONDS.toMillis(percentile(samples, 95)));
+        storageOperationStatsVO.setP99Millis(TimeUnit.NANOSECONDS.toMillis(percentile(samples, 99)));
+        storageOperationStatsVO.setMaxMillis(TimeUnit.NANOSECONDS.toMillis(samples.length == 0 ? 0 : samples[samples.length - 1]));
+        return storageOperationStatsVO;
+    }
+
+    private boolean allowRequest() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < TimeUnit.SECONDS.toMillis(config.getBreakerOpenSeconds())) {
+                return false;
+            }
+            synchronized (this) {
+                if (state == State.OPEN) {
+                    state = State.HALF_OPEN;
+                    halfOpenSuccesses = 0;
+                    halfOpenPermits.set(config.getBreakerHalfOpenCalls());
+                    log.info("storage breaker half open, operation = {}", operation);
+                }
+            }
+        }
+        // 半开状态只放行少量试探调用
+        return halfOpenPermits.getAndDecrement() > 0;
+    }
+
+    private synchronized void record(boolean failure) {
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                open();
+            } else if (++halfOpenSuccesses >= config.getBreakerHalfOpenCalls()) {
+                state = State.CLOSED;
+                resetWindow();
+                log.info("storage breaker closed, operation = {}", operation);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+        if (windowCount >= config.getBreakerMinCalls()
+                && windowFailures * 100 >= config.getBreakerFailureRateThreshold() * windowCount) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+        log.warn("storage breaker opened, operation = {}", operation);
+    }
+
+    private void resetWindow() {
+        Arrays.fill(window, false);
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void recordLatency(long nanos) {
+        latencies[(int) (latencyIndex.getAndIncrement() % LATENCY_SAMPLES)] = nanos;
+    }
+
+    /**
+     * 最近耗时样本（已排序）
+     */
+    private long[] snapshot() {
+        int count = (int) Math.min(latencyIndex.get(), LATENCY_SAMPLES);
+        long[] samples = Arrays.copyOf(latencies, count);
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private long percentile(long[] sortedSamples, int percent) {
+        if (sortedSamples.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, index)];
+    }
+}
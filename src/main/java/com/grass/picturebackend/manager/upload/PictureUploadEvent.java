@@ -0,0 +1,61 @@
+package com.grass.picturebackend.manager.upload;
+
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import lombok.Data;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 异步上传事件（环形队列中的槽位会被复用，处理完必须 clear）
+ * @date 2025年05月10日 10:05
+ */
+@Data
+public class PictureUploadEvent {
+
+    /**
+     * 待处理的图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 图片内容
+     */
+    private byte[] bytes;
+
+    /**
+     * 原始文件名
+     */
+    private String originalFilename;
+
+    /**
+     * 文件类型
+     */
+    private String contentType;
+
+    /**
+     * 上传路径前缀
+     */
+    private String uploadPathPrefix;
+
+    /**
+     * 各阶段逐步填充的上传结果
+     */
+    private UploadPictureResult uploadPictureResult;
+
+    /**
+     * 失败原因，不为空时后续阶段直接跳过
+     */
+    private String errorMessage;
+
+    /**
+     * 释放引用，避免环形队列长期持有图片内容
+     */
+    public void clear() {
+        pictureId = null;
+        bytes = null;
+        originalFilename = null;
+        contentType = null;
+        uploadPathPrefix = null;
+        uploadPictureResult = null;
+        errorMessage = null;
+    }
+}
@@ -0,0 +1,247 @@
+package com.grass.picturebackend.manager.upload;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import com.grass.picturebackend.exception.BusinessException;
+import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.manager.FileManager;
+import com.grass.picturebackend.manager.index.PictureChangeEvent;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.enums.PictureUploadStatusEnum;
+import com.lmax.disruptor.IgnoreExceptionHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 基于 Disruptor 的异步上传流水线
+ * 解析（文件头 + 内容哈希）→ 存储（去重 + 上传对象存储，压缩图与缩略图随上传生成）→ 落库（按批更新）
+ * 环形队列满时直接拒绝新的上传，请求线程不会被耗尽
+ * @date 2025年05月10日 10:12
+ */
+@Component
+@Slf4j
+public class PictureUploadPipeline {
+
+    /**
+     * 环形队列大小（必须是 2 的幂，每个槽位最多持有一张 2M 的图片）
+     */
+    private static final int RING_BUFFER_SIZE = 128;
+
+    /**
+     * 解析阶段并行数（CPU 密集）
+     */
+    private static final int METADATA_WORKER_COUNT = 2;
+
+    /**
+     * 存储阶段并行数（网络 IO 密集）
+     */
+    private static final int STORAGE_WORKER_COUNT = 8;
+
+    /**
+     * 落库阶段单批最大条数
+     */
+    private static final int PERSIST_BATCH_SIZE = 50;
+
+    /**
+     * 超过该时长仍在处理中的图片视为已丢失（内容只存在于内存，进程重启后无法继续）
+     */
+    private static final long STALE_MINUTES = 10;
+
+    @Resource
+    private FileManager fileManager;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    private Disruptor<PictureUploadEvent> disruptor;
+
+    private RingBuffer<PictureUploadEvent> ringBuffer;
+
+    /**
+     * 落库阶段的待更新批次（只由落库线程访问）
+     */
+    private final List<Picture> persistBatch = new ArrayList<>();
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        disruptor = new Disruptor<>(PictureUploadEvent::new, RING_BUFFER_SIZE,
+                ThreadFactoryBuilder.create().setNamePrefix("picture-upload-").build(),
+                ProducerType.MULTI, new BlockingWaitStrategy());
+        // 各阶段内部已处理异常，这里兜底保证处理线程不会因异常退出
+        disruptor.setDefaultExceptionHandler(new IgnoreExceptionHandler());
+        WorkHandler<PictureUploadEvent>[] metadataHandlers = new WorkHandler[METADATA_WORKER_COUNT];
+        for (int i = 0; i < METADATA_WORKER_COUNT; i++) {
+            metadataHandlers[i] = this::handleMetadata;
+        }
+        WorkHandler<PictureUploadEvent>[] storageHandlers = new WorkHandler[STORAGE_WORKER_COUNT];
+        for (int i = 0; i < STORAGE_WORKER_COUNT; i++) {
+            storageHandlers[i] = this::handleStorage;
+        }
+        disruptor.handleEventsWithWorkerPool(metadataHandlers)
+                .thenHandleEventsWithWorkerPool(storageHandlers)
+                .then(this::handlePersist);
+        ringBuffer = disruptor.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            disruptor.shutdown(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("picture upload pipeline shutdown timeout", e);
+            disruptor.halt();
+        }
+    }
+
+    /**
+     * 提交异步上传
+     *
+     * @param pictureId        已保存的待处理图片 id
+     * @param bytes            图片内容
+     * @param originalFilename 原始文件名
+     * @param contentType      文件类型
+     * @param uploadPathPrefix 上传路径前缀
+     */
+    public void publish(Long pictureId, byte[] bytes, String originalFilename, String contentType, String uploadPathPrefix) {
+        long sequence;
+        try {
+            sequence = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传人数过多，请稍后重试");
+        }
+        try {
+            PictureUploadEvent event = ringBuffer.get(sequence);
+            event.setPictureId(pictureId);
+            event.setBytes(bytes);
+            event.setOriginalFilename(originalFilename);
+            event.setContentType(contentType);
+            event.setUploadPathPrefix(uploadPathPrefix);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * 解析阶段：解析文件头、计算内容哈希
+     */
+    private void handleMetadata(PictureUploadEvent event) {
+        try {
+            UploadPictureResult uploadPictureResult = fileManager.inspectPicture(new ByteArrayResource(event.getBytes()),
+                    event.getOriginalFilename());
+            event.setUploadPictureResult(uploadPictureResult);
+        } catch (BusinessException e) {
+            event.setErrorMessage(e.getMessage());
+        } catch (Exception e) {
+            log.error("inspect picture error, pictureId = {}", event.getPictureId(), e);
+            event.setErrorMessage("图片解析失败");
+        }
+    }
+
+    /**
+     * 存储阶段：去重并上传到对象存储
+     */
+    private void handleStorage(PictureUploadEvent event) {
+        if (event.getErrorMessage() != null) {
+            return;
+        }
+        try {
+            UploadPictureResult uploadPictureResult = fileManager.storePicture(new ByteArrayResource(event.getBytes()),
+                    event.getOriginalFilename(), event.getContentType(), event.getUploadPictureResult(), event.getUploadPathPrefix());
+            event.setUploadPictureResult(uploadPictureResult);
+        } catch (BusinessException e) {
+            event.setErrorMessage(e.getMessage());
+        } catch (Exception e) {
+            log.error("store picture error, pictureId = {}", event.getPictureId(), e);
+            event.setErrorMessage("图片上传失败");
+        }
+    }
+
+    /**
+     * 落库阶段：攒批更新图片信息与上传状态
+     */
+    private void handlePersist(PictureUploadEvent event, long sequence, boolean endOfBatch) {
+        try {
+            Picture picture = new Picture();
+            picture.setId(event.getPictureId());
+            if (event.getErrorMessage() != null) {
+                log.info("async upload failed, pictureId = {}, reason = {}", event.getPictureId(), event.getErrorMessage());
+                picture.setUploadStatus(PictureUploadStatusEnum.FAILED.getValue());
+            } else {
+                UploadPictureResult uploadPictureResult = event.getUploadPictureResult();
+                picture.setUrl(uploadPictureResult.getUrl());
+                picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+                picture.setVariants(JSONUtil.toJsonStr(uploadPictureResult.getVariants()));
+                picture.setPicSize(uploadPictureResult.getPicSize());
+                picture.setPicWidth(uploadPictureResult.getPicWidth());
+                picture.setPicHeight(uploadPictureResult.getPicHeight());
+                picture.setPicScale(uploadPictureResult.getPicScale());
+                picture.setPicFormat(uploadPictureResult.getPicFormat());
+                picture.setPicColor(uploadPictureResult.getPicColor());
+                picture.setPicColorLab(uploadPictureResult.getPicColorLab());
+                picture.setPicHash(uploadPictureResult.getPicHash());
+                picture.setContentHash(uploadPictureResult.getContentHash());
+                picture.setUploadStatus(PictureUploadStatusEnum.SUCCESS.getValue());
+            }
+            persistBatch.add(picture);
+        } finally {
+            event.clear();
+        }
+        if (endOfBatch || persistBatch.size() >= PERSIST_BATCH_SIZE) {
+            try {
+                Db.updateBatchById(persistBatch);
+                // 异步上传的图片都在公共图库
+                applicationEventPublisher.publishEvent(new PictureChangeEvent(
+                        persistBatch.stream().map(Picture::getId).collect(Collectors.toList()), Collections.singletonList(null)));
+            } catch (Exception e) {
+                log.error("persist async upload result error, size = {}", persistBatch.size(), e);
+            } finally {
+                persistBatch.clear();
+            }
+        }
+    }
+
+    /**
+     * 定时把遗留的处理中图片标记为失败
+     * 重启时不足超时时长的图片同样不在任何实例的队列中，只能等到超时后由这里处理，不能只在启动时执行一次
+     */
+    @Scheduled(fixedDelay = 60 * 1000L)
+    public void markStalePicturesFailed() {
+        Date staleTime = DateUtil.offsetMinute(new Date(), (int) -STALE_MINUTES);
+        int count = pictureMapper.update(null, new LambdaUpdateWrapper<Picture>()
+                .set(Picture::getUploadStatus, PictureUploadStatusEnum.FAILED.getValue())
+                .eq(Picture::getUploadStatus, PictureUploadStatusEnum.PROCESSING.getValue())
+                .lt(Picture::getCreateTime, staleTime));
+        if (count > 0) {
+            log.info("mark stale processing pictures failed, count = {}", count);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.grass.picturebackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.grass.picturebackend.model.entity.PictureContent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Collection;
+
+/**
+  * @description 针对表【picture_content(图片内容索引)】的数据库操作Mapper
+  * @createDate 2025-05-09 10:20:11
+  * @Entity com.grass.picturebackend.model.entity.PictureContent
+*/
+@Mapper
+public interface PictureContentMapper extends BaseMapper<PictureContent> {
+
+    /**
+     * 流式读取全部内容哈希（用于启动时预热布隆过滤器，不会一次性加载到内存）
+     *
+     * @param resultHandler 逐行处理
+     */
+    void streamAllContentHash(ResultHandler<String> resultHandler);
+
+    /**
+     * 删除没有未删除图片引用的内容索引（判断与删除在同一条语句中完成）
+     *
+     * @param contentHashes 内容哈希
+     * @return 删除的条数
+     */
+    int deleteUnreferenced(@Param("contentHashes") Collection<String> contentHashes);
+}
@@ -3,6 +3,7 @@ package com.grass.picturebackend.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.grass.picturebackend.model.entity.Picture;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
   * @description 针对表【picture(图片)】的数据库操作Mapper
@@ -12,6 +13,40 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface PictureMapper extends BaseMapper<Picture> {
 
+    /**
+     * 流式读取已上传完成且有主色调的图片（id、spaceId、picColorLab，用于启动时构建颜色索引）
+     *
+     * @param resultHandler 逐行处理
+     */
+    void streamColorIndex(ResultHandler<Picture> resultHandler);
+
+    /**
+     * 流式读取已上传完成且有感知哈希的图片（id、spaceId、picHash，用于启动时构建哈希索引）
+     *
+     * @param resultHandler 逐行处理
+     */
+    void streamHashIndex(ResultHandler<Picture> resultHandler);
+
+    /**
+     * 流式读取未删除的图片（id、name、introduction、tags，用于启动时构建全文索引）
+     *
+     * @param resultHandler 逐行处理
+     */
+    void streamTextIndex(ResultHandler<Picture> resultHandler);
+
+    /**
+     * 流式读取未删除的图片（id、category、tags，用于启动时构建标签位图索引）
+     *
+     * @param resultHandler 逐行处理
+     */
+    void streamTagIndex(ResultHandler<Picture> resultHandler);
+
+    /**
+     * 表行数估算值（information_schema，包括已删除的图片）
+     *
+     * @return 行数
+     */
+    Long estimateRowCount();
 }
 
 
@@ -0,0 +1,15 @@
+package com.grass.picturebackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.grass.picturebackend.model.entity.PicturePurgeTask;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+  * @description 针对表【picture_purge_task(待清理的存储对象)】的数据库操作Mapper
+  * @createDate 2025-05-16 09:30:27
+  * @Entity com.grass.picturebackend.model.entity.PicturePurgeTask
+*/
+@Mapper
+public interface PicturePurgeTaskMapper extends BaseMapper<PicturePurgeTask> {
+
+}
@@ -0,0 +1,69 @@
+package com.grass.picturebackend.model.convert;
+
+import cn.hutool.json.JSONUtil;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
+import com.grass.picturebackend.model.entity.Picture;
+import com.grass.picturebackend.model.vo.PictureVO;
+import com.grass.picturebackend.utils.TagUtils;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+import java.util.List;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片与图片封装类的转换（编译期生成实现，不使用反射）
+ * @date 2025年05月28日 10:00
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface PictureConvert {
+
+    PictureConvert INSTANCE = Mappers.getMapper(PictureConvert.class);
+
+    /**
+     * 对象转封装类（用户信息、权限列表由调用方填充）
+     */
+    @Mapping(target = "tags", source = "tags", qualifiedByName = "parseTags")
+    @Mapping(target = "variants", source = "variants", qualifiedByName = "parseVariants")
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "permissionList", ignore = true)
+    PictureVO toVo(Picture picture);
+
+    /**
+     * 封装类转对象（封装类不含的颜色特征、内容哈希、审核信息与逻辑删除字段为空）
+     */
+    @Mapping(target = "tags", source = "tags", qualifiedByName = "tagsToJson")
+    @Mapping(target = "variants", source = "variants", qualifiedByName = "variantsToJson")
+    @Mapping(target = "picColorLab", ignore = true)
+    @Mapping(target = "picHash", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
+    @Mapping(target = "reviewStatus", ignore = true)
+    @Mapping(target = "reviewMessage", ignore = true)
+    @Mapping(target = "reviewerId", ignore = true)
+    @Mapping(target = "reviewTime", ignore = true)
+    @Mapping(target = "isDelete", ignore = true)
+    Picture toObj(PictureVO pictureVO);
+
+    @Named("parseTags")
+    default List<String> parseTags(String tags) {
+        return TagUtils.parse(tags);
+    }
+
+    @Named("tagsToJson")
+    default String tagsToJson(List<String> tags) {
+        return TagUtils.toJson(tags);
+    }
+
+    @Named("parseVariants")
+    default List<PictureVariant> parseVariants(String variants) {
+        return JSONUtil.toList(variants, PictureVariant.class);
+    }
+
+    @Named("variantsToJson")
+    default String variantsToJson(List<PictureVariant> variants) {
+        return JSONUtil.toJsonStr(variants);
+    }
+}
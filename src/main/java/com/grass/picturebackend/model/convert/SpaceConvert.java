@@ -0,0 +1,32 @@
+package com.grass.picturebackend.model.convert;
+
+import com.grass.picturebackend.model.entity.Space;
+import com.grass.picturebackend.model.vo.SpaceVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 空间与空间封装类的转换（编译期生成实现，不使用反射）
+ * @date 2025年05月28日 10:00
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface SpaceConvert {
+
+    SpaceConvert INSTANCE = Mappers.getMapper(SpaceConvert.class);
+
+    /**
+     * 对象转封装类（用户信息、权限列表由调用方填充）
+     */
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "permissionList", ignore = true)
+    SpaceVO toVo(Space space);
+
+    /**
+     * 封装类转对象（逻辑删除字段为空）
+     */
+    @Mapping(target = "isDelete", ignore = true)
+    Space toObj(SpaceVO spaceVO);
+}
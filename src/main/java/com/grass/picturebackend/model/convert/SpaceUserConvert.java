@@ -0,0 +1,31 @@
+package com.grass.picturebackend.model.convert;
+
+import com.grass.picturebackend.model.entity.SpaceUser;
+import com.grass.picturebackend.model.vo.SpaceUserVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 空间成员与空间成员封装类的转换（编译期生成实现，不使用反射）
+ * @date 2025年05月28日 10:00
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface SpaceUserConvert {
+
+    SpaceUserConvert INSTANCE = Mappers.getMapper(SpaceUserConvert.class);
+
+    /**
+     * 对象转封装类（用户、空间信息由调用方填充）
+     */
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "space", ignore = true)
+    SpaceUserVO toVo(SpaceUser spaceUser);
+
+    /**
+     * 封装类转对象
+     */
+    SpaceUser toObj(SpaceUserVO spaceUserVO);
+}
@@ -0,0 +1,29 @@
+package com.grass.picturebackend.model.convert;
+
+import com.grass.picturebackend.model.entity.User;
+import com.grass.picturebackend.model.vo.LoginUserVO;
+import com.grass.picturebackend.model.vo.UserVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 用户与脱敏用户信息的转换（编译期生成实现，不使用反射）
+ * @date 2025年05月28日 10:00
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface UserConvert {
+
+    UserConvert INSTANCE = Mappers.getMapper(UserConvert.class);
+
+    /**
+     * 用户转脱敏用户信息
+     */
+    UserVO toUserVo(User user);
+
+    /**
+     * 用户转当前登录用户信息
+     */
+    LoginUserVO toLoginUserVo(User user);
+}
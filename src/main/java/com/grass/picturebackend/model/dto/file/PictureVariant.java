@@ -0,0 +1,30 @@
+package com.grass.picturebackend.model.dto.file;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 图片衍生图（不同宽度、格式的版本，用于 srcset）
+ */
+@Data
+public class PictureVariant implements Serializable {
+
+    private Integer width;
+
+    private Integer height;
+
+    /**
+     * 格式：jpg / png
+     */
+    private String format;
+
+    /**
+     * 文件体积
+     */
+    private Long size;
+
+    private String url;
+
+    private static final long serialVersionUID = 1L;
+}
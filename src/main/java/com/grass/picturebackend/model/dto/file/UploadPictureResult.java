@@ -2,6 +2,8 @@ package com.grass.picturebackend.model.dto.file;
 
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * 上传图片的结果
  */
@@ -18,6 +20,11 @@ public class UploadPictureResult {
      */
     private String thumbnailUrl;
 
+    /**
+     * 衍生图列表（按宽度升序）
+     */
+    private List<PictureVariant> variants;
+
     /**
      * 图片名称
      */
@@ -52,4 +59,29 @@ public class UploadPictureResult {
      * 图片主色调
      */
     private String picColor;
+
+    /**
+     * 图片主色调 Lab（压缩为 0xLLAABB）
+     */
+    private Integer picColorLab;
+
+    /**
+     * 图片感知哈希（64 位 dHash）
+     */
+    private Long picHash;
+
+    /**
+     * 文件 MD5 摘要（上传时边传边算）
+     */
+    private String picMd5;
+
+    /**
+     * 内容哈希（SHA-256，用于去重）
+     */
+    private String contentHash;
+
+    /**
+     * 内容已存在，复用了已有的对象（本次没有新增文件）
+     */
+    private boolean reused;
 }
\ No newline at end of file
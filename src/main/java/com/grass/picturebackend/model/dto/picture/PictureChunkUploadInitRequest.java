@@ -0,0 +1,24 @@
+package com.grass.picturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分块上传初始化请求
+ */
+@Data
+public class PictureChunkUploadInitRequest implements Serializable {
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private Long fileSize;
+
+    private static final long serialVersionUID = 1L;
+}
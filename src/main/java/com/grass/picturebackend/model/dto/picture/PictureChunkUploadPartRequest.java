@@ -0,0 +1,24 @@
+package com.grass.picturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分块上传请求（上传第 N 块）
+ */
+@Data
+public class PictureChunkUploadPartRequest implements Serializable {
+
+    /**
+     * 分块上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分块编号（从 1 开始）
+     */
+    private Integer partNumber;
+
+    private static final long serialVersionUID = 1L;
+}
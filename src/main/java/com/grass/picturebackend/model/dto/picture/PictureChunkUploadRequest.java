@@ -0,0 +1,19 @@
+package com.grass.picturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分块上传完成 / 取消请求
+ */
+@Data
+public class PictureChunkUploadRequest implements Serializable {
+
+    /**
+     * 分块上传 id
+     */
+    private String uploadId;
+
+    private static final long serialVersionUID = 1L;
+}
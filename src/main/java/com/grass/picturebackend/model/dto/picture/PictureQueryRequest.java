@@ -40,6 +40,11 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private List<String> tags;
 
+    /**
+     * 标签匹配方式（为 true 时包含任一标签即可，默认需要包含全部标签）
+     */
+    private boolean tagMatchAny;
+
     /**
      * 文件体积
      */
@@ -75,6 +80,11 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private Long userId;
 
+    /**
+     * 上传状态：0-处理中; 1-成功; 2-失败
+     */
+    private Integer uploadStatus;
+
     /**
      * 审核状态：0-待审核; 1-通过; 2-拒绝
      */
@@ -115,5 +125,10 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private Date endEditTime;
 
+    /**
+     * 游标（游标分页时使用，为空表示第一页）
+     */
+    private String cursor;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
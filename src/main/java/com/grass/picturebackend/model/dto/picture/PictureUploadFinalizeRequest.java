@@ -0,0 +1,24 @@
+package com.grass.picturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 直传完成请求
+ */
+@Data
+public class PictureUploadFinalizeRequest implements Serializable {
+
+    /**
+     * 上传凭证 id
+     */
+    private String ticketId;
+
+    /**
+     * 图片 id（重新上传时传入）
+     */
+    private Long id;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,24 @@
+package com.grass.picturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 直传上传凭证申请请求
+ */
+@Data
+public class PictureUploadTicketRequest implements Serializable {
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -20,5 +20,10 @@ public class SearchPictureByColorRequest implements Serializable {
      */
     private Long spaceId;
 
+    /**
+     * 返回条数（默认 12，最多 50）
+     */
+    private Integer topK;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
@@ -15,5 +15,15 @@ public class SearchPictureByPictureRequest implements Serializable {
      */
     private Long pictureId;
 
+    /**
+     * 最大汉明距离（默认 10，最多 12）
+     */
+    private Integer maxDistance;
+
+    /**
+     * 返回条数（默认 12，最多 50）
+     */
+    private Integer topK;
+
     private static final long serialVersionUID = 1L;
 }
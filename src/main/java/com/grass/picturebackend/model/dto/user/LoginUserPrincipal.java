@@ -0,0 +1,39 @@
+package com.grass.picturebackend.model.dto.user;
+
+import com.grass.picturebackend.model.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 会话中保存的登录用户（只保存 id、角色和版本号，其余信息按 id 查询）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginUserPrincipal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户 id
+     */
+    private Long id;
+
+    /**
+     * 用户角色
+     */
+    private String userRole;
+
+    /**
+     * 版本号（用户的更新时间），与数据库不一致时刷新会话
+     */
+    private long version;
+
+    public static LoginUserPrincipal of(User user) {
+        long version = user.getUpdateTime() == null ? 0L : user.getUpdateTime().getTime();
+        return new LoginUserPrincipal(user.getId(), user.getUserRole(), version);
+    }
+}
@@ -29,6 +29,11 @@ public class Picture implements Serializable {
      */
     private String thumbnailUrl;
 
+    /**
+     * 衍生图列表（JSON 数组）
+     */
+    private String variants;
+
     /**
      * 图片名称
      */
@@ -79,6 +84,21 @@ public class Picture implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 图片主色调 Lab（压缩为 0xLLAABB，用于按颜色搜索）
+     */
+    private Integer picColorLab;
+
+    /**
+     * 图片感知哈希（64 位 dHash，用于以图搜图）
+     */
+    private Long picHash;
+
+    /**
+     * 内容哈希（SHA-256，相同内容的图片共用对象存储中的文件）
+     */
+    private String contentHash;
+
     /**
      * 创建用户 id
      */
@@ -89,6 +109,11 @@ public class Picture implements Serializable {
      */
     private Long spaceId;
 
+    /**
+     * 上传状态：0-处理中; 1-成功; 2-失败
+     */
+    private Integer uploadStatus;
+
     /**
      * 审核状态：0-待审核; 1-通过; 2-拒绝
      */
@@ -0,0 +1,97 @@
+package com.grass.picturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片内容索引（按内容 SHA-256 去重，相同内容的图片共用同一份对象存储文件）
+ * @TableName picture_content
+ */
+@TableName(value ="picture_content")
+@Data
+public class PictureContent implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 内容哈希（SHA-256，十六进制）
+     */
+    private String contentHash;
+
+    /**
+     * 图片 url
+     */
+    private String url;
+
+    /**
+     * 缩略图 url
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 衍生图列表（JSON 数组）
+     */
+    private String variants;
+
+    /**
+     * 图片体积
+     */
+    private Long picSize;
+
+    /**
+     * 图片宽度
+     */
+    private Integer picWidth;
+
+    /**
+     * 图片高度
+     */
+    private Integer picHeight;
+
+    /**
+     * 图片宽高比例
+     */
+    private Double picScale;
+
+    /**
+     * 图片格式
+     */
+    private String picFormat;
+
+    /**
+     * 图片主色调
+     */
+    private String picColor;
+
+    /**
+     * 图片主色调 Lab（压缩为 0xLLAABB）
+     */
+    private Integer picColorLab;
+
+    /**
+     * 图片感知哈希（64 位 dHash）
+     */
+    private Long picHash;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
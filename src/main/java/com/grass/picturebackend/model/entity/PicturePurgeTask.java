@@ -0,0 +1,67 @@
+package com.grass.picturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 待清理的存储对象（图片删除后由定时任务批量删除对应的对象，删除成功后移除记录）
+ * @TableName picture_purge_task
+ */
+@TableName(value ="picture_purge_task")
+@Data
+public class PicturePurgeTask implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 对象键
+     */
+    private String objectKey;
+
+    /**
+     * 图片内容哈希（仍有图片引用该内容时不删除对象）
+     */
+    private String contentHash;
+
+    /**
+     * 状态：0-待清理；1-多次重试仍失败
+     */
+    private Integer status;
+
+    /**
+     * 已重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次执行时间
+     */
+    private Date nextRetryTime;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
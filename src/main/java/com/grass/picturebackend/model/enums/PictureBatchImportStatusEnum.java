@@ -0,0 +1,44 @@
+package com.grass.picturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 批量导入单项状态枚举
+ */
+@Getter
+public enum PictureBatchImportStatusEnum {
+
+    PENDING("等待中", "pending"),
+    FETCHING("抓取中", "fetching"),
+    SUCCESS("成功", "success"),
+    DUPLICATE("重复跳过", "duplicate"),
+    FAILED("失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    PictureBatchImportStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PictureBatchImportStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureBatchImportStatusEnum pictureBatchImportStatusEnum : PictureBatchImportStatusEnum.values()) {
+            if (pictureBatchImportStatusEnum.value.equals(value)) {
+                return pictureBatchImportStatusEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.grass.picturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 存储对象清理状态枚举
+ */
+@Getter
+public enum PicturePurgeStatusEnum {
+
+    PENDING("待清理", 0),
+    FAILED("清理失败", 1),
+    RELEASED("内容索引已删除，待清理", 2);
+
+    private final String text;
+
+    private final int value;
+
+    PicturePurgeStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PicturePurgeStatusEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PicturePurgeStatusEnum picturePurgeStatusEnum : PicturePurgeStatusEnum.values()) {
+            if (picturePurgeStatusEnum.value == value) {
+                return picturePurgeStatusEnum;
+            }
+        }
+        return null;
+    }
+}
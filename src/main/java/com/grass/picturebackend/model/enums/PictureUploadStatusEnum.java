@@ -0,0 +1,42 @@
+package com.grass.picturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片上传状态枚举
+ */
+@Getter
+public enum PictureUploadStatusEnum {
+
+    PROCESSING("处理中", 0),
+    SUCCESS("成功", 1),
+    FAILED("失败", 2);
+
+    private final String text;
+
+    private final int value;
+
+    PictureUploadStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PictureUploadStatusEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureUploadStatusEnum pictureUploadStatusEnum : PictureUploadStatusEnum.values()) {
+            if (pictureUploadStatusEnum.value == value) {
+                return pictureUploadStatusEnum;
+            }
+        }
+        return null;
+    }
+}
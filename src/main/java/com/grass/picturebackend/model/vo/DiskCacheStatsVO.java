@@ -0,0 +1,68 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 磁盘缓存统计视图（用于评估缓存容量是否合适）
+ */
+@Data
+public class DiskCacheStatsVO implements Serializable {
+
+    /**
+     * 是否开启
+     */
+    private Boolean enabled;
+
+    /**
+     * 缓存对象数
+     */
+    private Long entryCount;
+
+    /**
+     * 已占用字节数
+     */
+    private Long usedBytes;
+
+    /**
+     * 最大容量（字节）
+     */
+    private Long maxBytes;
+
+    private Long hitCount;
+
+    private Long missCount;
+
+    /**
+     * 命中率
+     */
+    private Double hitRate;
+
+    /**
+     * 淘汰次数
+     */
+    private Long evictionCount;
+
+    /**
+     * 淘汰的字节数
+     */
+    private Long evictionBytes;
+
+    /**
+     * 回源加载失败次数
+     */
+    private Long loadFailureCount;
+
+    /**
+     * 从磁盘缓存输出的字节数
+     */
+    private Long servedBytes;
+
+    /**
+     * 从存储读取的字节数（回源加载 + 超大对象直读）
+     */
+    private Long originBytes;
+
+    private static final long serialVersionUID = 1L;
+}
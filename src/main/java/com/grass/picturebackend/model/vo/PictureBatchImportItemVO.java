@@ -0,0 +1,40 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 批量导入单项进度视图
+ * 抓取线程更新状态、请求线程读取进度，会变化的字段都是 volatile
+ */
+@Data
+public class PictureBatchImportItemVO implements Serializable {
+
+    /**
+     * 在搜索结果中的序号（从 1 开始）
+     */
+    private Integer index;
+
+    /**
+     * 图片地址
+     */
+    private String url;
+
+    /**
+     * 状态：pending / fetching / success / duplicate / failed
+     */
+    private volatile String status;
+
+    /**
+     * 导入成功后的图片 id
+     */
+    private volatile Long pictureId;
+
+    /**
+     * 失败原因
+     */
+    private volatile String message;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,41 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量导入进度视图
+ */
+@Data
+public class PictureBatchImportVO implements Serializable {
+
+    /**
+     * 导入任务 id
+     */
+    private String taskId;
+
+    /**
+     * 待导入总数
+     */
+    private Integer total;
+
+    private Integer successCount;
+
+    private Integer duplicateCount;
+
+    private Integer failedCount;
+
+    /**
+     * 是否全部处理完成
+     */
+    private Boolean finished;
+
+    /**
+     * 各项进度
+     */
+    private List<PictureBatchImportItemVO> itemList;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,45 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分块上传进度视图（断线重连后据此只重传缺失的分块）
+ */
+@Data
+public class PictureChunkUploadVO implements Serializable {
+
+    /**
+     * 分块上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分块大小（字节，最后一块可以更小）
+     */
+    private Long chunkSize;
+
+    /**
+     * 分块总数
+     */
+    private Integer totalParts;
+
+    /**
+     * 已上传到对象存储的分块编号
+     */
+    private List<Integer> uploadedPartList;
+
+    /**
+     * 正在上传到对象存储的分块编号
+     */
+    private List<Integer> uploadingPartList;
+
+    /**
+     * 尚未上传（或上传失败需要重传）的分块编号
+     */
+    private List<Integer> missingPartList;
+
+    private static final long serialVersionUID = 1L;
+}
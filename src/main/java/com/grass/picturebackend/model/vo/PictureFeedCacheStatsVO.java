@@ -0,0 +1,57 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 图片列表缓存统计视图（按层统计命中情况）
+ */
+@Data
+public class PictureFeedCacheStatsVO implements Serializable {
+
+    /**
+     * 是否开启
+     */
+    private Boolean enabled;
+
+    /**
+     * 是否使用 Redis 二级缓存
+     */
+    private Boolean redisEnabled;
+
+    /**
+     * 本地缓存条数
+     */
+    private Long localSize;
+
+    private Long localHitCount;
+
+    private Long localMissCount;
+
+    /**
+     * 本地缓存命中率
+     */
+    private Double localHitRate;
+
+    private Long redisHitCount;
+
+    private Long redisMissCount;
+
+    /**
+     * Redis 命中率（本地未命中的请求中）
+     */
+    private Double redisHitRate;
+
+    /**
+     * 读写 Redis 失败次数
+     */
+    private Long redisErrorCount;
+
+    /**
+     * 回源查库次数
+     */
+    private Long loadCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,35 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 直传上传凭证视图（客户端用 PUT 把文件直接上传到 uploadUrl，再调用完成接口）
+ */
+@Data
+public class PictureUploadTicketVO implements Serializable {
+
+    /**
+     * 上传凭证 id
+     */
+    private String ticketId;
+
+    /**
+     * 预签名上传地址
+     */
+    private String uploadUrl;
+
+    /**
+     * 上传方法
+     */
+    private String method;
+
+    /**
+     * 上传地址过期时间
+     */
+    private Date expireTime;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -1,9 +1,9 @@
 package com.grass.picturebackend.model.vo;
 
-import cn.hutool.json.JSONUtil;
+import com.grass.picturebackend.model.convert.PictureConvert;
+import com.grass.picturebackend.model.dto.file.PictureVariant;
 import com.grass.picturebackend.model.entity.Picture;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -28,6 +28,11 @@ public class PictureVO implements Serializable {
      */
     private String thumbnailUrl;
 
+    /**
+     * 衍生图列表（按宽度升序，用于 srcset）
+     */
+    private List<PictureVariant> variants;
+
     /**
      * 图片名称
      */
@@ -78,6 +83,11 @@ public class PictureVO implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 上传状态：0-处理中; 1-成功; 2-失败
+     */
+    private Integer uploadStatus;
+
     /**
      * 用户 id
      */
@@ -122,11 +132,7 @@ public class PictureVO implements Serializable {
         if (pictureVO == null) {
             return null;
         }
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureVO, picture);
-        // 类型不同，需要转换
-        picture.setTags(JSONUtil.toJsonStr(pictureVO.getTags()));
-        return picture;
+        return PictureConvert.INSTANCE.toObj(pictureVO);
     }
 
     /**
@@ -136,10 +142,7 @@ public class PictureVO implements Serializable {
         if (picture == null) {
             return null;
         }
-        PictureVO pictureVO = new PictureVO();
-        BeanUtils.copyProperties(picture, pictureVO);
-        // 类型不同，需要转换
-        pictureVO.setTags(JSONUtil.toList(picture.getTags(), String.class));
-        return pictureVO;
+        // 标签按原字符串缓存解析结果
+        return PictureConvert.INSTANCE.toVo(picture);
     }
 }
\ No newline at end of file
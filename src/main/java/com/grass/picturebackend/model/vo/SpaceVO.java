@@ -1,8 +1,8 @@
 package com.grass.picturebackend.model.vo;
 
+import com.grass.picturebackend.model.convert.SpaceConvert;
 import com.grass.picturebackend.model.entity.Space;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -96,9 +96,7 @@ public class SpaceVO implements Serializable {
         if (spaceVO == null) {
             return null;
         }
-        Space space = new Space();
-        BeanUtils.copyProperties(spaceVO, space);
-        return space;
+        return SpaceConvert.INSTANCE.toObj(spaceVO);
     }
 
     /**
@@ -111,8 +109,6 @@ public class SpaceVO implements Serializable {
         if (space == null) {
             return null;
         }
-        SpaceVO spaceVO = new SpaceVO();
-        BeanUtils.copyProperties(space, spaceVO);
-        return spaceVO;
+        return SpaceConvert.INSTANCE.toVo(space);
     }
 }
\ No newline at end of file
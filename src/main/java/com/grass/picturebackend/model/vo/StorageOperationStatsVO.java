@@ -0,0 +1,79 @@
+package com.grass.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 对象存储操作统计视图（按操作类型统计结果与耗时，用于观察存储抖动与熔断情况）
+ */
+@Data
+public class StorageOperationStatsVO implements Serializable {
+
+    /**
+     * 操作类型
+     */
+    private String operation;
+
+    /**
+     * 熔断状态（CLOSED / OPEN / HALF_OPEN）
+     */
+    private String breakerState;
+
+    /**
+     * 正在执行的调用数
+     */
+    private Integer inFlight;
+
+    /**
+     * 成功次数
+     */
+    private Long successCount;
+
+    /**
+     * 失败次数
+     */
+    private Long failureCount;
+
+    /**
+     * 并发已满被拒绝的次数
+     */
+    private Long rejectedCount;
+
+    /**
+     * 熔断期间被拒绝的次数
+     */
+    private Long shortCircuitedCount;
+
+    /**
+     * 发起对冲请求的次数
+     */
+    private Long hedgedCount;
+
+    /**
+     * 对冲请求先返回的次数
+     */
+    private Long hedgeWinCount;
+
+    /**
+     * 最近调用耗时 p50（毫秒）
+     */
+    private Long p50Millis;
+
+    /**
+     * 最近调用耗时 p95（毫秒）
+     */
+    private Long p95Millis;
+
+    /**
+     * 最近调用耗时 p99（毫秒）
+     */
+    private Long p99Millis;
+
+    /**
+     * 最近调用最大耗时（毫秒）
+     */
+    private Long maxMillis;
+
+    private static final long serialVersionUID = 1L;
+}
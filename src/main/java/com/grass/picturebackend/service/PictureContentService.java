@@ -0,0 +1,22 @@
+package com.grass.picturebackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.entity.PictureContent;
+
+public interface PictureContentService extends IService<PictureContent> {
+
+    /**
+     * 根据内容哈希查询已存在的图片内容
+     * @param contentHash 内容哈希（SHA-256）
+     * @return 图片内容，不存在返回 null
+     */
+    PictureContent getByContentHash(String contentHash);
+
+    /**
+     * 记录新上传的图片内容
+     * @param uploadPictureResult 上传结果（需包含内容哈希）
+     * @return 实际生效的图片内容（并发上传相同内容时返回先写入的那条）
+     */
+    PictureContent saveContent(UploadPictureResult uploadPictureResult);
+}
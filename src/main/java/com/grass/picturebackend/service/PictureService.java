@@ -3,13 +3,29 @@ package com.grass.picturebackend.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.grass.picturebackend.common.CursorPage;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadInitRequest;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadPartRequest;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadRequest;
+import com.grass.picturebackend.model.dto.picture.PictureEditRequest;
 import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUpdateRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadFinalizeRequest;
 import com.grass.picturebackend.model.dto.picture.PictureUploadRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadTicketRequest;
+import com.grass.picturebackend.model.dto.picture.SearchPictureByColorRequest;
+import com.grass.picturebackend.model.dto.picture.SearchPictureByPictureRequest;
 import com.grass.picturebackend.model.entity.Picture;
 import com.grass.picturebackend.model.entity.User;
+import com.grass.picturebackend.model.vo.PictureBatchImportVO;
+import com.grass.picturebackend.model.vo.PictureChunkUploadVO;
+import com.grass.picturebackend.model.vo.PictureUploadTicketVO;
 import com.grass.picturebackend.model.vo.PictureVO;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 public interface PictureService extends IService<Picture> {
 
     /**
@@ -21,6 +37,158 @@ public interface PictureService extends IService<Picture> {
      */
     PictureVO uploadPicture(MultipartFile multipartFile, PictureUploadRequest pictureUploadRequest, User loginUser);
 
+    /**
+     * 异步上传图片（立即返回图片 id，解析、存储、落库由上传流水线完成）
+     * @param multipartFile 文件
+     * @param loginUser 登录用户
+     * @return 图片 id
+     */
+    Long uploadPictureAsync(MultipartFile multipartFile, User loginUser);
+
+    /**
+     * 查询异步上传结果
+     * @param id 图片 id
+     * @param loginUser 登录用户
+     * @return 图片信息（包含上传状态）
+     */
+    PictureVO getUploadStatus(Long id, User loginUser);
+
+    /**
+     * 申请直传上传凭证（文件由客户端直接上传到对象存储）
+     * @param pictureUploadTicketRequest 凭证申请请求
+     * @param loginUser 登录用户
+     * @return 上传凭证
+     */
+    PictureUploadTicketVO createUploadTicket(PictureUploadTicketRequest pictureUploadTicketRequest, User loginUser);
+
+    /**
+     * 完成直传：校验对象后保存图片，衍生图在后台生成
+     * @param pictureUploadFinalizeRequest 直传完成请求
+     * @param loginUser 登录用户
+     * @return 图片信息
+     */
+    PictureVO finalizeUpload(PictureUploadFinalizeRequest pictureUploadFinalizeRequest, User loginUser);
+
+    /**
+     * 删除图片（关联的存储对象由清理任务异步删除）
+     * @param id 图片 id
+     * @param loginUser 登录用户
+     */
+    void deletePicture(Long id, User loginUser);
+
+    /**
+     * 编辑图片（仅本人或管理员）
+     * @param pictureEditRequest 图片编辑请求
+     * @param loginUser 登录用户
+     */
+    void editPicture(PictureEditRequest pictureEditRequest, User loginUser);
+
+    /**
+     * 更新图片（管理员）
+     * @param pictureUpdateRequest 图片更新请求
+     */
+    void updatePicture(PictureUpdateRequest pictureUpdateRequest);
+
+    /**
+     * 分页查询图片列表（用户，走列表缓存）
+     * @param pictureQueryRequest 图片查询请求
+     * @return 图片信息列表
+     */
+    Page<PictureVO> listPictureVOByPage(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 分页查询图片列表（总数来自缓存或估算，见 CountedPage）
+     * @param pictureQueryRequest 图片查询请求
+     * @return 图片列表
+     */
+    Page<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 游标分页查询图片列表（不统计总数）
+     * @param pictureQueryRequest 图片查询请求（cursor 为空表示第一页）
+     * @return 图片列表
+     */
+    CursorPage<Picture> listPictureByCursor(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 游标分页查询图片列表（用户）
+     * @param pictureQueryRequest 图片查询请求（cursor 为空表示第一页）
+     * @return 图片信息列表
+     */
+    CursorPage<PictureVO> listPictureVOByCursor(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 按颜色搜索图片
+     * @param searchPictureByColorRequest 按颜色搜索请求
+     * @param loginUser 登录用户
+     * @return 图片列表，按色差由小到大排列
+     */
+    List<PictureVO> searchPictureByColor(SearchPictureByColorRequest searchPictureByColorRequest, User loginUser);
+
+    /**
+     * 以图搜图
+     * @param searchPictureByPictureRequest 以图搜图请求
+     * @param loginUser 登录用户
+     * @return 相似图片列表，按汉明距离由小到大排列
+     */
+    List<PictureVO> searchPictureByPicture(SearchPictureByPictureRequest searchPictureByPictureRequest, User loginUser);
+
+    /**
+     * 批量导入图片（后台抓取，立即返回任务进度）
+     * @param pictureUploadByBatchRequest 批量导入请求
+     * @param loginUser 登录用户
+     * @return 导入进度
+     */
+    PictureBatchImportVO uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser);
+
+    /**
+     * 查询批量导入进度
+     * @param taskId 导入任务 id
+     * @param loginUser 登录用户
+     * @return 导入进度
+     */
+    PictureBatchImportVO getBatchImportProgress(String taskId, User loginUser);
+
+    /**
+     * 初始化分块上传
+     * @param pictureChunkUploadInitRequest 分块上传初始化请求
+     * @param loginUser 登录用户
+     * @return 上传进度
+     */
+    PictureChunkUploadVO initChunkUpload(PictureChunkUploadInitRequest pictureChunkUploadInitRequest, User loginUser);
+
+    /**
+     * 上传分块
+     * @param multipartFile 分块内容
+     * @param pictureChunkUploadPartRequest 分块上传请求
+     * @param loginUser 登录用户
+     * @return 上传进度
+     */
+    PictureChunkUploadVO uploadChunk(MultipartFile multipartFile, PictureChunkUploadPartRequest pictureChunkUploadPartRequest, User loginUser);
+
+    /**
+     * 查询分块上传进度
+     * @param uploadId 分块上传 id
+     * @param loginUser 登录用户
+     * @return 上传进度
+     */
+    PictureChunkUploadVO getChunkUploadProgress(String uploadId, User loginUser);
+
+    /**
+     * 完成分块上传并保存图片
+     * @param pictureChunkUploadRequest 分块上传请求
+     * @param loginUser 登录用户
+     * @return 图片信息
+     */
+    PictureVO completeChunkUpload(PictureChunkUploadRequest pictureChunkUploadRequest, User loginUser);
+
+    /**
+     * 取消分块上传
+     * @param pictureChunkUploadRequest 分块上传请求
+     * @param loginUser 登录用户
+     */
+    void abortChunkUpload(PictureChunkUploadRequest pictureChunkUploadRequest, User loginUser);
+
     /**
      * 获取查询条件
      * @param pictureQueryRequest 查询条件
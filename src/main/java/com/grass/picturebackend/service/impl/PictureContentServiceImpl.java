@@ -0,0 +1,74 @@
+package com.grass.picturebackend.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.grass.picturebackend.manager.ContentHashBloomFilter;
+import com.grass.picturebackend.mapper.PictureContentMapper;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.entity.PictureContent;
+import com.grass.picturebackend.service.PictureContentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片内容去重业务层
+ * @date 2025年05月09日 11:02
+ */
+@Service
+@Slf4j
+public class PictureContentServiceImpl extends ServiceImpl<PictureContentMapper, PictureContent> implements PictureContentService {
+
+    @Resource
+    private ContentHashBloomFilter contentHashBloomFilter;
+
+    /**
+     * 根据内容哈希查询已存在的图片内容
+     *
+     * @param contentHash 内容哈希（SHA-256）
+     * @return 图片内容，不存在返回 null
+     */
+    @Override
+    public PictureContent getByContentHash(String contentHash) {
+        // 布隆过滤器判定不存在，则一定是新内容，跳过数据库查询
+        if (!contentHashBloomFilter.mightContain(contentHash)) {
+            return null;
+        }
+        return this.lambdaQuery().eq(PictureContent::getContentHash, contentHash).one();
+    }
+
+    /**
+     * 记录新上传的图片内容
+     *
+     * @param uploadPictureResult 上传结果（需包含内容哈希）
+     * @return 实际生效的图片内容
+     */
+    @Override
+    public PictureContent saveContent(UploadPictureResult uploadPictureResult) {
+        PictureContent pictureContent = new PictureContent();
+        pictureContent.setContentHash(uploadPictureResult.getContentHash());
+        pictureContent.setUrl(uploadPictureResult.getUrl());
+        pictureContent.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        pictureContent.setVariants(JSONUtil.toJsonStr(uploadPictureResult.getVariants()));
+        pictureContent.setPicSize(uploadPictureResult.getPicSize());
+        pictureContent.setPicWidth(uploadPictureResult.getPicWidth());
+        pictureContent.setPicHeight(uploadPictureResult.getPicHeight());
+        pictureContent.setPicScale(uploadPictureResult.getPicScale());
+        pictureContent.setPicFormat(uploadPictureResult.getPicFormat());
+        pictureContent.setPicColor(uploadPictureResult.getPicColor());
+        pictureContent.setPicColorLab(uploadPictureResult.getPicColorLab());
+        pictureContent.setPicHash(uploadPictureResult.getPicHash());
+        try {
+            this.save(pictureContent);
+        } catch (DuplicateKeyException e) {
+            // 并发上传了相同内容，以先写入的为准
+            log.info("picture content already exists, contentHash = {}", uploadPictureResult.getContentHash());
+            pictureContent = this.lambdaQuery().eq(PictureContent::getContentHash, uploadPictureResult.getContentHash()).one();
+        }
+        contentHashBloomFilter.put(uploadPictureResult.getContentHash());
+        return pictureContent;
+    }
+}
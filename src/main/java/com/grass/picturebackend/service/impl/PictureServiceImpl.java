@@ -1,29 +1,68 @@
 package com.grass.picturebackend.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.codec.Base64;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.grass.picturebackend.common.CountedPage;
+import com.grass.picturebackend.common.CursorPage;
+import com.grass.picturebackend.exception.BusinessException;
 import com.grass.picturebackend.exception.ErrorCode;
 import com.grass.picturebackend.exception.ThrowUtils;
+import com.grass.picturebackend.manager.BatchImportManager;
+import com.grass.picturebackend.manager.ChunkUploadManager;
+import com.grass.picturebackend.manager.DirectUploadManager;
 import com.grass.picturebackend.manager.FileManager;
+import com.grass.picturebackend.manager.PicturePurgeManager;
+import com.grass.picturebackend.manager.cache.PictureCountManager;
+import com.grass.picturebackend.manager.cache.PictureFeedCache;
+import com.grass.picturebackend.manager.index.PictureChangeEvent;
+import com.grass.picturebackend.manager.index.PictureColorIndex;
+import com.grass.picturebackend.manager.index.PictureHashIndex;
+import com.grass.picturebackend.manager.index.PictureTagIndex;
+import com.grass.picturebackend.manager.index.PictureTextIndex;
+import com.grass.picturebackend.manager.upload.PictureUploadPipeline;
 import com.grass.picturebackend.mapper.PictureMapper;
 import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadInitRequest;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadPartRequest;
+import com.grass.picturebackend.model.dto.picture.PictureChunkUploadRequest;
+import com.grass.picturebackend.model.dto.picture.PictureEditRequest;
 import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUpdateRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadFinalizeRequest;
 import com.grass.picturebackend.model.dto.picture.PictureUploadRequest;
+import com.grass.picturebackend.model.dto.picture.PictureUploadTicketRequest;
+import com.grass.picturebackend.model.dto.picture.SearchPictureByColorRequest;
+import com.grass.picturebackend.model.dto.picture.SearchPictureByPictureRequest;
 import com.grass.picturebackend.model.entity.Picture;
 import com.grass.picturebackend.model.entity.User;
+import com.grass.picturebackend.model.enums.PictureUploadStatusEnum;
+import com.grass.picturebackend.model.vo.PictureBatchImportVO;
+import com.grass.picturebackend.model.vo.PictureChunkUploadVO;
+import com.grass.picturebackend.model.vo.PictureUploadTicketVO;
 import com.grass.picturebackend.model.vo.PictureVO;
 import com.grass.picturebackend.model.vo.UserVO;
 import com.grass.picturebackend.service.PictureService;
 import com.grass.picturebackend.service.UserService;
+import com.grass.picturebackend.utils.ColorUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -40,12 +79,88 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> implements PictureService {
 
+    /**
+     * 按颜色、以图搜图默认返回条数
+     */
+    private static final int DEFAULT_SEARCH_SIZE = 12;
+
+    /**
+     * 按颜色、以图搜图最多返回条数
+     */
+    private static final int MAX_SEARCH_SIZE = 50;
+
+    /**
+     * 以图搜图默认的最大汉明距离
+     */
+    private static final int DEFAULT_HASH_DISTANCE = 10;
+
+    /**
+     * 游标分页支持的排序字段（必须非空，与 id 组合后唯一）
+     */
+    private static final List<String> CURSOR_SORT_FIELDS = Arrays.asList("createTime", "updateTime", "id");
+
+    /**
+     * 游标分页默认排序字段
+     */
+    private static final String DEFAULT_CURSOR_SORT_FIELD = "createTime";
+
+    /**
+     * 游标分页最大页面大小
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /**
+     * 全文查询结果不超过该数量时走全文索引（按相关度排序），否则仍由数据库 LIKE 过滤
+     */
+    private static final int MAX_TEXT_MATCHES = 1000;
+
+    /**
+     * 标签、分类过滤结果不超过该数量时走位图索引，否则仍由数据库过滤
+     */
+    private static final int MAX_TAG_MATCHES = 5000;
+
     @Resource
     private FileManager fileManager;
 
     @Resource
     private UserService userService;
 
+    @Resource
+    private ChunkUploadManager chunkUploadManager;
+
+    @Resource
+    private PictureUploadPipeline pictureUploadPipeline;
+
+    @Resource
+    private BatchImportManager batchImportManager;
+
+    @Resource
+    private PicturePurgeManager picturePurgeManager;
+
+    @Resource
+    private DirectUploadManager directUploadManager;
+
+    @Resource
+    private PictureColorIndex pictureColorIndex;
+
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PictureTextIndex pictureTextIndex;
+
+    @Resource
+    private PictureTagIndex pictureTagIndex;
+
+    @Resource
+    private PictureFeedCache pictureFeedCache;
+
+    @Resource
+    private PictureCountManager pictureCountManager;
+
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
     /**
      * 上传图片
      *
@@ -70,6 +185,546 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         // 按照用户ID划分目录
         String uploadPathPrefix = String.format("public/%s", loginUser.getId());
         UploadPictureResult uploadPictureResult = fileManager.uploadPicture(multipartFile, uploadPathPrefix);
+        return savePicture(uploadPictureResult, pictureId, loginUser);
+    }
+
+    /**
+     * 异步上传图片
+     *
+     * @param multipartFile 文件
+     * @param loginUser     登录用户
+     * @return 图片 id
+     */
+    @Override
+    public Long uploadPictureAsync(MultipartFile multipartFile, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "文件不能为空");
+        String originalFilename = multipartFile.getOriginalFilename();
+        fileManager.validPicture(multipartFile.getSize(), originalFilename);
+        byte[] bytes;
+        try {
+            bytes = multipartFile.getBytes();
+        } catch (IOException e) {
+            log.error("read upload file error", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+        // 先保存处理中的记录，用户可以凭 id 查询上传结果
+        Picture picture = new Picture();
+        // url 非空，处理完成后回填
+        picture.setUrl("");
+        picture.setName(FileUtil.mainName(originalFilename));
+        picture.setUserId(loginUser.getId());
+        picture.setUploadStatus(PictureUploadStatusEnum.PROCESSING.getValue());
+        boolean result = this.save(picture);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败");
+        // 按照用户ID划分目录
+        String uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        try {
+            pictureUploadPipeline.publish(picture.getId(), bytes, originalFilename, multipartFile.getContentType(), uploadPathPrefix);
+        } catch (BusinessException e) {
+            // 流水线已满，撤销处理中的记录
+            this.removeById(picture.getId());
+            throw e;
+        }
+        return picture.getId();
+    }
+
+    /**
+     * 查询异步上传结果
+     *
+     * @param id        图片 id
+     * @param loginUser 登录用户
+     * @return 图片信息
+     */
+    @Override
+    public PictureVO getUploadStatus(Long id, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(id == null || id <= 0, ErrorCode.PARAMS_ERROR);
+        Picture picture = this.getById(id);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 仅本人或管理员可查看
+        ThrowUtils.throwIf(!picture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser), ErrorCode.NO_AUTH_ERROR);
+        return PictureVO.objToVo(picture);
+    }
+
+    /**
+     * 申请直传上传凭证
+     *
+     * @param pictureUploadTicketRequest 凭证申请请求
+     * @param loginUser                  登录用户
+     * @return 上传凭证
+     */
+    @Override
+    public PictureUploadTicketVO createUploadTicket(PictureUploadTicketRequest pictureUploadTicketRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureUploadTicketRequest == null, ErrorCode.PARAMS_ERROR);
+        // 按照用户ID划分目录
+        String uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        return directUploadManager.createTicket(pictureUploadTicketRequest.getFileName(), pictureUploadTicketRequest.getFileSize(),
+                uploadPathPrefix, loginUser.getId());
+    }
+
+    /**
+     * 完成直传
+     *
+     * @param pictureUploadFinalizeRequest 直传完成请求
+     * @param loginUser                    登录用户
+     * @return 图片信息
+     */
+    @Override
+    public PictureVO finalizeUpload(PictureUploadFinalizeRequest pictureUploadFinalizeRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureUploadFinalizeRequest == null, ErrorCode.PARAMS_ERROR);
+        Long pictureId = pictureUploadFinalizeRequest.getId();
+        // 如果更新图片，先校验图片是否存在
+        if (pictureId != null) {
+            ThrowUtils.throwIf(this.getById(pictureId) == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        }
+        UploadPictureResult uploadPictureResult = directUploadManager.complete(pictureUploadFinalizeRequest.getTicketId(), loginUser.getId());
+        PictureVO pictureVO = savePicture(uploadPictureResult, pictureId, loginUser);
+        // 衍生图与主色调生成后回填，期间图片被删除或重新上传则不再回填
+        directUploadManager.generateDerivativesAsync(uploadPictureResult, result -> {
+            boolean updated = this.lambdaUpdate()
+                    .eq(Picture::getId, pictureVO.getId())
+                    .eq(Picture::getUrl, result.getUrl())
+                    .set(Picture::getVariants, JSONUtil.toJsonStr(result.getVariants()))
+                    .set(Picture::getThumbnailUrl, result.getThumbnailUrl())
+                    .set(Picture::getPicColor, result.getPicColor())
+                    .set(Picture::getPicColorLab, result.getPicColorLab())
+                    .set(Picture::getPicHash, result.getPicHash())
+                    .update();
+            if (updated) {
+                applicationEventPublisher.publishEvent(PictureChangeEvent.of(pictureVO.getId(), pictureVO.getSpaceId()));
+            }
+            return updated;
+        });
+        return pictureVO;
+    }
+
+    /**
+     * 删除图片（关联的存储对象由清理任务异步删除）
+     *
+     * @param id        图片 id
+     * @param loginUser 登录用户
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deletePicture(Long id, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(id == null || id <= 0, ErrorCode.PARAMS_ERROR);
+        Picture oldPicture = this.getById(id);
+        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 仅限本人或者管理员可删除
+        ThrowUtils.throwIf(!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser), ErrorCode.NO_AUTH_ERROR);
+        boolean result = this.removeById(id);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 与删除在同一事务中登记，不会遗漏对象
+        picturePurgeManager.enqueue(oldPicture);
+        applicationEventPublisher.publishEvent(PictureChangeEvent.of(id, oldPicture.getSpaceId()));
+    }
+
+    /**
+     * 批量导入图片
+     *
+     * @param pictureUploadByBatchRequest 批量导入请求
+     * @param loginUser                   登录用户
+     * @return 导入进度
+     */
+    @Override
+    public PictureBatchImportVO uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
+        // 按照用户ID划分目录
+        String uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        return batchImportManager.submit(pictureUploadByBatchRequest.getSearchText(), pictureUploadByBatchRequest.getCount(),
+                pictureUploadByBatchRequest.getNamePrefix(), uploadPathPrefix, loginUser.getId(),
+                uploadPictureResult -> savePicture(uploadPictureResult, null, loginUser).getId());
+    }
+
+    /**
+     * 查询批量导入进度
+     *
+     * @param taskId    导入任务 id
+     * @param loginUser 登录用户
+     * @return 导入进度
+     */
+    @Override
+    public PictureBatchImportVO getBatchImportProgress(String taskId, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        return batchImportManager.getProgress(taskId, loginUser.getId());
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param pictureChunkUploadInitRequest 分块上传初始化请求
+     * @param loginUser                     登录用户
+     * @return 上传进度
+     */
+    @Override
+    public PictureChunkUploadVO initChunkUpload(PictureChunkUploadInitRequest pictureChunkUploadInitRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureChunkUploadInitRequest == null, ErrorCode.PARAMS_ERROR);
+        // 按照用户ID划分目录
+        String uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        return chunkUploadManager.init(pictureChunkUploadInitRequest.getFileName(), pictureChunkUploadInitRequest.getFileSize(),
+                uploadPathPrefix, loginUser.getId());
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param multipartFile                 分块内容
+     * @param pictureChunkUploadPartRequest 分块上传请求
+     * @param loginUser                     登录用户
+     * @return 上传进度
+     */
+    @Override
+    public PictureChunkUploadVO uploadChunk(MultipartFile multipartFile, PictureChunkUploadPartRequest pictureChunkUploadPartRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureChunkUploadPartRequest == null, ErrorCode.PARAMS_ERROR);
+        return chunkUploadManager.uploadPart(pictureChunkUploadPartRequest.getUploadId(), pictureChunkUploadPartRequest.getPartNumber(),
+                multipartFile, loginUser.getId());
+    }
+
+    /**
+     * 查询分块上传进度
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser 登录用户
+     * @return 上传进度
+     */
+    @Override
+    public PictureChunkUploadVO getChunkUploadProgress(String uploadId, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        return chunkUploadManager.getProgress(uploadId, loginUser.getId());
+    }
+
+    /**
+     * 完成分块上传并保存图片
+     *
+     * @param pictureChunkUploadRequest 分块上传请求
+     * @param loginUser                 登录用户
+     * @return 图片信息
+     */
+    @Override
+    public PictureVO completeChunkUpload(PictureChunkUploadRequest pictureChunkUploadRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureChunkUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        UploadPictureResult uploadPictureResult = chunkUploadManager.complete(pictureChunkUploadRequest.getUploadId(), loginUser.getId());
+        return savePicture(uploadPictureResult, null, loginUser);
+    }
+
+    /**
+     * 取消分块上传
+     *
+     * @param pictureChunkUploadRequest 分块上传请求
+     * @param loginUser                 登录用户
+     */
+    @Override
+    public void abortChunkUpload(PictureChunkUploadRequest pictureChunkUploadRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureChunkUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        chunkUploadManager.abort(pictureChunkUploadRequest.getUploadId(), loginUser.getId());
+    }
+
+    /**
+     * 编辑图片（仅本人或管理员）
+     *
+     * @param pictureEditRequest 图片编辑请求
+     * @param loginUser          登录用户
+     */
+    @Override
+    public void editPicture(PictureEditRequest pictureEditRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        Picture picture = new Picture();
+        BeanUtil.copyProperties(pictureEditRequest, picture);
+        picture.setEditTime(new Date());
+        picture.setTags(JSONUtil.toJsonStr(pictureEditRequest.getTags()));
+        // 校验
+        this.validPicture(picture);
+        // 查询图片是否存在
+        Picture oldPicture = this.getById(pictureEditRequest.getId());
+        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 仅限本人与管理员可以编辑
+        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+        // 更新图片
+        boolean result = this.updateById(picture);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getId(), oldPicture.getSpaceId()));
+    }
+
+    /**
+     * 更新图片（管理员）
+     *
+     * @param pictureUpdateRequest 图片更新请求
+     */
+    @Override
+    public void updatePicture(PictureUpdateRequest pictureUpdateRequest) {
+        Picture picture = new Picture();
+        BeanUtil.copyProperties(pictureUpdateRequest, picture);
+        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
+        // 数据校验
+        this.validPicture(picture);
+        // 判断图片是否存在
+        Picture oldPicture = this.getById(pictureUpdateRequest.getId());
+        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 更新
+        boolean result = this.updateById(picture);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getId(), oldPicture.getSpaceId()));
+    }
+
+    /**
+     * 分页查询图片列表（用户）
+     * 首页列表对所有人相同，结果整页缓存（包括用户信息），图片变更时按空间失效
+     *
+     * @param pictureQueryRequest 图片查询请求
+     * @return 图片信息列表
+     */
+    @Override
+    public Page<PictureVO> listPictureVOByPage(PictureQueryRequest pictureQueryRequest) {
+        return pictureFeedCache.get(pictureQueryRequest, () -> this.getPictureVOPage(this.listPictureByPage(pictureQueryRequest)));
+    }
+
+    /**
+     * 分页查询图片列表
+     * 分页本身不统计总数，总数由 PictureCountManager 提供（缓存的精确值或表行数估算值），searchCount 为 false 时不查询总数
+     *
+     * @param pictureQueryRequest 图片查询请求
+     * @return 图片列表
+     */
+    @Override
+    public Page<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest) {
+        CountedPage<Picture> picturePage = new CountedPage<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize());
+        // 全文查询只做一次，过滤、排序、统计总数共用结果
+        List<Long> textMatchIdList = this.searchTextIndex(pictureQueryRequest.getSearchText());
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureQueryRequest, textMatchIdList);
+        // 全文查询且没有指定排序时按相关度排序
+        if (CollUtil.isNotEmpty(textMatchIdList) && StrUtil.isBlank(pictureQueryRequest.getSortField())) {
+            queryWrapper.orderByAsc("field(id, " + CollUtil.join(textMatchIdList, ",") + ")");
+        }
+        this.page(picturePage, queryWrapper);
+        if (!pictureQueryRequest.isSearchCount()) {
+            picturePage.setTotal(-1);
+            picturePage.setTotalExact(false);
+            return picturePage;
+        }
+        PictureCountManager.PictureCount pictureCount = pictureCountManager.count(pictureQueryRequest, () -> {
+            // 统计总数不需要排序
+            PictureQueryRequest countRequest = BeanUtil.copyProperties(pictureQueryRequest, PictureQueryRequest.class);
+            countRequest.setSortField(null);
+            return this.count(this.getQueryWrapper(countRequest, textMatchIdList));
+        });
+        picturePage.setTotal(pictureCount.getTotal());
+        picturePage.setTotalExact(pictureCount.isExact());
+        return picturePage;
+    }
+
+    /**
+     * 游标分页查询图片列表
+     * 按（排序字段, id）定位上一页的最后一条，不使用 offset，也不统计总数，翻到多深耗时都一样
+     *
+     * @param pictureQueryRequest 图片查询请求（cursor 为空表示第一页）
+     * @return 图片列表
+     */
+    @Override
+    public CursorPage<Picture> listPictureByCursor(PictureQueryRequest pictureQueryRequest) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        String sortField = StrUtil.blankToDefault(pictureQueryRequest.getSortField(), DEFAULT_CURSOR_SORT_FIELD);
+        ThrowUtils.throwIf(!CURSOR_SORT_FIELDS.contains(sortField), ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+        boolean ascend = "ascend".equals(pictureQueryRequest.getSortOrder());
+        int pageSize = pictureQueryRequest.getPageSize();
+        ThrowUtils.throwIf(pageSize <= 0 || pageSize > MAX_CURSOR_PAGE_SIZE, ErrorCode.PARAMS_ERROR, "页面大小错误");
+        // 过滤条件与普通分页相同，排序由游标决定
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(
+                BeanUtil.copyProperties(pictureQueryRequest, PictureQueryRequest.class, "sortField", "cursor"));
+        if (StrUtil.isNotBlank(pictureQueryRequest.getCursor())) {
+            long[] cursor = decodeCursor(pictureQueryRequest.getCursor(), sortField, ascend);
+            long lastId = cursor[1];
+            if ("id".equals(sortField)) {
+                queryWrapper.gt(ascend, "id", lastId).lt(!ascend, "id", lastId);
+            } else {
+                Date lastValue = new Date(cursor[0]);
+                queryWrapper.and(ascend, wrapper -> wrapper.gt(sortField, lastValue)
+                        .or(equalWrapper -> equalWrapper.eq(sortField, lastValue).gt("id", lastId)));
+                queryWrapper.and(!ascend, wrapper -> wrapper.lt(sortField, lastValue)
+                        .or(equalWrapper -> equalWrapper.eq(sortField, lastValue).lt("id", lastId)));
+            }
+        }
+        queryWrapper.orderBy(!"id".equals(sortField), ascend, sortField).orderBy(true, ascend, "id");
+        // 多取一条判断是否还有下一页，不查总数
+        List<Picture> pictureList = this.page(new Page<>(1, pageSize + 1, false), queryWrapper).getRecords();
+        CursorPage<Picture> cursorPage = new CursorPage<>();
+        if (pictureList.size() > pageSize) {
+            pictureList = new ArrayList<>(pictureList.subList(0, pageSize));
+            cursorPage.setHasMore(true);
+            cursorPage.setNextCursor(encodeCursor(sortField, ascend, pictureList.get(pageSize - 1)));
+        }
+        cursorPage.setRecords(pictureList);
+        return cursorPage;
+    }
+
+    /**
+     * 游标分页查询图片列表（用户）
+     *
+     * @param pictureQueryRequest 图片查询请求（cursor 为空表示第一页）
+     * @return 图片信息列表
+     */
+    @Override
+    public CursorPage<PictureVO> listPictureVOByCursor(PictureQueryRequest pictureQueryRequest) {
+        CursorPage<Picture> cursorPage = this.listPictureByCursor(pictureQueryRequest);
+        Page<Picture> picturePage = new Page<>(1, cursorPage.getRecords().size(), false);
+        picturePage.setRecords(cursorPage.getRecords());
+        CursorPage<PictureVO> cursorPageVO = new CursorPage<>();
+        cursorPageVO.setRecords(this.getPictureVOPage(picturePage).getRecords());
+        cursorPageVO.setNextCursor(cursorPage.getNextCursor());
+        cursorPageVO.setHasMore(cursorPage.isHasMore());
+        return cursorPageVO;
+    }
+
+    /**
+     * 生成游标：排序字段:排序方向:排序字段的值:id，Base64 编码后对调用方不透明
+     */
+    private String encodeCursor(String sortField, boolean ascend, Picture picture) {
+        long value;
+        if ("createTime".equals(sortField)) {
+            value = picture.getCreateTime().getTime();
+        } else if ("updateTime".equals(sortField)) {
+            value = picture.getUpdateTime().getTime();
+        } else {
+            value = picture.getId();
+        }
+        return Base64.encodeUrlSafe(sortField + ":" + (ascend ? "a" : "d") + ":" + value + ":" + picture.getId());
+    }
+
+    /**
+     * 解析游标，排序条件必须与生成游标时一致
+     *
+     * @return [排序字段的值, id]
+     */
+    private long[] decodeCursor(String cursor, String sortField, boolean ascend) {
+        String[] parts;
+        try {
+            parts = Base64.decodeStr(cursor).split(":");
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+        ThrowUtils.throwIf(parts.length != 4, ErrorCode.PARAMS_ERROR, "游标无效");
+        ThrowUtils.throwIf(!parts[0].equals(sortField) || !parts[1].equals(ascend ? "a" : "d"),
+                ErrorCode.PARAMS_ERROR, "游标与排序条件不一致");
+        try {
+            return new long[]{Long.parseLong(parts[2]), Long.parseLong(parts[3])};
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+
+    /**
+     * 按颜色搜索图片（内存索引取色差最小的前 K 张）
+     *
+     * @param searchPictureByColorRequest 按颜色搜索请求
+     * @param loginUser                   登录用户
+     * @return 图片列表，按色差由小到大排列
+     */
+    @Override
+    public List<PictureVO> searchPictureByColor(SearchPictureByColorRequest searchPictureByColorRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(searchPictureByColorRequest == null, ErrorCode.PARAMS_ERROR);
+        Integer rgb = ColorUtils.parseHex(searchPictureByColorRequest.getPicColor());
+        ThrowUtils.throwIf(rgb == null, ErrorCode.PARAMS_ERROR, "颜色格式错误");
+        int topK = getSearchSize(searchPictureByColorRequest.getTopK());
+        Long spaceId = searchPictureByColorRequest.getSpaceId();
+        List<Long> idList = pictureColorIndex.search(spaceId, rgb, topK);
+        return listSearchResult(idList, spaceId, loginUser);
+    }
+
+    /**
+     * 以图搜图（内存感知哈希索引取汉明距离最小的前 K 张，在原图所在空间内搜索）
+     *
+     * @param searchPictureByPictureRequest 以图搜图请求
+     * @param loginUser                     登录用户
+     * @return 相似图片列表（不含原图），按汉明距离由小到大排列
+     */
+    @Override
+    public List<PictureVO> searchPictureByPicture(SearchPictureByPictureRequest searchPictureByPictureRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null, ErrorCode.PARAMS_ERROR);
+        Long pictureId = searchPictureByPictureRequest.getPictureId();
+        ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
+        Picture picture = this.getById(pictureId);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        // 私有空间的图片仅本人或管理员可用于搜索
+        ThrowUtils.throwIf(picture.getSpaceId() != null && !picture.getUserId().equals(loginUser.getId())
+                && !userService.isAdmin(loginUser), ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(picture.getPicHash() == null, ErrorCode.OPERATION_ERROR, "图片特征尚未生成");
+        int topK = getSearchSize(searchPictureByPictureRequest.getTopK());
+        Integer maxDistance = searchPictureByPictureRequest.getMaxDistance();
+        if (maxDistance == null || maxDistance < 0) {
+            maxDistance = DEFAULT_HASH_DISTANCE;
+        }
+        ThrowUtils.throwIf(maxDistance > PictureHashIndex.MAX_DISTANCE, ErrorCode.PARAMS_ERROR, "汉明距离过大");
+        // 多取一条，结果中会包含原图
+        List<Long> idList = pictureHashIndex.search(picture.getSpaceId(), picture.getPicHash(), maxDistance, topK + 1);
+        idList.remove(pictureId);
+        if (idList.size() > topK) {
+            idList = idList.subList(0, topK);
+        }
+        return listSearchResult(idList, picture.getSpaceId(), loginUser);
+    }
+
+    /**
+     * 搜索返回条数
+     */
+    private int getSearchSize(Integer topK) {
+        if (topK == null || topK <= 0) {
+            return DEFAULT_SEARCH_SIZE;
+        }
+        ThrowUtils.throwIf(topK > MAX_SEARCH_SIZE, ErrorCode.PARAMS_ERROR, "返回条数过多");
+        return topK;
+    }
+
+    /**
+     * 按索引返回的顺序查询图片
+     *
+     * @param idList    图片 id 列表
+     * @param spaceId   空间 id
+     * @param loginUser 登录用户
+     * @return 图片列表
+     */
+    private List<PictureVO> listSearchResult(List<Long> idList, Long spaceId, User loginUser) {
+        if (CollUtil.isEmpty(idList)) {
+            return new ArrayList<>();
+        }
+        Map<Long, Picture> pictureMap = this.listByIds(idList).stream()
+                .collect(Collectors.toMap(Picture::getId, Function.identity()));
+        boolean isAdmin = userService.isAdmin(loginUser);
+        List<PictureVO> pictureVOList = new ArrayList<>(idList.size());
+        for (Long id : idList) {
+            Picture picture = pictureMap.get(id);
+            if (picture == null) {
+                continue;
+            }
+            // 私有空间的图片仅本人或管理员可见
+            if (spaceId != null && !isAdmin && !picture.getUserId().equals(loginUser.getId())) {
+                continue;
+            }
+            pictureVOList.add(PictureVO.objToVo(picture));
+        }
+        return pictureVOList;
+    }
+
+    /**
+     * 根据上传结果保存图片信息
+     *
+     * @param uploadPictureResult 上传结果
+     * @param pictureId           图片 id（不为空则为更新）
+     * @param loginUser           登录用户
+     * @return 图片信息
+     */
+    private PictureVO savePicture(UploadPictureResult uploadPictureResult, Long pictureId, User loginUser) {
         // 封装图片信息
         Picture picture = new Picture();
         picture.setUrl(uploadPictureResult.getUrl());
@@ -79,14 +734,30 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         picture.setPicHeight(uploadPictureResult.getPicHeight());
         picture.setPicScale(uploadPictureResult.getPicScale());
         picture.setPicFormat(uploadPictureResult.getPicFormat());
+        picture.setPicColor(uploadPictureResult.getPicColor());
+        picture.setPicColorLab(uploadPictureResult.getPicColorLab());
+        picture.setPicHash(uploadPictureResult.getPicHash());
+        picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        picture.setVariants(JSONUtil.toJsonStr(uploadPictureResult.getVariants()));
+        picture.setContentHash(uploadPictureResult.getContentHash());
+        picture.setUploadStatus(PictureUploadStatusEnum.SUCCESS.getValue());
         picture.setUserId(loginUser.getId());
         // 如果pictureId不为空，则更新图片信息,否则新增
+        Picture oldPicture = null;
         if (pictureId != null) {
+            oldPicture = this.getById(pictureId);
             picture.setId(pictureId);
             picture.setEditTime(new Date());
         }
         boolean result = this.saveOrUpdate(picture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败");
+        // 重新上传后，旧图片的对象不再被引用
+        if (oldPicture != null && !StrUtil.equals(oldPicture.getUrl(), picture.getUrl())) {
+            picturePurgeManager.enqueue(oldPicture);
+        }
+        // 重新上传不改变所在空间
+        Long spaceId = oldPicture != null ? oldPicture.getSpaceId() : picture.getSpaceId();
+        applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getId(), spaceId));
         return PictureVO.objToVo(picture);
     }
 
@@ -98,38 +769,82 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
      */
     @Override
     public QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest) {
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
         if (pictureQueryRequest == null) {
-            return queryWrapper;
+            return new QueryWrapper<>();
         }
+        return this.getQueryWrapper(pictureQueryRequest, this.searchTextIndex(pictureQueryRequest.getSearchText()));
+    }
+
+    /**
+     * 获取查询条件（使用已经查好的全文查询结果）
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param textMatchIdList     全文查询结果，null 表示没有全文查询、索引不可用或结果过多
+     * @return 图片查询条件
+     */
+    private QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest, List<Long> textMatchIdList) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
         // 获取查询条件
-        if (StrUtil.isNotBlank(pictureQueryRequest.getSearchText())) {
-            queryWrapper.and(i -> i.like("name", pictureQueryRequest.getSearchText()))
-                    .or()
-                    .like("introduction", pictureQueryRequest.getSearchText());
+        String searchText = pictureQueryRequest.getSearchText();
+        if (StrUtil.isNotBlank(searchText)) {
+            // 优先走全文索引，索引不可用或结果过多时退回 LIKE（OR 必须包在括号里，否则会绕过其他条件）
+            if (textMatchIdList == null) {
+                queryWrapper.and(i -> i.like("name", searchText).or().like("introduction", searchText));
+            } else if (textMatchIdList.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", textMatchIdList);
+            }
         }
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getId()), "id", pictureQueryRequest.getId());
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getUserId()), "userId", pictureQueryRequest.getUserId());
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getName()), "name", pictureQueryRequest.getName());
         queryWrapper.like(ObjUtil.isNotEmpty(pictureQueryRequest.getIntroduction()), "introduction", pictureQueryRequest.getIntroduction());
         queryWrapper.like(ObjUtil.isNotEmpty(pictureQueryRequest.getPicFormat()), "picFormat", pictureQueryRequest.getPicFormat());
-        queryWrapper.eq(StrUtil.isNotBlank(pictureQueryRequest.getCategory()), "category", pictureQueryRequest.getCategory());
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getPicWidth()), "picWidth", pictureQueryRequest.getPicWidth());
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getPicHeight()), "picHeight", pictureQueryRequest.getPicHeight());
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getPicSize()), "picSize", pictureQueryRequest.getPicSize());
         queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getPicScale()), "picScale", pictureQueryRequest.getPicScale());
-        // json 数组查询
+        queryWrapper.eq(ObjUtil.isNotEmpty(pictureQueryRequest.getUploadStatus()), "uploadStatus", pictureQueryRequest.getUploadStatus());
+        // 标签、分类优先走位图索引
         List<String> tags = pictureQueryRequest.getTags();
-        if (CollUtil.isNotEmpty(tags)) {
-            for (String tag : tags) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
+        String category = pictureQueryRequest.getCategory();
+        List<Long> tagMatchIdList = pictureTagIndex.match(tags, pictureQueryRequest.isTagMatchAny(), category, MAX_TAG_MATCHES);
+        if (tagMatchIdList == null) {
+            queryWrapper.eq(StrUtil.isNotBlank(category), "category", category);
+            // json 数组查询
+            if (CollUtil.isNotEmpty(tags)) {
+                if (pictureQueryRequest.isTagMatchAny()) {
+                    queryWrapper.and(i -> tags.forEach(tag -> i.or().like("tags", "\"" + tag + "\"")));
+                } else {
+                    for (String tag : tags) {
+                        queryWrapper.like("tags", "\"" + tag + "\"");
+                    }
+                }
             }
+        } else if (tagMatchIdList.isEmpty()) {
+            queryWrapper.apply("1 = 0");
+        } else {
+            queryWrapper.in("id", tagMatchIdList);
         }
         // 排序
         queryWrapper.orderBy(StrUtil.isNotBlank(pictureQueryRequest.getSortField()), pictureQueryRequest.getSortOrder().equals("ascend"), pictureQueryRequest.getSortField());
         return queryWrapper;
     }
 
+    /**
+     * 全文查询
+     *
+     * @param searchText 查询文本
+     * @return 匹配的图片 id；没有查询文本、索引不可用或结果过多时返回 null
+     */
+    private List<Long> searchTextIndex(String searchText) {
+        if (StrUtil.isBlank(searchText)) {
+            return null;
+        }
+        return pictureTextIndex.search(searchText, MAX_TEXT_MATCHES);
+    }
+
     /**
      * 获取图片包装类（单条）
      *
@@ -157,7 +872,9 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
     @Override
     public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage) {
         List<Picture> records = picturePage.getRecords();
-        Page<PictureVO> pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        CountedPage<PictureVO> pictureVOPage = new CountedPage<>(picturePage.getCurrent(), picturePage.getSize());
+        pictureVOPage.setTotal(picturePage.getTotal());
+        pictureVOPage.setTotalExact(!(picturePage instanceof CountedPage) || ((CountedPage<Picture>) picturePage).isTotalExact());
         if (CollUtil.isEmpty(records)) {
             return pictureVOPage;
         }
@@ -8,7 +8,10 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.grass.picturebackend.constant.UserConstant;
 import com.grass.picturebackend.exception.BusinessException;
 import com.grass.picturebackend.exception.ErrorCode;
+import com.grass.picturebackend.manager.cache.UserCache;
 import com.grass.picturebackend.mapper.UserMapper;
+import com.grass.picturebackend.model.convert.UserConvert;
+import com.grass.picturebackend.model.dto.user.LoginUserPrincipal;
 import com.grass.picturebackend.model.dto.user.UserLoginRequest;
 import com.grass.picturebackend.model.dto.user.UserQueryRequest;
 import com.grass.picturebackend.model.dto.user.UserRegisterRequest;
@@ -21,7 +24,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -40,6 +45,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     // 盐值，混淆密码
     private static final String SALT = "grass";
 
+    @Resource
+    private UserCache userCache;
+
     /**
      * 用户注册
      *
@@ -124,7 +132,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             log.info("user login failed, userAccount cannot match userPassword");
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "用户不存在或密码错误");
         }
-        request.getSession().setAttribute(UserConstant.USER_LOGIN_STATE, user);
+        // 会话中只保存 id、角色和版本号
+        request.getSession().setAttribute(UserConstant.USER_LOGIN_STATE, LoginUserPrincipal.of(user));
         return this.getLoginUserVO(user);
     }
 
@@ -139,9 +148,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (user == null) {
             return null;
         }
-        LoginUserVO loginUserVO = new LoginUserVO();
-        BeanUtil.copyProperties(user, loginUserVO);
-        return loginUserVO;
+        return UserConvert.INSTANCE.toLoginUserVo(user);
     }
 
     /**
@@ -152,16 +159,33 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
      */
     @Override
     public User getLoginUser(HttpServletRequest request) {
+        // 同一请求内已经查询过
+        Object loginUserObj = request.getAttribute(UserConstant.LOGIN_USER_ATTRIBUTE);
+        if (loginUserObj != null) {
+            return (User) loginUserObj;
+        }
         Object userObj = request.getSession().getAttribute(UserConstant.USER_LOGIN_STATE);
-        User currentUser = (User) userObj;
-        if (currentUser == null || currentUser.getId() == null) {
+        Long userId = null;
+        if (userObj instanceof LoginUserPrincipal) {
+            userId = ((LoginUserPrincipal) userObj).getId();
+        } else if (userObj instanceof User) {
+            // 兼容改造前保存完整用户的会话
+            userId = ((User) userObj).getId();
+        }
+        if (userId == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-        // 查询用户信息
-        User user = this.getById(currentUser.getId());
+        // 查询用户信息（走用户缓存）
+        User user = userCache.get(userId, this::getById);
         if (user == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
+        // 用户信息有变化时才回写会话，避免每次请求都写会话存储
+        LoginUserPrincipal principal = LoginUserPrincipal.of(user);
+        if (!principal.equals(userObj)) {
+            request.getSession().setAttribute(UserConstant.USER_LOGIN_STATE, principal);
+        }
+        request.setAttribute(UserConstant.LOGIN_USER_ATTRIBUTE, user);
         return user;
     }
 
@@ -178,6 +202,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "未登录");
         }
         request.getSession().removeAttribute(UserConstant.USER_LOGIN_STATE);
+        request.removeAttribute(UserConstant.LOGIN_USER_ATTRIBUTE);
         return true;
     }
 
@@ -193,9 +218,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (user == null) {
             return null;
         }
-        UserVO userVO = new UserVO();
-        BeanUtil.copyProperties(user, userVO);
-        return userVO;
+        return UserConvert.INSTANCE.toUserVo(user);
     }
 
     /**
@@ -254,5 +277,35 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return user != null && UserRoleEnum.ADMIN.getValue().equals(user.getUserRole());
     }
 
+    /**
+     * 更新用户（同时失效用户缓存）
+     *
+     * @param user 用户
+     * @return 是否更新成功
+     */
+    @Override
+    public boolean updateById(User user) {
+        boolean result = super.updateById(user);
+        if (user != null && user.getId() != null) {
+            userCache.invalidate(user.getId());
+        }
+        return result;
+    }
+
+    /**
+     * 删除用户（同时失效用户缓存）
+     *
+     * @param id 用户 id
+     * @return 是否删除成功
+     */
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (id instanceof Long) {
+            userCache.invalidate((Long) id);
+        }
+        return result;
+    }
+
 
 }
@@ -0,0 +1,173 @@
+package com.grass.picturebackend.utils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 颜色工具：主色调提取、sRGB 与 CIE Lab 互转、Lab 压缩存储
+ * Lab 空间的欧氏距离（ΔE76）与人眼感知的色差基本一致，按颜色搜索时使用
+ * @date 2025年05月19日 09:30
+ */
+public class ColorUtils {
+
+    /**
+     * 主色调直方图每个通道保留的位数（4 位即 16 级，共 4096 个桶）
+     */
+    private static final int HISTOGRAM_BITS = 4;
+
+    /**
+     * 透明度低于该值的像素不参与主色调统计
+     */
+    private static final int MIN_ALPHA = 128;
+
+    private ColorUtils() {
+    }
+
+    /**
+     * 主色调：按通道量化后出现次数最多的颜色桶，取桶内像素的平均色
+     *
+     * @param image 图片（应已降采样到很小的尺寸）
+     * @return RGB（0xRRGGBB），没有不透明像素时返回 -1
+     */
+    public static int dominantColor(BufferedImage image) {
+        int bucketCount = 1 << (HISTOGRAM_BITS * 3);
+        int shift = 8 - HISTOGRAM_BITS;
+        int[] counts = new int[bucketCount];
+        long[] sumR = new long[bucketCount];
+        long[] sumG = new long[bucketCount];
+        long[] sumB = new long[bucketCount];
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int argb : row) {
+                if (hasAlpha && (argb >>> 24) < MIN_ALPHA) {
+                    continue;
+                }
+                int r = (argb >> 16) & 0xFF;
+                int g = (argb >> 8) & 0xFF;
+                int b = argb & 0xFF;
+                int bucket = ((r >> shift) << (HISTOGRAM_BITS * 2)) | ((g >> shift) << HISTOGRAM_BITS) | (b >> shift);
+                counts[bucket]++;
+                sumR[bucket] += r;
+                sumG[bucket] += g;
+                sumB[bucket] += b;
+            }
+        }
+        int best = -1;
+        for (int i = 0; i < bucketCount; i++) {
+            if (counts[i] > 0 && (best < 0 || counts[i] > counts[best])) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return -1;
+        }
+        int r = (int) (sumR[best] / counts[best]);
+        int g = (int) (sumG[best] / counts[best]);
+        int b = (int) (sumB[best] / counts[best]);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * sRGB 转 CIE Lab（D65 白点）
+     *
+     * @param rgb RGB（0xRRGGBB）
+     * @return [L, a, b]
+     */
+    public static double[] rgbToLab(int rgb) {
+        double r = toLinear(((rgb >> 16) & 0xFF) / 255.0);
+        double g = toLinear(((rgb >> 8) & 0xFF) / 255.0);
+        double b = toLinear((rgb & 0xFF) / 255.0);
+        double x = (r * 0.4124564 + g * 0.3575761 + b * 0.1804375) / 0.95047;
+        double y = r * 0.2126729 + g * 0.7151522 + b * 0.0721750;
+        double z = (r * 0.0193339 + g * 0.1191920 + b * 0.9503041) / 1.08883;
+        double fx = labF(x);
+        double fy = labF(y);
+        double fz = labF(z);
+        return new double[]{116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz)};
+    }
+
+    /**
+     * Lab 压缩为一个整数：L 映射到 0-255，a、b 偏移 128，各占 8 位
+     *
+     * @param lab [L, a, b]
+     * @return 压缩后的整数（0xLLAABB）
+     */
+    public static int packLab(double[] lab) {
+        int l = clamp((int) Math.round(lab[0] * 2.55));
+        int a = clamp((int) Math.round(lab[1]) + 128);
+        int b = clamp((int) Math.round(lab[2]) + 128);
+        return (l << 16) | (a << 8) | b;
+    }
+
+    /**
+     * 解压 Lab
+     *
+     * @param packedLab 压缩后的整数
+     * @return [L, a, b]
+     */
+    public static double[] unpackLab(int packedLab) {
+        return new double[]{((packedLab >> 16) & 0xFF) / 2.55, ((packedLab >> 8) & 0xFF) - 128, (packedLab & 0xFF) - 128};
+    }
+
+    /**
+     * 两个 Lab 颜色的色差（ΔE76）
+     */
+    public static double distance(double[] lab1, double[] lab2) {
+        double dl = lab1[0] - lab2[0];
+        double da = lab1[1] - lab2[1];
+        double db = lab1[2] - lab2[2];
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    /**
+     * RGB 转十六进制字符串
+     *
+     * @param rgb RGB（0xRRGGBB）
+     * @return 如 0x1A2B3C
+     */
+    public static String toHex(int rgb) {
+        return String.format("0x%06X", rgb & 0xFFFFFF);
+    }
+
+    /**
+     * 解析十六进制颜色，支持 0x、# 前缀；按数值解析，兼容省略了前导 0 的写法
+     *
+     * @param hex 十六进制颜色
+     * @return RGB（0xRRGGBB），格式错误时返回 null
+     */
+    public static Integer parseHex(String hex) {
+        if (hex == null) {
+            return null;
+        }
+        String value = hex.trim();
+        if (value.startsWith("0x") || value.startsWith("0X")) {
+            value = value.substring(2);
+        } else if (value.startsWith("#")) {
+            value = value.substring(1);
+        }
+        if (value.isEmpty() || value.length() > 6) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double toLinear(double channel) {
+        return channel <= 0.04045 ? channel / 12.92 : Math.pow((channel + 0.055) / 1.055, 2.4);
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,112 @@
+package com.grass.picturebackend.utils;
+
+import cn.hutool.core.util.HexUtil;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 边读边统计字节数并计算摘要的输入流，用于流式上传时无需落盘即可得到文件大小与摘要
+ * @date 2025年05月06日 10:12
+ */
+public class CountingDigestInputStream extends FilterInputStream {
+
+    /**
+     * 摘要计算器
+     */
+    private final MessageDigest messageDigest;
+
+    /**
+     * 已读取的字节数
+     */
+    private long byteCount;
+
+    /**
+     * 摘要结果（读完后才计算一次）
+     */
+    private byte[] digest;
+
+    public CountingDigestInputStream(InputStream in, String algorithm) {
+        super(in);
+        try {
+            this.messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("不支持的摘要算法: " + algorithm, e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            messageDigest.update((byte) b);
+            byteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            messageDigest.update(b, off, n);
+            byteCount += n;
+        }
+        return n;
+    }
+
+    /**
+     * 跳过的字节同样需要参与摘要计算，因此这里改为读取
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(buffer, 0, (int) Math.min(remaining, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    /**
+     * 摘要与计数都不支持回退
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * 获取已读取的字节数
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * 获取摘要（十六进制小写），调用后不应再继续读取
+     */
+    public String getDigestHex() {
+        if (digest == null) {
+            digest = messageDigest.digest();
+        }
+        return HexUtil.encodeHexStr(digest);
+    }
+}
@@ -0,0 +1,56 @@
+package com.grass.picturebackend.utils;
+
+import org.springframework.core.io.InputStreamSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 降采样解码：每 N 个像素只解码 1 个，大图不会以原始分辨率展开到堆内存
+ * WebP 由 TwelveMonkeys 插件解码（只读，动图取第一帧）；仍然无法解码的图片返回 null 或抛出异常，
+ * 调用方跳过衍生图、主色调与感知哈希，上传本身不受影响
+ * @date 2025年05月19日 09:30
+ */
+public class ImageDecodeUtils {
+
+    static {
+        // 打包运行时 ImageIO 可能先于插件所在的类加载器初始化，显式扫描一次
+        ImageIO.scanForPlugins();
+    }
+
+    private ImageDecodeUtils() {
+    }
+
+    /**
+     * 降采样解码
+     *
+     * @param source      图片内容
+     * @param subsampling 降采样倍数（横纵相同）
+     * @return 图片，没有可用的解码器时返回 null
+     */
+    public static BufferedImage decode(InputStreamSource source, int subsampling) throws IOException {
+        try (InputStream inputStream = source.getInputStream();
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.grass.picturebackend.utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片感知哈希（dHash）
+ * 缩放到 9x8 灰度图后比较每行相邻像素的明暗，得到 64 位哈希；缩放、压缩、轻微调色后哈希基本不变，
+ * 两张图的相似程度用汉明距离衡量
+ * @date 2025年05月20日 09:30
+ */
+public class ImageHashUtils {
+
+    private static final int HASH_WIDTH = 9;
+
+    private static final int HASH_HEIGHT = 8;
+
+    private ImageHashUtils() {
+    }
+
+    /**
+     * 计算 dHash
+     *
+     * @param image 图片（可以是降采样后的小图）
+     * @return 64 位哈希
+     */
+    public static long dHash(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+        } finally {
+            graphics.dispose();
+        }
+        int[] pixels = gray.getRaster().getPixels(0, 0, HASH_WIDTH, HASH_HEIGHT, (int[]) null);
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                int offset = y * HASH_WIDTH + x;
+                hash <<= 1;
+                if (pixels[offset] > pixels[offset + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 汉明距离
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+}
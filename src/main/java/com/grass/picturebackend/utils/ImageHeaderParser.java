@@ -0,0 +1,288 @@
+package com.grass.picturebackend.utils;
+
+import lombok.Data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片文件头解析器，只读取 PNG / JPEG / WebP 的头部字节获取格式与宽高，不解码像素
+ * 格式以魔数为准，不信任文件后缀
+ * @date 2025年05月08日 09:40
+ */
+public class ImageHeaderParser {
+
+    public static final String FORMAT_PNG = "png";
+
+    public static final String FORMAT_JPG = "jpg";
+
+    public static final String FORMAT_WEBP = "webp";
+
+    /**
+     * 最多读取的字节数，防止畸形 JPEG 让解析一直读下去
+     */
+    private static final int MAX_READ_BYTES = 1024 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private ImageHeaderParser() {
+    }
+
+    /**
+     * 解析图片头部
+     *
+     * @param inputStream 图片输入流（只会读取头部，调用方负责关闭）
+     * @return 图片头信息，无法识别时返回 null
+     */
+    public static ImageHeader parse(InputStream inputStream) throws IOException {
+        HeaderReader reader = new HeaderReader(inputStream);
+        byte[] magic = new byte[12];
+        if (reader.readAtMost(magic) < magic.length) {
+            return null;
+        }
+        if (startsWith(magic, PNG_SIGNATURE)) {
+            return parsePng(reader);
+        }
+        if ((magic[0] & 0xFF) == 0xFF && (magic[1] & 0xFF) == 0xD8 && (magic[2] & 0xFF) == 0xFF) {
+            return parseJpeg(reader, magic);
+        }
+        if (magic[0] == 'R' && magic[1] == 'I' && magic[2] == 'F' && magic[3] == 'F'
+                && magic[8] == 'W' && magic[9] == 'E' && magic[10] == 'B' && magic[11] == 'P') {
+            return parseWebp(reader);
+        }
+        return null;
+    }
+
+    /**
+     * PNG：签名之后第一个块必须是 IHDR，宽高为大端 32 位整数
+     */
+    private static ImageHeader parsePng(HeaderReader reader) throws IOException {
+        // 已读 12 字节 = 8 字节签名 + 4 字节 IHDR 长度
+        byte[] chunk = new byte[12];
+        reader.readFully(chunk);
+        if (chunk[0] != 'I' || chunk[1] != 'H' || chunk[2] != 'D' || chunk[3] != 'R') {
+            return null;
+        }
+        return new ImageHeader(FORMAT_PNG, readInt32BE(chunk, 4), readInt32BE(chunk, 8));
+    }
+
+    /**
+     * JPEG：按段跳过，直到遇到 SOF 段，读取其中的高、宽
+     */
+    private static ImageHeader parseJpeg(HeaderReader reader, byte[] magic) throws IOException {
+        // magic[2] 为第一个段的 0xFF，magic[3] 为段标记，magic[4..5] 为段长度，段内容已读 6 字节
+        int marker = magic[3] & 0xFF;
+        int length = ((magic[4] & 0xFF) << 8) | (magic[5] & 0xFF);
+        int consumed = 6;
+        while (true) {
+            if (isSofMarker(marker)) {
+                byte[] sof = new byte[5];
+                int fromMagic = Math.max(0, Math.min(sof.length, magic.length - consumed));
+                System.arraycopy(magic, consumed, sof, 0, fromMagic);
+                reader.readFully(sof, fromMagic, sof.length - fromMagic);
+                // 精度(1) 高(2) 宽(2)
+                int height = ((sof[1] & 0xFF) << 8) | (sof[2] & 0xFF);
+                int width = ((sof[3] & 0xFF) << 8) | (sof[4] & 0xFF);
+                return new ImageHeader(FORMAT_JPG, width, height);
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // 到了图像数据或文件结尾还没有 SOF
+                return null;
+            }
+            // 跳过本段剩余部分（段长度包含长度字段本身的 2 字节）
+            long remaining = length - 2 - Math.max(0, magic.length - consumed);
+            if (remaining < 0) {
+                return null;
+            }
+            reader.skipFully(remaining);
+            consumed = magic.length;
+            // 读取下一个段标记，跳过填充的 0xFF
+            int b = reader.read();
+            if (b != 0xFF) {
+                return null;
+            }
+            do {
+                marker = reader.read();
+            } while (marker == 0xFF);
+            if ((marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                // 无长度的独立标记
+                length = 2;
+                continue;
+            }
+            length = (reader.read() << 8) | reader.read();
+            if (length < 2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * WebP：RIFF 容器中第一个块为 VP8 / VP8L / VP8X
+     */
+    private static ImageHeader parseWebp(HeaderReader reader) throws IOException {
+        byte[] chunkHeader = new byte[8];
+        reader.readFully(chunkHeader);
+        String fourCC = new String(chunkHeader, 0, 4, StandardCharsets.US_ASCII);
+        byte[] data = new byte[10];
+        reader.readFully(data);
+        switch (fourCC) {
+            case "VP8X": {
+                // 标记(1) 保留(3) 画布宽 - 1(24 位小端) 画布高 - 1(24 位小端)
+                int width = 1 + readInt24LE(data, 4);
+                int height = 1 + readInt24LE(data, 7);
+                return new ImageHeader(FORMAT_WEBP, width, height);
+            }
+            case "VP8 ": {
+                // 帧标记(3) 起始码 9D 01 2A(3) 宽(14 位) 高(14 位)
+                if ((data[3] & 0xFF) != 0x9D || (data[4] & 0xFF) != 0x01 || (data[5] & 0xFF) != 0x2A) {
+                    return null;
+                }
+                int width = (((data[7] & 0xFF) << 8) | (data[6] & 0xFF)) & 0x3FFF;
+                int height = (((data[9] & 0xFF) << 8) | (data[8] & 0xFF)) & 0x3FFF;
+                return new ImageHeader(FORMAT_WEBP, width, height);
+            }
+            case "VP8L": {
+                // 签名 0x2F(1) 之后 14 位宽 - 1、14 位高 - 1
+                if ((data[0] & 0xFF) != 0x2F) {
+                    return null;
+                }
+                int b0 = data[1] & 0xFF;
+                int b1 = data[2] & 0xFF;
+                int b2 = data[3] & 0xFF;
+                int b3 = data[4] & 0xFF;
+                int width = 1 + (((b1 & 0x3F) << 8) | b0);
+                int height = 1 + (((b3 & 0x0F) << 10) | (b2 << 2) | ((b1 & 0xC0) >> 6));
+                return new ImageHeader(FORMAT_WEBP, width, height);
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * SOF0 ~ SOF15，排除 DHT(C4)、JPG(C8)、DAC(CC)
+     */
+    private static boolean isSofMarker(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt32BE(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int readInt24LE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8) | ((bytes[offset + 2] & 0xFF) << 16);
+    }
+
+    /**
+     * 图片头信息
+     */
+    @Data
+    public static class ImageHeader {
+
+        /**
+         * 真实格式：png / jpg / webp
+         */
+        private final String format;
+
+        private final int width;
+
+        private final int height;
+    }
+
+    /**
+     * 带读取上限的顺序读取器
+     */
+    private static class HeaderReader {
+
+        private final InputStream in;
+
+        private long readBytes;
+
+        HeaderReader(InputStream in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            checkLimit(1);
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            readBytes++;
+            return b;
+        }
+
+        int readAtMost(byte[] buffer) throws IOException {
+            int total = 0;
+            while (total < buffer.length) {
+                int n = in.read(buffer, total, buffer.length - total);
+                if (n < 0) {
+                    break;
+                }
+                total += n;
+            }
+            readBytes += total;
+            return total;
+        }
+
+        void readFully(byte[] buffer) throws IOException {
+            readFully(buffer, 0, buffer.length);
+        }
+
+        void readFully(byte[] buffer, int offset, int length) throws IOException {
+            checkLimit(length);
+            int total = 0;
+            while (total < length) {
+                int n = in.read(buffer, offset + total, length - total);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                total += n;
+            }
+            readBytes += length;
+        }
+
+        void skipFully(long n) throws IOException {
+            if (n <= 0) {
+                return;
+            }
+            checkLimit(n);
+            long remaining = n;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    // skip 不保证前进，退化为读取一个字节
+                    if (in.read() < 0) {
+                        throw new EOFException();
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+            readBytes += n;
+        }
+
+        private void checkLimit(long n) throws IOException {
+            if (readBytes + n > MAX_READ_BYTES) {
+                throw new IOException("image header too large");
+            }
+        }
+    }
+}
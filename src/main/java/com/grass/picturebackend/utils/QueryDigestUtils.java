@@ -0,0 +1,68 @@
+package com.grass.picturebackend.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 查询条件规范化与摘要
+ * 按字段名排序，去掉空值、空白字符串、空集合与 false，集合去重排序、时间转为毫秒，等价的查询条件得到相同的结果，用作缓存键
+ * @date 2025年05月23日 09:30
+ */
+public class QueryDigestUtils {
+
+    private QueryDigestUtils() {
+    }
+
+    /**
+     * 规范化查询条件
+     *
+     * @param bean         查询请求
+     * @param ignoreFields 忽略的字段（如分页参数）
+     * @return 字段名 -> 规范化后的值（按字段名排序）
+     */
+    public static Map<String, Object> normalize(Object bean, String... ignoreFields) {
+        Set<String> ignoreFieldSet = new HashSet<>(Arrays.asList(ignoreFields));
+        Map<String, Object> fieldMap = BeanUtil.beanToMap(bean, new TreeMap<>(), false, true);
+        Map<String, Object> normalizedMap = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : fieldMap.entrySet()) {
+            Object value = entry.getValue();
+            if (ignoreFieldSet.contains(entry.getKey()) || Boolean.FALSE.equals(value)
+                    || (value instanceof CharSequence && StrUtil.isBlank((CharSequence) value))
+                    || (value instanceof Collection && ((Collection<?>) value).isEmpty())) {
+                continue;
+            }
+            if (value instanceof Collection) {
+                value = new TreeSet<>((Collection<?>) value);
+            } else if (value instanceof Date) {
+                value = ((Date) value).getTime();
+            }
+            normalizedMap.put(entry.getKey(), value);
+        }
+        return normalizedMap;
+    }
+
+    /**
+     * 规范化后的查询条件的摘要
+     *
+     * @param normalizedMap 规范化后的查询条件
+     * @return MD5 摘要
+     */
+    public static String digest(Map<String, Object> normalizedMap) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Object> entry : normalizedMap.entrySet()) {
+            builder.append(entry.getKey()).append('=').append(entry.getValue()).append('&');
+        }
+        return DigestUtil.md5Hex(builder.toString());
+    }
+}
@@ -0,0 +1,99 @@
+package com.grass.picturebackend.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 限制读取字节数的输入流，读到上限之后仍有数据时抛出异常，用于未声明长度的下载
+ * @date 2025年06月05日 10:20
+ */
+public class SizeLimitedInputStream extends FilterInputStream {
+
+    /**
+     * 允许读取的最大字节数
+     */
+    private final long limit;
+
+    /**
+     * 已读取的字节数
+     */
+    private long byteCount;
+
+    /**
+     * 是否超出上限
+     */
+    private boolean exceeded;
+
+    public SizeLimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (exceeded) {
+            throw new IOException("stream exceeds limit: " + limit);
+        }
+        // 多读一个字节，刚好等于上限的流不会被误判
+        int n = in.read(b, off, (int) Math.min(len, limit - byteCount + 1));
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (exceeded) {
+            throw new IOException("stream exceeds limit: " + limit);
+        }
+        long skipped = in.skip(Math.min(n, limit - byteCount + 1));
+        if (skipped > 0) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    /**
+     * 计数不支持回退
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void count(long n) throws IOException {
+        byteCount += n;
+        if (byteCount > limit) {
+            exceeded = true;
+            throw new IOException("stream exceeds limit: " + limit);
+        }
+    }
+
+    /**
+     * 是否超出上限（被 SDK 等包装成其他异常时，调用方据此判断原因）
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+}
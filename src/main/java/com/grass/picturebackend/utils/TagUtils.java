@@ -0,0 +1,45 @@
+package com.grass.picturebackend.utils;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片标签（数据库中存 JSON 数组字符串）解析
+ * 标签组合的种类远少于图片数量，解析结果按原字符串缓存，同一组标签只解析一次
+ * @date 2025年05月28日 09:30
+ */
+public class TagUtils {
+
+    private static final Cache<String, List<String>> TAG_LIST_CACHE = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    private TagUtils() {
+    }
+
+    /**
+     * 解析标签
+     *
+     * @param tags JSON 数组字符串
+     * @return 标签列表（多个对象共享，不可修改）
+     */
+    public static List<String> parse(String tags) {
+        if (StrUtil.isBlank(tags)) {
+            return Collections.emptyList();
+        }
+        return TAG_LIST_CACHE.get(tags, key -> Collections.unmodifiableList(JSONUtil.toList(key, String.class)));
+    }
+
+    /**
+     * 标签转为 JSON 数组字符串
+     */
+    public static String toJson(List<String> tags) {
+        return JSONUtil.toJsonStr(tags);
+    }
+}
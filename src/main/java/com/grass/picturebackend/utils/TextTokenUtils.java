@@ -0,0 +1,94 @@
+package com.grass.picturebackend.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 文本分词（用于全文索引）
+ * 连续的中日韩文字按相邻两字切分（二元分词，单独一个字时保留单字），连续的字母数字作为一个词并转为小写，其余字符作为分隔符。
+ * 建索引时中日韩文字额外保留每个单字，单字查询才能命中多字词中的字；查询时仍按二元分词，多字查询不会退化成逐字匹配
+ * @date 2025年05月24日 09:30
+ */
+public class TextTokenUtils {
+
+    private TextTokenUtils() {
+    }
+
+    /**
+     * 查询分词
+     *
+     * @param text 文本
+     * @return 词列表（保留重复，按出现顺序）
+     */
+    public static List<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * 建索引分词（中日韩文字在二元分词之外再加上单字）
+     *
+     * @param text 文本
+     * @return 词列表（保留重复，按出现顺序）
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    private static List<String> tokenize(String text, boolean withUnigrams) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                while (i < length && isCjk(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                addCjkTokens(text.substring(start, i), withUnigrams, tokens);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int current = text.codePointAt(i);
+                    if (isCjk(current) || !Character.isLetterOrDigit(current)) {
+                        break;
+                    }
+                    i += Character.charCount(current);
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addCjkTokens(String run, boolean withUnigrams, List<String> tokens) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+        if (withUnigrams) {
+            for (int i = 0; i < codePoints.length; i++) {
+                tokens.add(new String(codePoints, i, 1));
+            }
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,287 @@
+package com.grass.picturebackend.manager;
+
+import cn.hutool.core.io.IoUtil;
+import com.grass.picturebackend.config.BatchImportConfig;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObject;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import com.grass.picturebackend.model.dto.file.UploadPictureResult;
+import com.grass.picturebackend.model.entity.PictureContent;
+import com.grass.picturebackend.model.enums.PictureBatchImportStatusEnum;
+import com.grass.picturebackend.model.vo.PictureBatchImportItemVO;
+import com.grass.picturebackend.model.vo.PictureBatchImportVO;
+import com.grass.picturebackend.service.PictureContentService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 批量导入引擎测试，搜索页与图片由本地 HTTP 服务按固定内容返回
+ * @date 2025年06月03日 10:00
+ */
+class BatchImportManagerTest {
+
+    private static final long HUGE_CONTENT_LENGTH = FileManager.MAX_PICTURE_SIZE + 1;
+
+    private static final byte[] CHUNKED_SEARCH_PAGE = ("<div class=\"dgControl\">"
+            + "<img class=\"mimg\" src=\"/chunked/cat.png\"><img class=\"mimg\" src=\"/chunked/huge.png\"></div>")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private BatchImportManager batchImportManager;
+
+    /**
+     * 各路径被请求的次数
+     */
+    private final Map<String, AtomicInteger> hitCountMap = new ConcurrentHashMap<>();
+
+    /**
+     * 超限图片实际写出的字节数
+     */
+    private final AtomicLong hugeBytesWritten = new AtomicLong();
+
+    /**
+     * 对象存储中的对象
+     */
+    private final Map<String, byte[]> objectMap = new ConcurrentHashMap<>();
+
+    /**
+     * 内容哈希 -> 图片内容
+     */
+    private final Map<String, PictureContent> contentMap = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] searchPage = readFixture("fixtures/batch-import/search.html");
+        byte[] catImage = createPng();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", exchange -> respond(exchange, "text/html; charset=UTF-8",
+                "q=chunked".equals(exchange.getRequestURI().getQuery()) ? CHUNKED_SEARCH_PAGE : searchPage));
+        server.createContext("/images/cat.png", exchange -> respond(exchange, "image/png", catImage));
+        server.createContext("/images/cat-copy.png", exchange -> respond(exchange, "image/png", catImage));
+        server.createContext("/images/broken.png", exchange -> respond(exchange, "image/png",
+                "not an image".getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/images/huge.png", this::respondHuge);
+        server.createContext("/chunked/cat.png", exchange -> respondChunked(exchange, catImage));
+        server.createContext("/chunked/huge.png", exchange -> respondChunked(exchange, new byte[(int) HUGE_CONTENT_LENGTH]));
+        // 默认单线程处理请求，慢响应会阻塞其他图片
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        BatchImportConfig batchImportConfig = new BatchImportConfig();
+        batchImportConfig.setSearchUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/search?q=%s");
+        batchImportConfig.setFetchThreads(4);
+        batchImportConfig.setConnectTimeout(2000);
+        batchImportConfig.setReadTimeout(2000);
+
+        // 解析、校验、上传走真实逻辑，对象存储与内容索引用内存实现
+        ObjectStorage objectStorage = mock(ObjectStorage.class);
+        doAnswer(invocation -> {
+            objectMap.put(invocation.getArgument(0), IoUtil.readBytes(invocation.<InputStream>getArgument(1), false));
+            return null;
+        }).when(objectStorage).putObject(anyString(), any(InputStream.class), any(StorageObjectMetadata.class));
+        doAnswer(invocation -> new StorageObject(invocation.getArgument(0), new StorageObjectMetadata(),
+                new ByteArrayInputStream(objectMap.get(invocation.<String>getArgument(0)))))
+                .when(objectStorage).getObject(anyString());
+        doAnswer(invocation -> objectMap.remove(invocation.<String>getArgument(0)))
+                .when(objectStorage).deleteObject(anyString());
+        when(objectStorage.getObjectUrl(anyString())).thenAnswer(invocation -> "https://bucket.test/" + invocation.getArgument(0));
+        PictureContentService pictureContentService = mock(PictureContentService.class);
+        when(pictureContentService.getByContentHash(anyString())).thenAnswer(invocation -> contentMap.get(invocation.<String>getArgument(0)));
+        when(pictureContentService.saveContent(any(UploadPictureResult.class))).thenAnswer(invocation -> {
+            UploadPictureResult uploadPictureResult = invocation.getArgument(0);
+            PictureContent pictureContent = new PictureContent();
+            pictureContent.setContentHash(uploadPictureResult.getContentHash());
+            pictureContent.setUrl(uploadPictureResult.getUrl());
+            pictureContent.setPicSize(uploadPictureResult.getPicSize());
+            pictureContent.setPicWidth(uploadPictureResult.getPicWidth());
+            pictureContent.setPicHeight(uploadPictureResult.getPicHeight());
+            pictureContent.setPicFormat(uploadPictureResult.getPicFormat());
+            // 与唯一索引一致：并发写入相同内容时以先写入的为准
+            PictureContent exist = contentMap.putIfAbsent(pictureContent.getContentHash(), pictureContent);
+            return exist != null ? exist : pictureContent;
+        });
+        FileManager fileManager = new FileManager();
+        ReflectionTestUtils.setField(fileManager, "objectStorage", objectStorage);
+        ReflectionTestUtils.setField(fileManager, "pictureContentService", pictureContentService);
+        ReflectionTestUtils.setField(fileManager, "pictureDerivativeManager", mock(PictureDerivativeManager.class));
+        ReflectionTestUtils.setField(fileManager, "pictureFeatureManager", mock(PictureFeatureManager.class));
+
+        batchImportManager = new BatchImportManager();
+        ReflectionTestUtils.setField(batchImportManager, "batchImportConfig", batchImportConfig);
+        ReflectionTestUtils.setField(batchImportManager, "fileManager", fileManager);
+        batchImportManager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchImportManager.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void importFixturePage() throws InterruptedException {
+        AtomicLong nextPictureId = new AtomicLong(100);
+        Function<UploadPictureResult, Long> pictureSaver = uploadPictureResult -> nextPictureId.incrementAndGet();
+
+        PictureBatchImportVO submitted = batchImportManager.submit("cat", 10, "cat", "public/1", 1L, pictureSaver);
+        // 重复地址与选择器之外的图片在解析时就被排除
+        assertThat(submitted.getTotal()).isEqualTo(4);
+        assertThat(submitted.getItemList()).extracting(PictureBatchImportItemVO::getUrl)
+                .allMatch(url -> url.startsWith("http://127.0.0.1:"));
+
+        PictureBatchImportVO progress = waitFinished(submitted.getTaskId());
+        Map<String, PictureBatchImportItemVO> itemMap = progress.getItemList().stream()
+                .collect(Collectors.toMap(item -> item.getUrl().substring(item.getUrl().lastIndexOf('/') + 1),
+                        Function.identity()));
+
+        assertThat(progress.getSuccessCount()).isEqualTo(1);
+        assertThat(progress.getDuplicateCount()).isEqualTo(1);
+        assertThat(progress.getFailedCount()).isEqualTo(2);
+        // 两张相同内容的图片并行抓取，先完成的成功，另一张跳过
+        assertThat(itemMap.get("cat.png").getStatus() + "," + itemMap.get("cat-copy.png").getStatus())
+                .isIn("success,duplicate", "duplicate,success");
+        PictureBatchImportItemVO huge = itemMap.get("huge.png");
+        assertThat(huge.getStatus()).isEqualTo(PictureBatchImportStatusEnum.FAILED.getValue());
+        assertThat(huge.getMessage()).isEqualTo("文件大小不能超过 2M");
+        assertThat(itemMap.get("broken.png").getStatus()).isEqualTo(PictureBatchImportStatusEnum.FAILED.getValue());
+        assertThat(itemMap.get("broken.png").getMessage()).isEqualTo("无法识别的图片文件");
+        assertThat(hitCountMap.get("/images/cat.png").get()).isEqualTo(1);
+        // 超限的图片只读了响应头，远没有读完响应体
+        assertThat(hugeBytesWritten.get()).isLessThan(HUGE_CONTENT_LENGTH);
+        // 重复的那张上传后发现内容已存在，对象被删除
+        assertThat(objectMap).hasSize(1);
+        assertThat(contentMap).hasSize(1);
+    }
+
+    @Test
+    void importResponsesWithoutContentLength() throws InterruptedException {
+        AtomicLong nextPictureId = new AtomicLong(100);
+        PictureBatchImportVO submitted = batchImportManager.submit("chunked", 10, "cat", "public/1", 1L,
+                uploadPictureResult -> nextPictureId.incrementAndGet());
+
+        PictureBatchImportVO progress = waitFinished(submitted.getTaskId());
+        Map<String, PictureBatchImportItemVO> itemMap = progress.getItemList().stream()
+                .collect(Collectors.toMap(item -> item.getUrl().substring(item.getUrl().lastIndexOf('/') + 1),
+                        Function.identity()));
+
+        assertThat(itemMap.get("cat.png").getStatus()).isEqualTo(PictureBatchImportStatusEnum.SUCCESS.getValue());
+        // 未声明长度时读到上限即中断
+        assertThat(itemMap.get("huge.png").getStatus()).isEqualTo(PictureBatchImportStatusEnum.FAILED.getValue());
+        assertThat(itemMap.get("huge.png").getMessage()).isEqualTo("文件大小不能超过 2M");
+        assertThat(objectMap).hasSize(1);
+        assertThat(objectMap.values().iterator().next()).startsWith((byte) 0x89, (byte) 'P', (byte) 'N', (byte) 'G');
+    }
+
+    private PictureBatchImportVO waitFinished(String taskId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        PictureBatchImportVO progress;
+        do {
+            progress = batchImportManager.getProgress(taskId, 1L);
+            if (progress.getFinished()) {
+                return progress;
+            }
+            Thread.sleep(20);
+        } while (System.nanoTime() < deadline);
+        throw new AssertionError("batch import not finished: " + progress);
+    }
+
+    private void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        hitCountMap.computeIfAbsent(exchange.getRequestURI().getPath(), path -> new AtomicInteger()).incrementAndGet();
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    /**
+     * 不声明长度，以分块编码返回
+     */
+    private void respondChunked(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        } catch (IOException e) {
+            // 客户端已断开
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 声明超过上限的长度后慢慢写，客户端应在读响应头后直接断开
+     */
+    private void respondHuge(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.sendResponseHeaders(200, HUGE_CONTENT_LENGTH);
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            for (long written = 0; written < HUGE_CONTENT_LENGTH; written += chunk.length) {
+                int length = (int) Math.min(chunk.length, HUGE_CONTENT_LENGTH - written);
+                outputStream.write(chunk, 0, length);
+                hugeBytesWritten.addAndGet(length);
+                Thread.sleep(20);
+            }
+        } catch (IOException | InterruptedException e) {
+            // 客户端已断开
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] readFixture(String path) throws IOException {
+        try (InputStream inputStream = BatchImportManagerTest.class.getClassLoader().getResourceAsStream(path)) {
+            assertThat(inputStream).as(path).isNotNull();
+            return IoUtil.readBytes(inputStream);
+        }
+    }
+
+    private static byte[] createPng() throws IOException {
+        BufferedImage image = new BufferedImage(16, 12, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, (x * 16) << 16 | (y * 20) << 8 | 0x40);
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package com.grass.picturebackend.manager;
+
+import com.grass.picturebackend.manager.storage.DiskObjectCache;
+import com.grass.picturebackend.manager.storage.ObjectStorage;
+import com.grass.picturebackend.manager.storage.StorageObject;
+import com.grass.picturebackend.manager.storage.StorageObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 对象下载测试，只开放公共图库的对象
+ * @date 2025年06月05日 16:00
+ */
+class ObjectServeManagerTest {
+
+    private static final byte[] CONTENT = "picture content".getBytes(StandardCharsets.UTF_8);
+
+    private ObjectStorage objectStorage;
+
+    private ObjectServeManager objectServeManager;
+
+    @BeforeEach
+    void setUp() {
+        objectStorage = mock(ObjectStorage.class);
+        StorageObjectMetadata metadata = new StorageObjectMetadata();
+        metadata.setContentLength(CONTENT.length);
+        metadata.setInstanceLength(CONTENT.length);
+        metadata.setContentType("image/png");
+        metadata.setETag("abc");
+        metadata.setLastModified(new Date(1748000000000L));
+        when(objectStorage.headObject(anyString())).thenReturn(metadata);
+        DiskObjectCache diskObjectCache = mock(DiskObjectCache.class);
+        when(diskObjectCache.getObject(anyString(), any(StorageObjectMetadata.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> new StorageObject(invocation.getArgument(0), metadata, new ByteArrayInputStream(CONTENT)));
+        objectServeManager = new ObjectServeManager();
+        ReflectionTestUtils.setField(objectServeManager, "objectStorage", objectStorage);
+        ReflectionTestUtils.setField(objectServeManager, "diskObjectCache", diskObjectCache);
+    }
+
+    @Test
+    void servePublicObject() throws IOException {
+        MockHttpServletResponse response = serve("public/1/2025-06-05_abc+def.png");
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+        verify(objectStorage).headObject(eq("public/1/2025-06-05_abc+def.png"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "upload-staging/abc/2025-06-05_abc.png",
+            "test/secret.png",
+            "public/../upload-staging/abc/2025-06-05_abc.png",
+            "public/1/./x.png",
+            "public//x.png",
+            "public\\..\\test\\secret.png",
+            "/public/1/x.png"
+    })
+    void rejectNonPublicObject(String key) throws IOException {
+        MockHttpServletResponse response = serve(key);
+
+        assertThat(response.getStatus()).isEqualTo(404);
+        verify(objectStorage, never()).headObject(anyString());
+    }
+
+    private MockHttpServletResponse serve(String key) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file/object/" + key);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        objectServeManager.serve(key, request, response);
+        return response;
+    }
+}
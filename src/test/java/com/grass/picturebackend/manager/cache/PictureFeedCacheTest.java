@@ -0,0 +1,229 @@
+package com.grass.picturebackend.manager.cache;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.grass.picturebackend.common.CountedPage;
+import com.grass.picturebackend.config.PictureFeedCacheConfig;
+import com.grass.picturebackend.manager.index.PictureChangeEvent;
+import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.vo.PictureFeedCacheStatsVO;
+import com.grass.picturebackend.model.vo.PictureVO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片列表两级缓存测试，二级缓存使用内嵌 Redis，每个 PictureFeedCache 实例相当于一个应用实例
+ * @date 2025年06月03日 14:00
+ */
+class PictureFeedCacheTest {
+
+    private static final long GENERATION_REFRESH_MILLIS = 100;
+
+    private static RedisServer redisServer;
+
+    private static int redisPort;
+
+    private final List<LettuceConnectionFactory> connectionFactoryList = new ArrayList<>();
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisPort = freePort();
+        redisServer = new RedisServer(redisPort);
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        stringRedisTemplate = createRedisTemplate(redisPort);
+        stringRedisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactoryList.forEach(LettuceConnectionFactory::destroy);
+        connectionFactoryList.clear();
+    }
+
+    @Test
+    void localHit() {
+        PictureFeedCache pictureFeedCache = createCache(stringRedisTemplate);
+        CountingLoader loader = new CountingLoader(1L);
+
+        Page<PictureVO> first = pictureFeedCache.get(queryRequest(null), loader);
+        Page<PictureVO> second = pictureFeedCache.get(queryRequest(null), loader);
+
+        assertThat(loader.count.get()).isEqualTo(1);
+        // 一级缓存命中时返回同一个对象
+        assertThat(second).isSameAs(first);
+        PictureFeedCacheStatsVO stats = pictureFeedCache.getStats();
+        assertThat(stats.getLocalHitCount()).isEqualTo(1);
+        assertThat(stats.getLocalMissCount()).isEqualTo(1);
+        assertThat(stats.getRedisMissCount()).isEqualTo(1);
+        assertThat(stats.getLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void redisHit() {
+        PictureFeedCache instanceA = createCache(stringRedisTemplate);
+        PictureFeedCache instanceB = createCache(stringRedisTemplate);
+        CountingLoader loader = new CountingLoader(1L, 2L);
+
+        instanceA.get(queryRequest(null), loader);
+        Page<PictureVO> page = instanceB.get(queryRequest(null), loader);
+
+        // 另一个实例本地未命中，从 Redis 读到结果，不再查库
+        assertThat(loader.count.get()).isEqualTo(1);
+        assertThat(page.getTotal()).isEqualTo(2);
+        assertThat(((CountedPage<PictureVO>) page).isTotalExact()).isTrue();
+        assertThat(page.getRecords()).extracting(PictureVO::getId).containsExactly(1L, 2L);
+        PictureFeedCacheStatsVO stats = instanceB.getStats();
+        assertThat(stats.getRedisHitCount()).isEqualTo(1);
+        assertThat(stats.getLoadCount()).isZero();
+    }
+
+    @Test
+    void generationBumpAfterPictureChange() throws InterruptedException {
+        PictureFeedCache instanceA = createCache(stringRedisTemplate);
+        PictureFeedCache instanceB = createCache(stringRedisTemplate);
+        CountingLoader publicLoader = new CountingLoader(1L);
+        CountingLoader spaceLoader = new CountingLoader(9L);
+
+        instanceA.get(queryRequest(null), publicLoader);
+        instanceA.get(queryRequest(100L), spaceLoader);
+        instanceB.get(queryRequest(null), publicLoader);
+        assertThat(publicLoader.count.get()).isEqualTo(1);
+
+        instanceA.onPictureChange(PictureChangeEvent.of(1L, null));
+
+        assertThat(stringRedisTemplate.opsForValue().get("picture:feed:gen:0")).isEqualTo("1");
+        // 发生变更的实例立即使用新版本号
+        instanceA.get(queryRequest(null), publicLoader);
+        assertThat(publicLoader.count.get()).isEqualTo(2);
+        // 其他空间不受影响
+        instanceA.get(queryRequest(100L), spaceLoader);
+        assertThat(spaceLoader.count.get()).isEqualTo(1);
+
+        // 其他实例在版本号刷新后读到新版本，命中 A 回写的 Redis 缓存
+        Thread.sleep(GENERATION_REFRESH_MILLIS * 3);
+        instanceB.get(queryRequest(null), publicLoader);
+        assertThat(publicLoader.count.get()).isEqualTo(2);
+        assertThat(instanceB.getStats().getRedisHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void redisDownFallsBackToLoader() throws IOException {
+        // 端口上没有 Redis，连接直接被拒绝
+        PictureFeedCache pictureFeedCache = createCache(createRedisTemplate(freePort()));
+        CountingLoader loader = new CountingLoader(1L);
+
+        Page<PictureVO> first = pictureFeedCache.get(queryRequest(null), loader);
+        Page<PictureVO> second = pictureFeedCache.get(queryRequest(null), loader);
+        // 版本号递增失败不影响调用方
+        pictureFeedCache.onPictureChange(PictureChangeEvent.of(1L, null));
+
+        assertThat(first.getRecords()).extracting(PictureVO::getId).containsExactly(1L);
+        assertThat(second.getRecords()).extracting(PictureVO::getId).containsExactly(1L);
+        // 拿不到版本号时每次都查库，不缓存
+        assertThat(loader.count.get()).isEqualTo(2);
+        PictureFeedCacheStatsVO stats = pictureFeedCache.getStats();
+        assertThat(stats.getRedisErrorCount()).isEqualTo(3);
+        assertThat(stats.getLocalSize()).isZero();
+    }
+
+    private PictureFeedCache createCache(StringRedisTemplate redisTemplate) {
+        PictureFeedCacheConfig pictureFeedCacheConfig = new PictureFeedCacheConfig();
+        pictureFeedCacheConfig.setGenerationRefreshMillis(GENERATION_REFRESH_MILLIS);
+        PictureFeedCache pictureFeedCache = new PictureFeedCache();
+        ReflectionTestUtils.setField(pictureFeedCache, "pictureFeedCacheConfig", pictureFeedCacheConfig);
+        ReflectionTestUtils.setField(pictureFeedCache, "stringRedisTemplate", redisTemplate);
+        pictureFeedCache.init();
+        return pictureFeedCache;
+    }
+
+    private StringRedisTemplate createRedisTemplate(int port) {
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofSeconds(1))
+                .build();
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", port), clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactoryList.add(connectionFactory);
+        return new StringRedisTemplate(connectionFactory);
+    }
+
+    private static PictureQueryRequest queryRequest(Long spaceId) {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        pictureQueryRequest.setSpaceId(spaceId);
+        pictureQueryRequest.setNullSpaceId(spaceId == null);
+        return pictureQueryRequest;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    /**
+     * 记录调用次数的数据库查询
+     */
+    private static class CountingLoader implements Supplier<Page<PictureVO>> {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final Long[] pictureIds;
+
+        CountingLoader(Long... pictureIds) {
+            this.pictureIds = pictureIds;
+        }
+
+        @Override
+        public Page<PictureVO> get() {
+            count.incrementAndGet();
+            CountedPage<PictureVO> page = new CountedPage<>(1, 10);
+            List<PictureVO> records = new ArrayList<>();
+            for (Long pictureId : pictureIds) {
+                PictureVO pictureVO = new PictureVO();
+                pictureVO.setId(pictureId);
+                pictureVO.setName("picture-" + pictureId);
+                pictureVO.setTags(Collections.singletonList("cat"));
+                records.add(pictureVO);
+            }
+            page.setRecords(records);
+            page.setTotal(records.size());
+            return page;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.grass.picturebackend.manager.cache;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grass.picturebackend.common.BaseResponse;
+import com.grass.picturebackend.common.ResultUtils;
+import com.grass.picturebackend.config.JsonConfig;
+import com.grass.picturebackend.model.vo.PictureVO;
+import com.grass.picturebackend.model.vo.UserVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片 JSON 片段缓存测试
+ * @date 2025年06月04日 14:00
+ */
+class PictureJsonFragmentCacheTest {
+
+    private static final Date UPDATE_TIME = new Date(1748000000000L);
+
+    private ObjectMapper objectMapper;
+
+    private ObjectMapper fragmentCachedObjectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new JsonConfig().jacksonObjectMapper(new Jackson2ObjectMapperBuilder());
+        fragmentCachedObjectMapper = new JsonConfig().jacksonObjectMapper(
+                new Jackson2ObjectMapperBuilder().modulesToInstall(new PictureJsonFragmentCache().module()));
+    }
+
+    @Test
+    void sameJsonAsDefaultSerialization() throws Exception {
+        BaseResponse<Page<PictureVO>> response = response(pictureVO(1L, "小猫", "Alice"), pictureVO(2L, "小狗", "Bob"));
+
+        String expected = objectMapper.writeValueAsString(response);
+        // 第一次生成片段，第二次命中片段
+        assertThat(fragmentCachedObjectMapper.writeValueAsString(response)).isEqualTo(expected);
+        assertThat(fragmentCachedObjectMapper.writeValueAsString(response)).isEqualTo(expected);
+        assertThat(expected).contains("\"id\":\"1\"").contains("\"records\":[{");
+    }
+
+    @Test
+    void userChangeReserializes() throws Exception {
+        fragmentCachedObjectMapper.writeValueAsString(response(pictureVO(1L, "小猫", "Alice")));
+
+        // 图片的 updateTime 没变，只是作者改了名字
+        String json = fragmentCachedObjectMapper.writeValueAsString(response(pictureVO(1L, "小猫", "Alice2")));
+
+        assertThat(json).contains("\"userName\":\"Alice2\"").doesNotContain("\"userName\":\"Alice\"");
+    }
+
+    @Test
+    void modifiedAfterSerializationReserializes() throws Exception {
+        PictureVO pictureVO = pictureVO(1L, "小猫", "Alice");
+        fragmentCachedObjectMapper.writeValueAsString(response(pictureVO));
+
+        pictureVO.setName("大猫");
+        String json = fragmentCachedObjectMapper.writeValueAsString(response(pictureVO));
+
+        assertThat(json).contains("\"name\":\"大猫\"");
+    }
+
+    @Test
+    void permissionListNotShared() throws Exception {
+        PictureVO owner = pictureVO(1L, "小猫", "Alice");
+        owner.setPermissionList(Arrays.asList("picture:edit", "picture:delete"));
+        PictureVO viewer = pictureVO(1L, "小猫", "Alice");
+
+        assertThat(fragmentCachedObjectMapper.writeValueAsString(response(owner))).contains("picture:edit");
+        assertThat(fragmentCachedObjectMapper.writeValueAsString(response(viewer))).doesNotContain("picture:edit");
+    }
+
+    private static BaseResponse<Page<PictureVO>> response(PictureVO... pictureVOs) {
+        Page<PictureVO> page = new Page<>(1, 10, pictureVOs.length);
+        page.setRecords(Arrays.asList(pictureVOs));
+        return ResultUtils.success(page);
+    }
+
+    private static PictureVO pictureVO(Long id, String name, String userName) {
+        UserVO userVO = new UserVO();
+        userVO.setId(100L);
+        userVO.setUserName(userName);
+        PictureVO pictureVO = new PictureVO();
+        pictureVO.setId(id);
+        pictureVO.setName(name);
+        pictureVO.setTags(Collections.singletonList("动物"));
+        pictureVO.setUpdateTime(UPDATE_TIME);
+        pictureVO.setUserId(100L);
+        pictureVO.setUser(userVO);
+        return pictureVO;
+    }
+}
@@ -0,0 +1,80 @@
+package com.grass.picturebackend.manager.index;
+
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.entity.Picture;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 全文索引测试
+ * @date 2025年06月04日 10:00
+ */
+class PictureTextIndexTest {
+
+    @Test
+    void searchRankedAndComplete() {
+        PictureTextIndex pictureTextIndex = createIndex(
+                picture(1L, "小猫咪", "在窗台上晒太阳的猫"),
+                picture(2L, "风景", "远处有一只猫"),
+                picture(3L, "大熊猫", null),
+                picture(4L, "小狗", "草地"));
+
+        // 单字查询能命中多字词中的字，只在简介中出现一次的排在最后
+        assertThat(pictureTextIndex.search("猫", 10)).containsExactlyInAnyOrder(1L, 2L, 3L).endsWith(2L);
+        // 多字查询按二元分词，不会退化成逐字匹配
+        assertThat(pictureTextIndex.search("熊猫", 10)).containsExactly(3L);
+        assertThat(pictureTextIndex.search("小猫", 10)).containsExactly(1L);
+        assertThat(pictureTextIndex.search("老虎", 10)).isEmpty();
+    }
+
+    @Test
+    void searchOverLimitReturnsNull() {
+        List<Picture> pictureList = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            pictureList.add(picture(id, "猫 猫 猫", null));
+        }
+        // 相关度最低的一张，截取前 N 条时会被丢掉
+        pictureList.add(picture(6L, "风景", "角落里有一只猫，还有很长的一段描述文字"));
+        PictureTextIndex pictureTextIndex = createIndex(pictureList.toArray(new Picture[0]));
+
+        assertThat(pictureTextIndex.search("猫", 6)).hasSize(6).endsWith(6L);
+        // 超过上限时不截取，由调用方按原条件查询数据库
+        assertThat(pictureTextIndex.search("猫", 5)).isNull();
+    }
+
+    static PictureTextIndex createIndex(Picture... pictures) {
+        PictureMapper pictureMapper = mock(PictureMapper.class);
+        doAnswer(invocation -> {
+            ResultHandler<Picture> resultHandler = invocation.getArgument(0);
+            DefaultResultContext<Picture> resultContext = new DefaultResultContext<>();
+            for (Picture picture : pictures) {
+                resultContext.nextResultObject(picture);
+                resultHandler.handleResult(resultContext);
+            }
+            return null;
+        }).when(pictureMapper).streamTextIndex(any());
+        PictureTextIndex pictureTextIndex = new PictureTextIndex();
+        ReflectionTestUtils.setField(pictureTextIndex, "pictureMapper", pictureMapper);
+        pictureTextIndex.init();
+        return pictureTextIndex;
+    }
+
+    static Picture picture(Long id, String name, String introduction) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setName(name);
+        picture.setIntroduction(introduction);
+        return picture;
+    }
+}
@@ -0,0 +1,61 @@
+package com.grass.picturebackend.manager.session;
+
+import com.grass.picturebackend.model.dto.user.LoginUserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 会话属性序列化测试
+ * @date 2025年06月04日 16:00
+ */
+class SessionAttributeSerializerTest {
+
+    private final SessionAttributeSerializer serializer = new SessionAttributeSerializer();
+
+    @Test
+    void principalRoundTrip() {
+        LoginUserPrincipal principal = (LoginUserPrincipal) serializer.deserialize(
+                serializer.serialize(new LoginUserPrincipal(1234567890123L, "admin", 7L)));
+
+        assertThat(principal.getId()).isEqualTo(1234567890123L);
+        assertThat(principal.getUserRole()).isEqualTo("admin");
+        assertThat(principal.getVersion()).isEqualTo(7L);
+        // 角色按 value 存储，与枚举顺序无关
+        assertThat(new String(serializer.serialize(new LoginUserPrincipal(1L, "admin", 0L)), StandardCharsets.ISO_8859_1))
+                .contains("admin");
+    }
+
+    @Test
+    void nullRoleRoundTrip() {
+        LoginUserPrincipal principal = (LoginUserPrincipal) serializer.deserialize(
+                serializer.serialize(new LoginUserPrincipal(1L, null, 0L)));
+
+        assertThat(principal.getUserRole()).isNull();
+    }
+
+    @Test
+    void unknownRoleRejected() {
+        assertThatThrownBy(() -> serializer.serialize(new LoginUserPrincipal(1L, "root", 0L)))
+                .isInstanceOf(SerializationException.class);
+        // 类型 2、id 1、角色 "root"、版本 0
+        byte[] bytes = {2, 1, 4, 'r', 'o', 'o', 't', 0};
+        assertThatThrownBy(() -> serializer.deserialize(bytes)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void ordinalFormatNotTrusted() {
+        // 早期格式：类型 1、id 1、角色序号 2、版本 0
+        assertThat(serializer.deserialize(new byte[]{1, 1, 2, 0})).isNull();
+    }
+
+    @Test
+    void otherAttributeRoundTrip() {
+        assertThat(serializer.deserialize(serializer.serialize("hello"))).isEqualTo("hello");
+    }
+}
@@ -0,0 +1,90 @@
+package com.grass.picturebackend.manager.storage;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.grass.picturebackend.config.StorageConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 磁盘缓存启动清理测试，只删除分片布局下的缓存文件
+ * @date 2025年06月05日 15:00
+ */
+class DiskObjectCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private DiskObjectCache diskObjectCache;
+
+    @AfterEach
+    void tearDown() {
+        if (diskObjectCache != null) {
+            diskObjectCache.destroy();
+        }
+    }
+
+    @Test
+    void initDeletesOnlyStaleCacheFiles() throws IOException {
+        String hash = DigestUtil.sha256Hex("public/1/cat.png");
+        Path shardDir = cacheDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4));
+        Files.createDirectories(shardDir);
+        Path staleFile = write(shardDir.resolve(hash + "-123456"));
+        Path staleNegativeFile = write(shardDir.resolve(hash + "--123456"));
+        Path staleTempFile = write(shardDir.resolve(hash + "-123456.tmp"));
+        // 配置的目录里还有别的东西
+        Path otherFile = write(cacheDir.resolve("application.yml"));
+        Path otherDir = Files.createDirectories(cacheDir.resolve("backup"));
+        Path otherNestedFile = write(otherDir.resolve("data.db"));
+        Path otherShardFile = write(shardDir.resolve("notes.txt"));
+
+        diskObjectCache = createCache(cacheDir);
+
+        assertThat(staleFile).doesNotExist();
+        assertThat(staleNegativeFile).doesNotExist();
+        assertThat(staleTempFile).doesNotExist();
+        assertThat(otherFile).exists();
+        assertThat(otherNestedFile).exists();
+        assertThat(otherShardFile).exists();
+    }
+
+    @Test
+    void initRemovesEmptyShardDirs() throws IOException {
+        String hash = DigestUtil.sha256Hex("public/1/dog.png");
+        Path firstDir = cacheDir.resolve(hash.substring(0, 2));
+        Path shardDir = firstDir.resolve(hash.substring(2, 4));
+        Files.createDirectories(shardDir);
+        write(shardDir.resolve(hash + "-1"));
+
+        diskObjectCache = createCache(cacheDir);
+
+        assertThat(firstDir).doesNotExist();
+        assertThat(cacheDir).exists();
+    }
+
+    private static DiskObjectCache createCache(Path cacheDir) throws IOException {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setType("cos");
+        storageConfig.setDiskCacheEnabled(true);
+        storageConfig.setDiskCacheDir(cacheDir.toString());
+        DiskObjectCache diskObjectCache = new DiskObjectCache();
+        ReflectionTestUtils.setField(diskObjectCache, "storageConfig", storageConfig);
+        ReflectionTestUtils.setField(diskObjectCache, "objectStorage", mock(ObjectStorage.class));
+        diskObjectCache.init();
+        return diskObjectCache;
+    }
+
+    private static Path write(Path path) throws IOException {
+        return Files.write(path, "content".getBytes(StandardCharsets.UTF_8));
+    }
+}
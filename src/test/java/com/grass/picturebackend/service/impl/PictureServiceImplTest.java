@@ -0,0 +1,112 @@
+package com.grass.picturebackend.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.grass.picturebackend.manager.index.PictureTagIndex;
+import com.grass.picturebackend.manager.index.PictureTextIndex;
+import com.grass.picturebackend.mapper.PictureMapper;
+import com.grass.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.grass.picturebackend.model.entity.Picture;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Mr.Liuxq
+ * @description: 图片查询条件测试
+ * @date 2025年06月04日 10:30
+ */
+class PictureServiceImplTest {
+
+    /**
+     * 与 PictureServiceImpl.MAX_TEXT_MATCHES 相同
+     */
+    private static final int MAX_TEXT_MATCHES = 1000;
+
+    private static final long FILTERED_PICTURE_ID = 99999L;
+
+    @Test
+    void filteredSearchBeyondTextLimitFallsBackToLike() {
+        List<Picture> pictureList = new ArrayList<>();
+        for (long id = 1; id <= MAX_TEXT_MATCHES; id++) {
+            pictureList.add(picture(id, "猫 猫 猫", null));
+        }
+        // 要找的图片相关度排在全表前 N 条之后
+        pictureList.add(picture(FILTERED_PICTURE_ID, "风景", "角落里有一只猫，还有很长的一段描述文字"));
+        PictureServiceImpl pictureService = createService(pictureList);
+
+        QueryWrapper<Picture> queryWrapper = pictureService.getQueryWrapper(queryRequest("猫", 2L));
+
+        // 不能只在全表前 N 条里再按用户过滤，交给数据库按原条件查询
+        String sqlSegment = queryWrapper.getSqlSegment();
+        assertThat(sqlSegment).contains("name LIKE").contains("introduction LIKE").contains("userId =");
+        assertThat(sqlSegment).doesNotContain("id IN");
+    }
+
+    @Test
+    void filteredSearchWithinTextLimitUsesIndex() {
+        List<Picture> pictureList = new ArrayList<>();
+        for (long id = 1; id < MAX_TEXT_MATCHES; id++) {
+            pictureList.add(picture(id, "猫 猫 猫", null));
+        }
+        pictureList.add(picture(FILTERED_PICTURE_ID, "风景", "角落里有一只猫，还有很长的一段描述文字"));
+        PictureServiceImpl pictureService = createService(pictureList);
+
+        QueryWrapper<Picture> queryWrapper = pictureService.getQueryWrapper(queryRequest("猫", 2L));
+
+        // 全部匹配都在 id 列表里，相关度最低的也不会丢
+        assertThat(queryWrapper.getSqlSegment()).contains("id IN").contains("userId =").doesNotContain("name LIKE");
+        assertThat(queryWrapper.getParamNameValuePairs().values()).contains(FILTERED_PICTURE_ID);
+    }
+
+    private static PictureServiceImpl createService(List<Picture> pictureList) {
+        PictureMapper pictureMapper = mock(PictureMapper.class);
+        doAnswer(invocation -> {
+            ResultHandler<Picture> resultHandler = invocation.getArgument(0);
+            DefaultResultContext<Picture> resultContext = new DefaultResultContext<>();
+            for (Picture picture : pictureList) {
+                resultContext.nextResultObject(picture);
+                resultHandler.handleResult(resultContext);
+            }
+            return null;
+        }).when(pictureMapper).streamTextIndex(any());
+        PictureTextIndex pictureTextIndex = new PictureTextIndex();
+        ReflectionTestUtils.setField(pictureTextIndex, "pictureMapper", pictureMapper);
+        pictureTextIndex.init();
+
+        // 没有标签、分类条件
+        PictureTagIndex pictureTagIndex = mock(PictureTagIndex.class);
+        when(pictureTagIndex.match(any(), anyBoolean(), any(), anyInt())).thenReturn(null);
+
+        PictureServiceImpl pictureService = new PictureServiceImpl();
+        ReflectionTestUtils.setField(pictureService, "pictureTextIndex", pictureTextIndex);
+        ReflectionTestUtils.setField(pictureService, "pictureTagIndex", pictureTagIndex);
+        return pictureService;
+    }
+
+    private static PictureQueryRequest queryRequest(String searchText, Long userId) {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        pictureQueryRequest.setSearchText(searchText);
+        pictureQueryRequest.setUserId(userId);
+        return pictureQueryRequest;
+    }
+
+    private static Picture picture(Long id, String name, String introduction) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setName(name);
+        picture.setIntroduction(introduction);
+        return picture;
+    }
+}